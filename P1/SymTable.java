@@ -3,85 +3,137 @@ import java.util.*;
 public class SymTable {
     /*
      * A Symbol Table used to store all the symbols appears in the source code.
+     *
+     * All scopes share one HashMap from each name to its innermost visible
+     * declaration, and every declaration points to the one it shadows.  The
+     * declarations of each scope are kept in an undo log, so lookups cost one
+     * hash lookup at any nesting depth and removing a scope only touches the
+     * names declared in it.
      */
 
-    // List of HashMap to store symbols in different scopes
-    private List<HashMap<String, Sym>> symTable;
+    // One declaration of a name, linked to the declaration it shadows
+    private static class Entry {
+        String name;
+        Sym sym;
+        int scope;
+        Entry shadowed;
+
+        Entry(String name, Sym sym, int scope, Entry shadowed) {
+            this.name = name;
+            this.sym = sym;
+            this.scope = scope;
+            this.shadowed = shadowed;
+        }
+    }
+
+    // Innermost visible declaration of each name
+    private HashMap<String, Entry> symTable;
+
+    // Undo log of declarations; scope k's declarations start at scopeStart[k - 1]
+    private ArrayList<Entry> log;
+    private int[] scopeStart;
+
+    // Number of scopes, the innermost one is numbered numScopes
+    private int numScopes;
 
     public SymTable() {
         /*
          * Construction method
          */
-        this.symTable = new LinkedList<HashMap<String, Sym>>();
-        this.symTable.add(0, new HashMap<>());
+        this.symTable = new HashMap<>();
+        this.log = new ArrayList<>();
+        this.scopeStart = new int[8];
+        this.numScopes = 0;
+        addScope();
     }
 
     void addDecl(String name, Sym sym) throws EmptySymTableException, DuplicateSymException {
         /*
-         * Add the Declaration to the fist scope in the linked list
+         * Add the Declaration to the innermost scope
          */
-        if (symTable.isEmpty()) {
+        if (this.numScopes == 0) {
             throw new EmptySymTableException();
         }
         if (name == null || sym == null) {
             throw new NullPointerException();
         }
-        if (this.symTable.get(0).containsKey(name)) {
+        Entry visible = this.symTable.get(name);
+        if (visible != null && visible.scope == this.numScopes) {
             throw new DuplicateSymException();
         }
-        this.symTable.get(0).put(name, sym);
-
+        Entry entry = new Entry(name, sym, this.numScopes, visible);
+        this.symTable.put(name, entry);
+        this.log.add(entry);
     }
 
     void addScope() {
         /*
-         * Add the scope hash map to the front of the linked list
+         * Open a new innermost scope
          */
-        this.symTable.add(0, new HashMap<>());
+        if (this.numScopes == this.scopeStart.length) {
+            this.scopeStart = Arrays.copyOf(this.scopeStart, 2 * this.numScopes);
+        }
+        this.scopeStart[this.numScopes++] = this.log.size();
     }
 
     Sym lookupLocal(String name) throws EmptySymTableException {
         /*
-         * Look up the symbol in the first HashMap
+         * Look up the symbol in the innermost scope
          */
-        if (this.symTable.isEmpty()) {
+        if (this.numScopes == 0) {
             throw new EmptySymTableException();
         }
-        return this.symTable.get(0).getOrDefault(name, null);
+        Entry entry = this.symTable.get(name);
+        if (entry == null || entry.scope != this.numScopes) {
+            return null;
+        }
+        return entry.sym;
     }
 
     Sym lookupGlobal(String name) throws EmptySymTableException {
         /*
          * Look up the symbol in the whole Symbol Table
          */
-        if (this.symTable.isEmpty()) {
+        if (this.numScopes == 0) {
             throw new EmptySymTableException();
         }
-        for (HashMap<String, Sym> map : symTable) {
-            if (map.containsKey(name)) {
-                return map.get(name);
-            }
+        Entry entry = this.symTable.get(name);
+        if (entry == null) {
+            return null;
         }
-        return null;
+        return entry.sym;
     }
 
     void removeScope() throws EmptySymTableException {
         /*
-         * Remove the Scope HashMap from the front of the linked list
+         * Remove the innermost scope by undoing its declarations, newest first
          */
-        if (this.symTable.isEmpty()) {
+        if (this.numScopes == 0) {
             throw new EmptySymTableException();
         }
-        this.symTable.remove(0);
+        int start = this.scopeStart[--this.numScopes];
+        for (int k = this.log.size() - 1; k >= start; k--) {
+            Entry entry = this.log.remove(k);
+            if (entry.shadowed == null) {
+                this.symTable.remove(entry.name);
+            } else {
+                this.symTable.put(entry.name, entry.shadowed);
+            }
+        }
     }
 
     void print() {
         /*
-         * Print the content of the Symbol Table
+         * Print the content of the Symbol Table, innermost scope first
          */
         StringBuilder outputStr = new StringBuilder();
         outputStr.append("\nSym Table\n");
-        for (HashMap<String, Sym> map : symTable) {
+        for (int k = this.numScopes - 1; k >= 0; k--) {
+            HashMap<String, Sym> map = new HashMap<>();
+            int end = k + 1 < this.numScopes ? this.scopeStart[k + 1] : this.log.size();
+            for (int j = this.scopeStart[k]; j < end; j++) {
+                map.put(this.log.get(j).name, this.log.get(j).sym);
+            }
             outputStr.append(map.toString());
             outputStr.append("\n");
         }
@@ -1,14 +1,53 @@
 import java.util.*;
 
+/**
+ * A symbol table with nested scopes, kept as a single hash table in the
+ * style of LeBlanc and Cook.  The table maps each name to its innermost
+ * visible declaration; that declaration points to the one it shadows, so
+ * each name has its own chain of declarations, innermost first.
+ *
+ * The declarations made in each scope are recorded in an undo log, so
+ * removing a scope only touches the names declared in it, and looking a
+ * name up costs one hash lookup however deeply the scopes are nested.
+ */
 public class SymTable {
-    private List<HashMap<String, Sym>> list;
-    
+    /**
+     * One declaration of a name
+     */
+    private static class Entry {
+        String name;
+        Sym sym;
+        int scope;          // number of the scope it was declared in
+        Entry shadowed;     // declaration of the same name it hides, or null
+
+        Entry(String name, Sym sym, int scope, Entry shadowed) {
+            this.name = name;
+            this.sym = sym;
+            this.scope = scope;
+            this.shadowed = shadowed;
+        }
+    }
+
+    // innermost visible declaration of each name
+    private HashMap<String, Entry> table;
+
+    // declarations in the order they were made; the ones of scope k start
+    // at scopeStart[k - 1]
+    private ArrayList<Entry> log;
+    private int[] scopeStart;
+
+    // number of scopes; the innermost one is numbered numScopes
+    private int numScopes;
+
     public SymTable() {
-        list = new LinkedList<HashMap<String, Sym>>();
-        list.add(new HashMap<String, Sym>());
+        table = new HashMap<String, Entry>();
+        log = new ArrayList<Entry>();
+        scopeStart = new int[8];
+        numScopes = 0;
+        addScope();
     }
-    
-    public void addDecl(String name, Sym sym) 
+
+    public void addDecl(String name, Sym sym)
 	throws DuplicateSymException, EmptySymTableException, WrongArgumentException {
 	if (name == null && sym == null) {
 	    throw new WrongArgumentException("Arguments name and sym are null.");
@@ -19,53 +58,74 @@ public class SymTable {
 	else if (sym == null) {
 	    throw new WrongArgumentException("Argument sym is null.");
 	}
-               
-        if (list.isEmpty()) {
+
+        if (numScopes == 0) {
             throw new EmptySymTableException();
         }
-	
-        HashMap<String, Sym> symTab = list.get(0);
-        if (symTab.containsKey(name))
+
+        Entry visible = table.get(name);
+        if (visible != null && visible.scope == numScopes)
             throw new DuplicateSymException();
-        
-        symTab.put(name, sym);
+
+        Entry entry = new Entry(name, sym, numScopes, visible);
+        table.put(name, entry);
+        log.add(entry);
     }
-    
+
     public void addScope() {
-        list.add(0, new HashMap<String, Sym>());
+        if (numScopes == scopeStart.length) {
+            scopeStart = Arrays.copyOf(scopeStart, 2 * numScopes);
+        }
+        scopeStart[numScopes++] = log.size();
     }
-    
+
     public Sym lookupLocal(String name) {
-        if (list.isEmpty())
+        Entry entry = table.get(name);
+        if (entry == null || entry.scope != numScopes)
             return null;
-        
-        HashMap<String, Sym> symTab = list.get(0); 
-        return symTab.get(name);
+        return entry.sym;
     }
-    
+
     public Sym lookupGlobal(String name) {
-        if (list.isEmpty())
+        Entry entry = table.get(name);
+        if (entry == null)
             return null;
-        
-        for (HashMap<String, Sym> symTab : list) {
-            Sym sym = symTab.get(name);
-            if (sym != null)
-                return sym;
-        }
-        return null;
+        return entry.sym;
     }
-    
+
     public void removeScope() throws EmptySymTableException {
-        if (list.isEmpty())
+        if (numScopes == 0)
             throw new EmptySymTableException();
-        list.remove(0);
+
+        // undo the declarations of the innermost scope, newest first
+        int start = scopeStart[--numScopes];
+        for (int k = log.size() - 1; k >= start; k--) {
+            Entry entry = log.remove(k);
+            if (entry.shadowed == null)
+                table.remove(entry.name);
+            else
+                table.put(entry.name, entry.shadowed);
+        }
     }
-    
+
     public void print() {
         System.out.print("\n=== Sym Table ===\n");
-        for (HashMap<String, Sym> symTab : list) {
-            System.out.println(symTab.toString());
+        for (int k = numScopes - 1; k >= 0; k--) {
+            System.out.println(scopeMap(k).toString());
         }
         System.out.println();
     }
+
+    /**
+     * Returns the declarations of the scope at the given index (0 is the
+     * outermost) as a map, the way print shows them.
+     */
+    private HashMap<String, Sym> scopeMap(int index) {
+        HashMap<String, Sym> map = new HashMap<String, Sym>();
+        int end = index + 1 < numScopes ? scopeStart[index + 1] : log.size();
+        for (int k = scopeStart[index]; k < end; k++) {
+            map.put(log.get(k).name, log.get(k).sym);
+        }
+        return map;
+    }
 }
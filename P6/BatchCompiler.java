@@ -0,0 +1,232 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * BatchCompiler compiles many cflat files in one JVM, so the cost of
+ * starting the JVM and loading the parser, scanner and AST classes is paid
+ * once for the whole batch instead of once per file.
+ *
+ * Command line (after P6's -batch flag):
+ *    [-j <workers>] [-d <outdir>] [-compact] [--disable=<passes>]
+ *    <file or directory> ...
+ *
+ * Every .cflat file named on the command line or found (recursively) in a
+ * named directory is compiled by a pool of worker threads.  The code for
+ * foo.cflat is written to foo.s, next to the input or in outdir.  When all
+ * files are done, a summary with the result code of each file, the
+ * messages reported for it, and the throughput of the batch is printed.
+ * -compact and --disable are passed on to P6 (see its options).
+ */
+class BatchCompiler {
+	private int numWorkers = Runtime.getRuntime().availableProcessors();
+	private File outDir = null;
+	private boolean compact = false;
+	private List<String> disabledPasses = new ArrayList<String>();
+	private List<File> inputs = new ArrayList<File>();
+	private PrintStream outStream = System.err;
+	private long elapsedNanos;
+
+	/**
+	 * The outcome of compiling one file
+	 */
+	static class Result {
+		File inFile;
+		File outFile;
+		int resultCode = P6.RESULT_OTHER_ERROR;
+		int numLines = 0;
+		String messages = "";
+	}
+
+	/**
+	 * Runs a batch from the command line.
+	 * @param args command line args array (without -batch)
+	 * @return 0 if every file compiled, -1 otherwise
+	 */
+	public static int main(String[] args) {
+		BatchCompiler batch = new BatchCompiler();
+		try {
+			batch.parseArgs(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("usage: java P6 -batch [-j <workers>] "
+				+ "[-d <outdir>] [-compact] [--disable=<passes>] "
+				+ "<file or directory> ...");
+			return -1;
+		}
+
+		List<Result> results = batch.compileAll();
+		batch.report(results);
+		for (Result result : results) {
+			if (result.resultCode != P6.RESULT_CORRECT) {
+				return -1;
+			}
+		}
+		return 0;
+	}
+
+	private void parseArgs(String[] args) {
+		for (int k = 0; k < args.length; k++) {
+			if (args[k].equals("-j") && k + 1 < args.length) {
+				try {
+					numWorkers = Integer.parseInt(args[++k]);
+				} catch (NumberFormatException e) {
+					numWorkers = 0;
+				}
+				if (numWorkers < 1) {
+					throw new IllegalArgumentException(
+						"bad number of workers: " + args[k]);
+				}
+			} else if (args[k].equals("-d") && k + 1 < args.length) {
+				outDir = new File(args[++k]);
+				if (!outDir.isDirectory()) {
+					throw new IllegalArgumentException(
+						"not a directory: " + outDir);
+				}
+			} else if (args[k].equals("-compact")) {
+				compact = true;
+			} else if (args[k].startsWith("--disable=")) {
+				disabledPasses.addAll(Arrays.asList(
+					args[k].substring("--disable=".length()).split(",")));
+			} else {
+				addInput(new File(args[k]));
+			}
+		}
+		if (inputs.isEmpty()) {
+			throw new IllegalArgumentException("no input files");
+		}
+	}
+
+	private void addInput(File file) {
+		if (!file.isDirectory()) {
+			inputs.add(file);
+			return;
+		}
+		try (Stream<Path> paths = Files.walk(file.toPath())) {
+			paths.filter(path -> path.toString().endsWith(".cflat"))
+				.filter(path -> Files.isRegularFile(path))
+				.sorted()
+				.forEach(path -> inputs.add(path.toFile()));
+		} catch (IOException e) {
+			throw new IllegalArgumentException("could not read " + file);
+		}
+	}
+
+	/**
+	 * Compiles every input on the worker pool.
+	 * @return the results, in the order of the inputs
+	 */
+	List<Result> compileAll() {
+		ExecutorService pool = Executors.newFixedThreadPool(numWorkers);
+		List<Future<Result>> futures = new ArrayList<Future<Result>>();
+		long start = System.nanoTime();
+		for (File input : inputs) {
+			futures.add(pool.submit(() -> compile(input)));
+		}
+
+		List<Result> results = new ArrayList<Result>();
+		try {
+			for (Future<Result> future : futures) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		} finally {
+			pool.shutdown();
+		}
+		elapsedNanos = System.nanoTime() - start;
+		return results;
+	}
+
+	/**
+	 * Compiles one file with its own P6 instance (and so its own
+	 * Compilation).  Messages are collected so that the messages of files
+	 * compiled at the same time do not get mixed up.
+	 */
+	private Result compile(File input) {
+		Result result = new Result();
+		result.inFile = input;
+		result.outFile = outputFor(input);
+		ByteArrayOutputStream messages = new ByteArrayOutputStream();
+		PrintStream errStream = new PrintStream(messages, true);
+
+		P6 instance = new P6();
+		try {
+			String source = new String(Files.readAllBytes(input.toPath()),
+				StandardCharsets.UTF_8);
+			result.numLines = countLines(source);
+			instance.setInput(new StringReader(source));
+			instance.setCompact(compact);
+			for (String pass : disabledPasses) {
+				instance.disable(pass);
+			}
+			instance.setOutfile(result.outFile.getPath());
+			instance.setErrStream(errStream);
+			result.resultCode = instance.process();
+		} catch (Exception e) {
+			errStream.println(e.getMessage() != null ? e.getMessage()
+				: e.toString());
+			result.resultCode = P6.RESULT_OTHER_ERROR;
+		} finally {
+			instance.cleanup();
+		}
+		result.messages = messages.toString();
+		return result;
+	}
+
+	private File outputFor(File input) {
+		String name = input.getName();
+		if (name.endsWith(".cflat")) {
+			name = name.substring(0, name.length() - ".cflat".length());
+		}
+		File dir = outDir != null ? outDir : input.getAbsoluteFile().getParentFile();
+		return new File(dir, name + ".s");
+	}
+
+	private static int countLines(String source) {
+		int lines = 0;
+		for (int k = 0; k < source.length(); k++) {
+			if (source.charAt(k) == '\n') {
+				lines++;
+			}
+		}
+		if (source.length() > 0 && source.charAt(source.length() - 1) != '\n') {
+			lines++;
+		}
+		return lines;
+	}
+
+	/**
+	 * Prints the result code of each file, the number of files with each
+	 * result code, and the throughput of the batch.
+	 */
+	void report(List<Result> results) {
+		TreeMap<String, Integer> counts = new TreeMap<String, Integer>();
+		long totalLines = 0;
+		for (Result result : results) {
+			String name = P6.resultName(result.resultCode);
+			outStream.println(name + "\t" + result.inFile);
+			if (!result.messages.isEmpty()) {
+				for (String line : result.messages.split("\n")) {
+					outStream.println("\t" + line);
+				}
+			}
+			counts.merge(name, 1, Integer::sum);
+			totalLines += result.numLines;
+		}
+
+		outStream.println();
+		for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+			outStream.println(entry.getKey() + ": " + entry.getValue());
+		}
+		double seconds = elapsedNanos / 1e9;
+		outStream.println(String.format(
+			"%d files, %d lines in %.3f s with %d workers: "
+			+ "%.1f files/s, %.0f lines/s",
+			results.size(), totalLines, seconds, numWorkers,
+			results.size() / seconds, totalLines / seconds));
+	}
+}
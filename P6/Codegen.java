@@ -1,12 +1,14 @@
 import java.io.*;
-import java.util.HashMap;
+import java.util.*;
 
 // **********************************************************************
 // The Codegen class provides constants and operations useful for code
 // generation.
 //
 // The constants are:
-//     Registers: FP, SP, RA, V0, V1, A0, T0, T1
+//     Registers: FP, SP, RA, V0, V1, A0, T0, T1, ARGS
+//     Expression registers: TEMPS, SPILL
+//     Registers for locals: SAVED, SCRATCH
 //     Values: TRUE, FALSE
 //
 // The operations are include various "generate" methods to print nicely
@@ -17,15 +19,34 @@ import java.util.HashMap;
 //     generateLabeled
 //     genPush
 //     genPop
+//     genPrologue
+//     genPopFrame
+//     genBranch
 //     genLabel
-// and a method nextLabel to create and return a new label.
+//     genText
+//     genGlobalVar
+// a method nextLabel to create and return a new label, and a method
+// retargetLast to change the register the last instruction writes.
+//
+// The output file, literal pool and label counter belong to the current
+// Compilation, so code for several programs can be generated at once.
+// Code is written to the Compilation's Emitter, which buffers it; the
+// padding after each op code is looked up rather than built.  The code of
+// a function is kept as a list of Insns between beginFunction and
+// endFunction, so that the peephole optimizer can rewrite it.
 //
 // **********************************************************************
 
 public class Codegen {
-    // file into which generated code is written
-    public static PrintWriter p = null;    
-    public static HashMap<String, String> stringMap;
+    // emitter into which generated code is written
+    public static Emitter p() {
+        return Compilation.current().p;
+    }
+
+    // string literals used so far, written at the end of the program
+    public static LiteralPool literals() {
+        return Compilation.current().literals;
+    }
 
     // values of true and false
     public static final String TRUE = "1";
@@ -41,14 +62,114 @@ public class Codegen {
     public static final String T0 = "$t0";
     public static final String T1 = "$t1";
 
+    // registers that hold values while an expression is evaluated (see
+    // ExpNode.codeGenReg), and the one that an operand pushed when they
+    // run out is popped into
+    public static final String[] TEMPS = {
+        "$t0", "$t1", "$t2", "$t3", "$t4", "$t5", "$t6", "$t7", "$t8"
+    };
+    public static final String SPILL = "$t9";
+
+    // callee-saved registers that locals are kept in (see FnDeclNode)
+    public static final String[] SAVED = {
+        "$s0", "$s1", "$s2", "$s3", "$s4", "$s5", "$s6", "$s7"
+    };
+
+    // registers the first args of a call are passed in, the others being
+    // pushed (see ExpListNode.codeGen)
+    public static final String[] ARGS = {
+        "$a0", "$a1", "$a2", "$a3"
+    };
+
+    // caller-saved registers that no other generated code uses, but for
+    // the args, so that a function that calls none can keep locals in them
+    // without saving them (see FnDeclNode.promoteLocals)
+    public static final String[] SCRATCH = {
+        "$v1", "$a1", "$a2", "$a3"
+    };
+
+    // each branch op code and the one that branches when it does not
+    private static final Map<String, String> INVERSE = new HashMap<String, String>();
+    static {
+        String[][] pairs = {{"beq", "bne"}, {"blt", "bge"}, {"bgt", "ble"}};
+        for (String[] pair : pairs) {
+            INVERSE.put(pair[0], pair[1]);
+            INVERSE.put(pair[1], pair[0]);
+        }
+    }
+
+    // op codes whose first arg is the only register they write
+    private static final Set<String> WRITES_FIRST = new HashSet<String>(Arrays.asList(
+        "li", "la", "lw", "move", "add", "addu", "sub", "subu", "negu", "mflo",
+        "mfhi", "sll", "srl", "sra", "seq", "sne", "slt", "sgt", "sle", "sge"));
 
     // for pretty printing generated code
     private static final int MAXLEN = 4;
 
+    // PAD[n] is the space between an op code of length n and its first arg
+    private static final String[] PAD = new String[MAXLEN + 3];
+    static {
+        for (int n = 0; n < PAD.length; n++) {
+            PAD[n] = "      ".substring(0, MAXLEN - n + 2);
+        }
+    }
+
+    private static String pad(String opcode) {
+        int n = opcode.length();
+        return n < PAD.length ? PAD[n] : "";
+    }
 
-    // for generating labels
-    private static int currLabel = 0;
 
+    // **********************************************************************
+    // **********************************************************************
+    // FUNCTIONS
+    // **********************************************************************
+    // **********************************************************************
+
+    // **********************************************************************
+    // beginFunction
+    //    keep the lines generated from now on in a list, until endFunction
+    // **********************************************************************
+    public static void beginFunction() {
+        Compilation.current().insns = new ArrayList<Insn>();
+    }
+
+    // **********************************************************************
+    // endFunction
+    //    run the peephole optimizer over the lines kept since
+    //    beginFunction (unless it is disabled), then write them
+    // **********************************************************************
+    public static void endFunction() {
+        Compilation comp = Compilation.current();
+        List<Insn> insns = comp.insns;
+        comp.insns = null;
+        if (comp.runs("peephole")) {
+            insns = Peephole.optimize(insns);
+        }
+        for (Insn insn : insns) {
+            write(comp, insn);
+        }
+    }
+
+    // add the line to the function being generated, or write it now if
+    // there is none
+    private static void emit(Insn insn) {
+        Compilation comp = Compilation.current();
+        if (comp.insns != null) {
+            comp.insns.add(insn);
+        } else {
+            write(comp, insn);
+        }
+    }
+
+    private static void write(Compilation comp, Insn insn) {
+        if (insn.isInsn()) {
+            comp.numInsns++;
+            insn.print(comp.p, pad(insn.opcode));
+        } else {
+            insn.print(comp.p, "");
+        }
+    }
 
     // **********************************************************************
     // **********************************************************************
@@ -63,22 +184,8 @@ public class Codegen {
     // **********************************************************************
     public static void generateWithComment(String opcode, String comment,
                                         String arg1, String arg2, String arg3) {
-        int space = MAXLEN - opcode.length() + 2;
-    
-        p.print("\t" + opcode);
-        if (arg1 != "") {
-            for (int k = 1; k <= space; k++) 
-                p.print(" ");
-            p.print(arg1);
-            if (arg2 != "") {
-                p.print(", " + arg2);
-                if (arg3 != "") 
-                    p.print(", " + arg3);
-            }
-        }
-        if (comment != "") 
-            p.print("\t\t#" + comment);
-        p.println();
+        emit(Insn.insn(opcode, comment.isEmpty() ? "" : "\t\t#" + comment,
+                       arg1, arg2, arg3));
     }
 
     public static void generateWithComment(String opcode, String comment,
@@ -102,20 +209,7 @@ public class Codegen {
     // **********************************************************************
     public static void generate(String opcode, String arg1, String arg2,
                                 String arg3) {
-        int space = MAXLEN - opcode.length() + 2;
-    
-        p.print("\t" + opcode);
-        if (arg1 != "") {
-            for (int k = 1; k <= space; k++) 
-                p.print(" ");
-            p.print(arg1);
-            if (arg2 != "") {
-                p.print(", " + arg2);
-                if (arg3 != "") 
-                    p.print(", " + arg3);
-            }
-        }
-        p.println();
+        emit(Insn.insn(opcode, "", arg1, arg2, arg3));
     }
 
     public static void generate(String opcode, String arg1, String arg2) {
@@ -137,12 +231,7 @@ public class Codegen {
     // **********************************************************************
     public static void generate(String opcode, String arg1, String arg2,
                                 int arg3) {
-        int space = MAXLEN - opcode.length() + 2;
-    
-        p.print("\t" + opcode);
-        for (int k = 1; k <= space; k++) 
-            p.print(" ");
-        p.println(arg1 + ", " + arg2 + ", " + arg3);
+        emit(Insn.insn(opcode, "", arg1, arg2, Integer.toString(arg3)));
     }
     
     // **********************************************************************
@@ -151,12 +240,7 @@ public class Codegen {
     //    do:     write nicely formatted code (ending with new line)
     // **********************************************************************
     public static void generate(String opcode, String arg1, int arg2) {
-        int space = MAXLEN - opcode.length() + 2;
-    
-        p.print("\t" + opcode);
-        for (int k = 1; k <= space; k++) 
-            p.print(" ");
-        p.println(arg1 + ", " + arg2);
+        emit(Insn.insn(opcode, "", arg1, Integer.toString(arg2)));
     }
     
     // **********************************************************************
@@ -168,15 +252,8 @@ public class Codegen {
     // **********************************************************************
     public static void generateIndexed(String opcode, String arg1, String arg2,
                                        int arg3, String comment) {
-        int space = MAXLEN - opcode.length() + 2;
-    
-        p.print("\t" + opcode);
-        for (int k = 1; k <= space; k++) 
-            p.print(" ");
-        p.print(arg1 + ", " + arg3 + "(" + arg2 + ")");
-        if (comment != "") 
-            p.print("\t#" + comment);
-        p.println();
+        emit(Insn.insn(opcode, comment.isEmpty() ? "" : "\t#" + comment,
+                       arg1, arg3 + "(" + arg2 + ")"));
     }
     
     public static void generateIndexed(String opcode, String arg1, String arg2,
@@ -191,18 +268,8 @@ public class Codegen {
     // **********************************************************************
     public static void generateLabeled(String label, String opcode,
                                        String comment, String arg1) {
-        int space = MAXLEN - opcode.length() + 2;
-    
-        p.print(label + ":");
-        p.print("\t" + opcode);
-        if (arg1 != "") {
-            for (int k = 1; k <= space; k++) 
-                p.print(" ");
-            p.print(arg1);
-        }
-        if (comment != "") 
-            p.print("\t# " + comment);
-        p.println();
+        emit(Insn.labeled(label, Insn.insn(opcode,
+                       comment.isEmpty() ? "" : "\t# " + comment, arg1)));
     }
 
     public static void generateLabeled(String label, String opcode,
@@ -212,52 +279,142 @@ public class Codegen {
 
     // **********************************************************************
     // genPush
-    //    generate code to push the given value onto the stack
+    //    generate code to push the given value onto the stack (the PUSH
+    //    comment is left out in compact mode)
     // **********************************************************************
     public static void genPush(String s) {
-        generateIndexed("sw", s, SP, 0, "PUSH");
+        generateIndexed("sw", s, SP, 0, p().isCompact() ? "" : "PUSH");
         generate("subu", SP, SP, 4);
     }
 
     // **********************************************************************
     // genPop
-    //    generate code to pop into the given register
+    //    generate code to pop into the given register (the POP comment is
+    //    left out in compact mode)
     // **********************************************************************
     public static void genPop(String s) {
-        generateIndexed("lw", s, SP, 4, "POP");
+        generateIndexed("lw", s, SP, 4, p().isCompact() ? "" : "POP");
         generate("addu", SP, SP, 4);
     }
 
+    // **********************************************************************
+    // genPrologue
+    //    generate code to make a frame of size bytes below the saved $ra
+    //    (left out for a function that calls none) and $fp, which are
+    //    stored at 0($sp) and -4($sp) with $fp pointing at them, and $sp
+    //    adjusted once
+    // **********************************************************************
+    public static void genPrologue(boolean saveRa, int size) {
+        if (saveRa) {
+            generateIndexed("sw", RA, SP, 0);
+        }
+        generateIndexed("sw", FP, SP, -4);
+        generate("move", FP, SP);
+        generate("subu", SP, SP, 8 + size);
+    }
+
+    // **********************************************************************
+    // genPopFrame
+    //    generate code to remove the frame made by genPrologue
+    // **********************************************************************
+    public static void genPopFrame(boolean saveRa) {
+        generate("move", SP, FP);
+        if (saveRa) {
+            generateIndexed("lw", RA, SP, 0);
+        }
+        generateIndexed("lw", FP, SP, -4);
+    }
+
+    // **********************************************************************
+    // genBranch
+    //   given:    a branch op code (beq, bne, blt, bge, bgt, ble), its two
+    //             operands, the labels to go to when the condition holds
+    //             and when it does not, and the label of the code that
+    //             follows (or null)
+    //   generate: a single branch if either label is the one that follows,
+    //             else a branch and a jump
+    // **********************************************************************
+    public static void genBranch(String opcode, String arg1, String arg2,
+                                 String trueLabel, String falseLabel, String next) {
+        if (falseLabel.equals(next)) {
+            generate(opcode, arg1, arg2, trueLabel);
+        } else if (trueLabel.equals(next)) {
+            generate(INVERSE.get(opcode), arg1, arg2, falseLabel);
+        } else {
+            generate(opcode, arg1, arg2, trueLabel);
+            generate("b", falseLabel);
+        }
+    }
+
     // **********************************************************************
     // genLabel
     //   given:    label L and comment (comment may be empty)
     //   generate: L:    # comment
     // **********************************************************************
     public static void genLabel(String label, String comment) {
-        p.print(label + ":");
-        if (comment != "") 
-            p.print("\t\t" + "# " + comment);
-        p.println();
+        emit(Insn.label(label, comment.isEmpty() ? "" : "\t\t# " + comment));
     }
     
     public static void genLabel(String label) {
         genLabel(label, "");
     }
+
+    // **********************************************************************
+    // genText
+    //   given:    text, such as directives or a comment line, ending with
+    //             a new line
+    //   generate: the text as is
+    // **********************************************************************
+    public static void genText(String text) {
+        emit(Insn.text(text));
+    }
     
+    // **********************************************************************
+    // retargetLast
+    //   given:    registers from and to
+    //   do:       if the last line of the function is an instruction that
+    //             only writes from (as its first arg), make it write to
+    //             instead and return true; else return false
+    //   The caller must know that the value in from is not used later.
+    // **********************************************************************
+    public static boolean retargetLast(String from, String to) {
+        List<Insn> insns = Compilation.current().insns;
+        if (insns == null || insns.isEmpty()) {
+            return false;
+        }
+        Insn last = insns.get(insns.size() - 1);
+        if (!last.isInsn() || last.label != null || !WRITES_FIRST.contains(last.opcode)
+            || last.args.length == 0 || !last.args[0].equals(from)) {
+            return false;
+        }
+        String[] args = last.args.clone();
+        args[0] = to;
+        insns.set(insns.size() - 1, Insn.insn(last.opcode, last.comment, args));
+        return true;
+    }
+
     // **********************************************************************
     // Return a different label each time:
     //        L0 L1 L2, etc.
     // **********************************************************************
     public static String nextLabel() {
-        Integer k = Integer.valueOf(currLabel++);
+        Integer k = Integer.valueOf(Compilation.current().currLabel++);
         String tmp = ".L" + k;
         return(tmp);
     }
 
-    public static String addGlobalVar(String varName) {
+    // **********************************************************************
+    // genGlobalVar
+    //   given:    name of a global variable
+    //   generate: the .data directives that reserve its word
+    // **********************************************************************
+    public static void genGlobalVar(String varName) {
         int varSize = 4;
-        String tmp = String.format("\t.data\n\t.align 2\n_%s:\t.space %d\n", 
-                    varName, varSize);
-        return tmp;
+        Emitter p = p();
+        p.print("\t.data\n\t.align 2\n_");
+        p.print(varName);
+        p.print(":\t.space ");
+        p.print(varSize);
+        p.println();
     }
 }
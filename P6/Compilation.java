@@ -0,0 +1,121 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * The Compilation class holds all of the state that belongs to a single
+ * compilation of a cflat program: the error flag, the scanner's character
+ * number, the pool of identifiers, the offset counter and loop depth used
+ * by name analysis, and the label counter, string-literal pool and emitter
+ * used by code generation.
+ *
+ * A Compilation is bound to the current thread while it runs, so the
+ * static helpers in ErrMsg, Sym and Codegen always see the state of the
+ * compilation that called them.  Several compilations can therefore run
+ * at the same time on different threads, or one after another on the same
+ * thread, without sharing any state.
+ */
+public class Compilation {
+    // the compilation bound to each thread; a thread that never binds one
+    // gets its own default compilation
+    private static final ThreadLocal<Compilation> current =
+        ThreadLocal.withInitial(Compilation::new);
+
+    // set when a fatal error has been reported (see ErrMsg)
+    boolean err = false;
+
+    // stream to which error and warning messages are written (see ErrMsg)
+    PrintStream errStream = System.err;
+
+    // character number at which the current token starts (see cflat.jlex)
+    int charNum = 1;
+
+    // identifiers seen so far, by id (see NamePool)
+    NamePool names = new NamePool();
+
+    // next offset to give a declared variable (see Sym)
+    int localInitOffset = -8;
+
+    // number of loops around the code being analyzed (see Sym.addUse)
+    int loopDepth = 0;
+
+    // int and bool locals and formals of the function being analyzed, or
+    // null outside functions (see FnDeclNode)
+    ArrayList<Sym> fnLocals = null;
+
+    // number of calls in the function being analyzed (see FnDeclNode)
+    int fnCalls = 0;
+
+    // emitter into which generated code is written (see Codegen)
+    Emitter p = null;
+
+    // string literals used so far and their labels (see Codegen)
+    LiteralPool literals = new LiteralPool();
+
+    // number of the next label to generate (see Codegen)
+    int currLabel = 0;
+
+    // code of the function being generated, or null (see Codegen)
+    ArrayList<Insn> insns = null;
+
+    // names of the optimization passes that are turned off (see runs)
+    Set<String> disabledPasses = new HashSet<String>();
+
+    // largest callee to inline outside loops, in AST nodes, the nodes
+    // allowed more for each loop around the call, and the stream the
+    // decisions are reported to, or null (see Inliner)
+    int inlineSize = 20;
+    int inlineLoopBonus = 20;
+    PrintStream inlineReport = null;
+
+    // counts of the work done so far (see CompileStats)
+    long numTokens = 0;
+    long numNodes = 0;
+    long numSyms = 0;
+    long numScopes = 0;
+    long numInsns = 0;
+
+    public Compilation() {
+    }
+
+    public Compilation(PrintStream errStream) {
+        this.errStream = errStream;
+    }
+
+    /**
+     * Returns the compilation bound to the calling thread.
+     */
+    public static Compilation current() {
+        return current.get();
+    }
+
+    /**
+     * Binds the given compilation to the calling thread and returns the
+     * compilation that was bound before, so that it can be restored.
+     */
+    public static Compilation bind(Compilation comp) {
+        Compilation prev = current.get();
+        current.set(comp);
+        return prev;
+    }
+
+    /**
+     * Turns off the optimization pass with the given name.
+     */
+    public void disable(String pass) {
+        disabledPasses.add(pass);
+    }
+
+    /**
+     * Returns true if the optimization pass with the given name is on.
+     */
+    public boolean runs(String pass) {
+        return !disabledPasses.contains(pass);
+    }
+
+    /**
+     * Returns true if a fatal error has been reported in this compilation.
+     */
+    public boolean hasErr() {
+        return err;
+    }
+}
@@ -0,0 +1,184 @@
+import java.lang.management.*;
+import java.util.*;
+
+/**
+ * CompileStats records where the time of one compilation goes: the wall
+ * time, CPU time and allocated bytes of each phase (parse, nameAnalysis,
+ * typeCheck, fold, dce, inline, licm, lower, ssa, sccp, codeGen), measured
+ * with the per-thread counters of the JVM's ThreadMXBean, and the counts kept
+ * by the Compilation (tokens, AST nodes, symbols, scopes, labels and
+ * instructions).
+ *
+ * The report is available as text, for people, and as JSON, for tools that
+ * track compiler performance across releases.
+ */
+class CompileStats {
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The measurements of one phase; -1 means "not supported by this JVM"
+     */
+    static class Phase {
+        String name;
+        long wallNanos;
+        long cpuNanos = -1;
+        long allocBytes = -1;
+    }
+
+    private List<Phase> phases = new ArrayList<Phase>();
+    private LinkedHashMap<String, Long> counts = new LinkedHashMap<String, Long>();
+
+    // state of the phase being measured
+    private Phase currPhase;
+    private long wallStart;
+    private long cpuStart;
+    private long allocStart;
+
+    /**
+     * Starts measuring the given phase (on the calling thread).
+     */
+    public void startPhase(String name) {
+        currPhase = new Phase();
+        currPhase.name = name;
+        allocStart = allocatedBytes();
+        cpuStart = cpuTime();
+        wallStart = System.nanoTime();
+    }
+
+    /**
+     * Stops measuring the current phase.
+     */
+    public void endPhase() {
+        long wallEnd = System.nanoTime();
+        long cpuEnd = cpuTime();
+        long allocEnd = allocatedBytes();
+        currPhase.wallNanos = wallEnd - wallStart;
+        if (cpuStart >= 0 && cpuEnd >= 0) {
+            currPhase.cpuNanos = cpuEnd - cpuStart;
+        }
+        if (allocStart >= 0 && allocEnd >= 0) {
+            currPhase.allocBytes = allocEnd - allocStart;
+        }
+        phases.add(currPhase);
+        currPhase = null;
+    }
+
+    /**
+     * Copies the counts kept by the given compilation.
+     */
+    public void recordCounts(Compilation comp) {
+        counts.put("tokens", comp.numTokens);
+        counts.put("astNodes", comp.numNodes);
+        counts.put("symbols", comp.numSyms);
+        counts.put("scopes", comp.numScopes);
+        counts.put("labels", (long)comp.currLabel);
+        counts.put("instructions", comp.numInsns);
+    }
+
+    public List<Phase> getPhases() {
+        return phases;
+    }
+
+    public Map<String, Long> getCounts() {
+        return counts;
+    }
+
+    private static long cpuTime() {
+        if (!threads.isCurrentThreadCpuTimeSupported()) {
+            return -1;
+        }
+        return threads.getCurrentThreadCpuTime();
+    }
+
+    private static long allocatedBytes() {
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sunThreads =
+            (com.sun.management.ThreadMXBean)threads;
+        if (!sunThreads.isThreadAllocatedMemorySupported()
+            || !sunThreads.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Returns the report as a table, for people.
+     */
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        Phase total = total();
+        sb.append(String.format("%-14s %12s %12s %14s%n",
+                                "phase", "wall ms", "cpu ms", "alloc KB"));
+        for (Phase phase : phases) {
+            appendRow(sb, phase);
+        }
+        appendRow(sb, total);
+        sb.append(String.format("%n"));
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            sb.append(String.format("%-14s %12d%n", entry.getKey(), entry.getValue()));
+        }
+        return sb.toString();
+    }
+
+    private static void appendRow(StringBuilder sb, Phase phase) {
+        sb.append(String.format("%-14s %12.3f %12s %14s%n", phase.name,
+                                phase.wallNanos / 1e6,
+                                phase.cpuNanos < 0 ? "n/a"
+                                    : String.format("%.3f", phase.cpuNanos / 1e6),
+                                phase.allocBytes < 0 ? "n/a"
+                                    : String.format("%.1f", phase.allocBytes / 1024.0)));
+    }
+
+    /**
+     * Returns the report as a JSON object, for tools.  Times are in
+     * nanoseconds and allocations in bytes.
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"phases\": [");
+        boolean notfirst = false;
+        for (Phase phase : phases) {
+            if (notfirst)
+                sb.append(", ");
+            else
+                notfirst = true;
+            appendJson(sb, phase);
+        }
+        sb.append("], \"total\": ");
+        appendJson(sb, total());
+        sb.append(", \"counts\": {");
+        notfirst = false;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            if (notfirst)
+                sb.append(", ");
+            else
+                notfirst = true;
+            sb.append("\"" + entry.getKey() + "\": " + entry.getValue());
+        }
+        sb.append("}}");
+        return sb.toString();
+    }
+
+    private static void appendJson(StringBuilder sb, Phase phase) {
+        sb.append("{\"name\": \"" + phase.name + "\", \"wallNanos\": " + phase.wallNanos
+                  + ", \"cpuNanos\": " + phase.cpuNanos
+                  + ", \"allocBytes\": " + phase.allocBytes + "}");
+    }
+
+    private Phase total() {
+        Phase total = new Phase();
+        total.name = "total";
+        total.cpuNanos = 0;
+        total.allocBytes = 0;
+        for (Phase phase : phases) {
+            total.wallNanos += phase.wallNanos;
+            total.cpuNanos = (total.cpuNanos < 0 || phase.cpuNanos < 0) ? -1
+                : total.cpuNanos + phase.cpuNanos;
+            total.allocBytes = (total.allocBytes < 0 || phase.allocBytes < 0) ? -1
+                : total.allocBytes + phase.allocBytes;
+        }
+        return total;
+    }
+}
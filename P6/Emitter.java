@@ -0,0 +1,186 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The Emitter class collects the generated assembly code of a compilation
+ * in a reusable char buffer and writes it out in large chunks, either
+ * through a FileChannel (for the output file) or to a Writer.  It has the
+ * print methods of a PrintWriter that code generation needs, but appends
+ * ints and strings straight into the buffer instead of making Strings.
+ *
+ * In compact mode, code generation leaves out comments that only help
+ * people read the code, such as the #PUSH and #POP comments (see Codegen).
+ */
+public class Emitter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private char[] buf = new char[BUFFER_SIZE];
+    private int len = 0;
+
+    // where the code goes: exactly one of these is set
+    private FileChannel channel;
+    private Writer writer;
+
+    // bytes for the channel, reused for every chunk
+    private ByteBuffer bytes;
+
+    private boolean compact = false;
+
+    /**
+     * Makes an emitter that writes to the given channel.
+     */
+    public Emitter(FileChannel channel) {
+        this.channel = channel;
+        this.bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    /**
+     * Makes an emitter that writes to the given writer.
+     */
+    public Emitter(Writer writer) {
+        this.writer = writer;
+    }
+
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public void print(String s) {
+        int n = s.length();
+        if (len + n > buf.length) {
+            flushBuffer();
+            if (n > buf.length) {
+                buf = new char[n];
+            }
+        }
+        s.getChars(0, n, buf, len);
+        len += n;
+    }
+
+    public void print(char c) {
+        if (len == buf.length) {
+            flushBuffer();
+        }
+        buf[len++] = c;
+    }
+
+    /**
+     * Prints the given int in decimal without making a String.
+     */
+    public void print(int value) {
+        if (len + 11 > buf.length) {
+            flushBuffer();
+        }
+        if (value == Integer.MIN_VALUE) {
+            print("-2147483648");
+            return;
+        }
+        if (value < 0) {
+            buf[len++] = '-';
+            value = -value;
+        }
+        int start = len;
+        do {
+            buf[len++] = (char)('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        // the digits went in backwards
+        for (int k = start, j = len - 1; k < j; k++, j--) {
+            char tmp = buf[k];
+            buf[k] = buf[j];
+            buf[j] = tmp;
+        }
+    }
+
+    public void println() {
+        print('\n');
+    }
+
+    /**
+     * Writes out everything printed so far.
+     */
+    public void flush() {
+        flushBuffer();
+        if (writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes out everything printed so far and closes the destination.
+     */
+    public void close() {
+        flush();
+        try {
+            if (channel != null) {
+                channel.close();
+            } else {
+                writer.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flushBuffer() {
+        if (len == 0) {
+            return;
+        }
+        try {
+            if (writer != null) {
+                writer.write(buf, 0, len);
+                len = 0;
+            } else {
+                writeChannel();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the buffer to the channel.  Assembly code is almost always
+     * ASCII, which is copied byte for byte; anything else (in a string
+     * literal) is encoded as UTF-8.
+     */
+    private void writeChannel() throws IOException {
+        // a String is never split across chunks (see print), so neither
+        // is a surrogate pair
+        int end = len;
+        if (bytes.capacity() < end) {
+            bytes = ByteBuffer.allocate(end);
+        }
+        bytes.clear();
+        byte[] array = bytes.array();
+        boolean ascii = true;
+        for (int k = 0; k < end; k++) {
+            char c = buf[k];
+            if (c >= 0x80) {
+                ascii = false;
+                break;
+            }
+            array[k] = (byte)c;
+        }
+        ByteBuffer out;
+        if (ascii) {
+            bytes.limit(end);
+            out = bytes;
+        } else {
+            out = StandardCharsets.UTF_8.encode(java.nio.CharBuffer.wrap(buf, 0, end));
+        }
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        len = 0;
+    }
+}
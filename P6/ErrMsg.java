@@ -4,7 +4,6 @@
  * This class is used to generate warning and fatal error messages.
  */
 class ErrMsg {
-	private static boolean err = false;
 
 	/**
 	 * Generates a fatal error message.
@@ -13,8 +12,9 @@ class ErrMsg {
 	 * @param msg associated message for error
 	 */
 	static void fatal(int lineNum, int charNum, String msg) {
-		err = true;
-		System.err.println(lineNum + ":" + charNum + " ***ERROR*** " + msg);
+		Compilation comp = Compilation.current();
+		comp.err = true;
+		comp.errStream.println(lineNum + ":" + charNum + " ***ERROR*** " + msg);
 	}
 
 	/**
@@ -24,14 +24,14 @@ class ErrMsg {
 	 * @param msg associated message for warning
 	 */
 	static void warn(int lineNum, int charNum, String msg) {
-		System.err.println(lineNum + ":" + charNum + " ***WARNING*** " + msg);
+		Compilation.current().errStream.println(lineNum + ":" + charNum + " ***WARNING*** " + msg);
 	}
 
 	/**
-	 * Returns the err flag.
+	 * Returns the err flag of the current compilation.
 	 */
 	static boolean getErr() {
-		return err;
+		return Compilation.current().err;
 	}
 
 }
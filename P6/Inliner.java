@@ -0,0 +1,126 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * The Inliner class holds the state of the inlining pass (see
+ * FnDeclNode.inline), which replaces calls of small functions with copies
+ * of their bodies (see InlineExpNode), saving the passing of the args, the
+ * jump, the prologue and epilogue of the callee and the pops.
+ *
+ * The functions are visited in the order they are declared.  A function
+ * can only call the ones declared before it and itself, so each callee
+ * has had its own calls inlined when a call of it is looked at, and the
+ * only recursion is a function calling itself, which is never inlined.
+ *
+ * The cost model weighs the size of the callee, in AST nodes after its own
+ * calls are inlined (see FnDeclNode.bodySize, counted once when the callee
+ * has been visited), against how often the call runs, which is estimated
+ * by the number of loops around it as for the uses of a variable (see
+ * Sym.addUse): a call is inlined if the callee has at most
+ * Compilation.inlineSize nodes, plus Compilation.inlineLoopBonus for each
+ * loop around the call (up to 3).  Each decision is written to
+ * Compilation.inlineReport if it is set.
+ *
+ * A copy of a body gets a new variable for each local and formal it uses
+ * (see local), which FnDeclNode.addInlined makes a local of the caller.
+ */
+class Inliner {
+    private Compilation comp;
+
+    // function being visited, and the number of loops around the code
+    // being visited in it
+    private FnDeclNode caller;
+    private int loopDepth;
+
+    // functions visited so far, their sizes and the ones that call
+    // themselves
+    private Map<FnSym, FnDeclNode> fns = new HashMap<FnSym, FnDeclNode>();
+    private Map<FnSym, Integer> sizes = new HashMap<FnSym, Integer>();
+    private Set<FnSym> recursive = new HashSet<FnSym>();
+
+    // state of the copy being made: the new variable of each variable of
+    // the callee, in the order they were copied
+    private Map<Sym, Sym> locals;
+
+    public Inliner(Compilation comp) {
+        this.comp = comp;
+    }
+
+    public void beginFunction(FnDeclNode fn) {
+        caller = fn;
+        loopDepth = 0;
+    }
+
+    public void endFunction() {
+        fns.put(caller.sym(), caller);
+        sizes.put(caller.sym(), caller.bodySize());
+        caller = null;
+    }
+
+    public void enterLoop() {
+        loopDepth++;
+    }
+
+    public void exitLoop() {
+        loopDepth--;
+    }
+
+    /**
+     * Return the copy of the callee's body to run in place of the given
+     * call, whose args are already visited, or the call if it is not worth
+     * inlining.
+     */
+    public ExpNode inline(CallExpNode call) {
+        FnSym fn = call.fnSym();
+        FnDeclNode decl = fns.get(fn);
+        int limit = comp.inlineSize + comp.inlineLoopBonus * Math.min(loopDepth, 3);
+        if (fn == caller.sym()) {
+            // not visited yet: a call of the caller itself
+            recursive.add(fn);
+        }
+        if (decl == null || recursive.contains(fn)) {
+            report(call, "not inlined, recursive");
+            return call;
+        }
+        int size = sizes.get(fn);
+        if (size > limit) {
+            report(call, "not inlined, size " + size + " > " + limit);
+            return call;
+        }
+
+        locals = new LinkedHashMap<Sym, Sym>();
+        InlineExpNode copy = decl.copyBody(call, this);
+        caller.addInlined(decl, locals, loopDepth);
+        report(call, "inlined, size " + size + " <= " + limit);
+        return copy;
+    }
+
+    /**
+     * Return the new variable that the copy being made uses in place of
+     * the given local or formal of the callee.
+     */
+    public Sym local(Sym sym) {
+        Sym copy = locals.get(sym);
+        if (copy == null) {
+            copy = new Sym(sym.getType());
+            locals.put(sym, copy);
+        }
+        return copy;
+    }
+
+    /**
+     * Return true if the copy being made uses the given local or formal.
+     */
+    public boolean isCopied(Sym sym) {
+        return locals.containsKey(sym);
+    }
+
+    private void report(CallExpNode call, String decision) {
+        if (comp.inlineReport == null) {
+            return;
+        }
+        comp.inlineReport.println(caller.name() + ":" + call.lineNum() + ":" + call.charNum()
+                                  + ": call of " + call.name() + " in " + loopDepth
+                                  + (loopDepth == 1 ? " loop: " : " loops: ") + decision);
+    }
+}
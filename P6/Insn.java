@@ -0,0 +1,130 @@
+/**
+ * The Insn class is one line of generated code that is kept in a list
+ * (see Codegen.beginFunction) so that it can be looked at and rewritten
+ * before it is written out: an instruction, a label, or text such as a
+ * directive or comment line that is written as is.
+ *
+ * An instruction is written the same way as by the generate methods of
+ * Codegen: op code, padding, the args separated by ", ", then the comment
+ * with its separator.
+ */
+public class Insn {
+    String label;       // label of the line, or null
+    String opcode;      // op code, or null for a label or text line
+    String[] args;      // args as written, e.g. "$t0" or "4($sp)"
+    String comment;     // comment with its separator (e.g. "\t#PUSH"), or ""
+    String text;        // text written as is, or null
+
+    // the line as the peephole rules see it (see key)
+    private String key;
+
+    private static final String[] NO_ARGS = new String[0];
+
+    private Insn() {
+    }
+
+    /**
+     * Returns an instruction with the given args (empty args are left out)
+     * and comment (with its separator, or "").
+     */
+    public static Insn insn(String opcode, String comment, String... args) {
+        Insn insn = new Insn();
+        insn.opcode = opcode;
+        insn.comment = comment;
+        int n = 0;
+        while (n < args.length && !args[n].isEmpty()) {
+            n++;
+        }
+        insn.args = n == 0 ? NO_ARGS : java.util.Arrays.copyOf(args, n);
+        return insn;
+    }
+
+    /**
+     * Returns a label line with the given comment (with its separator,
+     * or "").
+     */
+    public static Insn label(String label, String comment) {
+        Insn insn = new Insn();
+        insn.label = label;
+        insn.comment = comment;
+        return insn;
+    }
+
+    /**
+     * Returns a label on the same line as an instruction.
+     */
+    public static Insn labeled(String label, Insn insn) {
+        insn.label = label;
+        return insn;
+    }
+
+    /**
+     * Returns a line that is written as is (it includes its new line).
+     */
+    public static Insn text(String text) {
+        Insn insn = new Insn();
+        insn.text = text;
+        return insn;
+    }
+
+    public boolean isInsn() {
+        return opcode != null;
+    }
+
+    public boolean isLabel() {
+        return opcode == null && label != null;
+    }
+
+    /**
+     * Returns the line without padding or comment: "op a, b, c" for an
+     * instruction, "L:" for a label, the text itself for text.
+     */
+    public String key() {
+        if (key == null) {
+            if (text != null) {
+                key = text;
+            } else if (opcode == null) {
+                key = label + ":";
+            } else {
+                StringBuilder sb = new StringBuilder();
+                if (label != null) {
+                    sb.append(label).append(": ");
+                }
+                sb.append(opcode);
+                for (int k = 0; k < args.length; k++) {
+                    sb.append(k == 0 ? " " : ", ").append(args[k]);
+                }
+                key = sb.toString();
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Writes the line.
+     */
+    public void print(Emitter p, String pad) {
+        if (text != null) {
+            p.print(text);
+            return;
+        }
+        if (label != null) {
+            p.print(label);
+            p.print(':');
+        }
+        if (opcode != null) {
+            p.print('\t');
+            p.print(opcode);
+            for (int k = 0; k < args.length; k++) {
+                p.print(k == 0 ? pad : ", ");
+                p.print(args[k]);
+            }
+        }
+        p.print(comment);
+        p.println();
+    }
+
+    public String toString() {
+        return key();
+    }
+}
@@ -0,0 +1,389 @@
+import java.io.*;
+import java.util.*;
+
+// **********************************************************************
+// The classes of the intermediate representation (IR) that a typed AST is
+// lowered to (see ProgramNode.lower and IrBuilder) and that MIPS code can
+// be generated from (see IrEmitter):
+//
+//     IrValue      an operand: a virtual register (temp), an int, or the
+//                  label of a string literal
+//     IrInsn       a three-address instruction
+//     IrBlock      a basic block: instructions that run one after the
+//                  other, the last one a branch, jump or return, with the
+//                  blocks it can go to (succs) and come from (preds)
+//     IrFunction   the blocks of a function, the first one its entry
+//     IrProgram    the globals and functions of a program
+//
+// In SSA form (see Ssa), every temp is assigned once, and a block where
+// different values of a variable meet starts with phis, e.g.
+// t7 = phi [t2, B1], [t5, B3] is t2 when coming from B1 and t5 when
+// coming from B3.
+//
+// Every int and bool local and formal of a function is a temp of its own,
+// so only globals are read and written with load and store.  dump prints
+// the IR, e.g.
+//
+//     function _f(t0 x)
+//     B0:
+//         t1 = load _g
+//         t2 = add t0, t1
+//         bgt t2, 10 -> B1, B2
+//     B1:                  # preds B0
+//         ...
+// **********************************************************************
+
+class IrValue {
+    public static final int TEMP = 0;
+    public static final int CONST = 1;
+    public static final int STRING = 2;
+
+    public final int kind;
+    public final int num;        // number of a temp, value of an int
+    public final String label;   // label of a string literal, or null
+
+    private IrValue(int kind, int num, String label) {
+        this.kind = kind;
+        this.num = num;
+        this.label = label;
+    }
+
+    /**
+     * Return the temp with the given number (see IrFunction.newTemp).
+     */
+    static IrValue temp(int num) {
+        return new IrValue(TEMP, num, null);
+    }
+
+    public static IrValue constant(int value) {
+        return new IrValue(CONST, value, null);
+    }
+
+    public static IrValue string(String label) {
+        return new IrValue(STRING, 0, label);
+    }
+
+    public boolean isTemp() {
+        return kind == TEMP;
+    }
+
+    public boolean isConst() {
+        return kind == CONST;
+    }
+
+    public boolean equals(Object o) {
+        if (!(o instanceof IrValue)) {
+            return false;
+        }
+        IrValue v = (IrValue)o;
+        return kind == v.kind && num == v.num && Objects.equals(label, v.label);
+    }
+
+    public int hashCode() {
+        return kind * 31 + num;
+    }
+
+    public String toString() {
+        switch (kind) {
+        case TEMP:
+            return "t" + num;
+        case CONST:
+            return Integer.toString(num);
+        default:
+            return label;
+        }
+    }
+}
+
+class IrInsn {
+    // op codes of the instructions that compute dst from args
+    public static final String MOVE = "move";     // dst = a
+    public static final String NEG = "neg";       // dst = -a
+    public static final String ADD = "add";       // dst = a + b, etc.
+    public static final String SUB = "sub";
+    public static final String MUL = "mul";
+    public static final String DIV = "div";
+    public static final String SEQ = "seq";       // dst = a == b, etc.
+    public static final String SNE = "sne";
+    public static final String SLT = "slt";
+    public static final String SGT = "sgt";
+    public static final String SLE = "sle";
+    public static final String SGE = "sge";
+
+    // op codes of the other instructions
+    public static final String LOAD = "load";     // dst = global name
+    public static final String STORE = "store";   // global name = a
+    public static final String CALL = "call";     // [dst =] name(args)
+    public static final String READ = "read";     // dst = int from input
+    public static final String WRITE = "write";   // output a
+    public static final String JUMP = "jump";     // go to targets[0]
+    public static final String RETURN = "ret";    // return [a]
+    public static final String PHI = "phi";       // dst = args[k] coming
+                                                  // from from[k]
+
+    // a branch has one of these op codes: if the comparison of a and b
+    // holds it goes to targets[0], else to targets[1]
+    private static final Map<String, String> BRANCH_FOR = new HashMap<String, String>();
+    static {
+        String[][] pairs = {{SEQ, "beq"}, {SNE, "bne"}, {SLT, "blt"},
+                            {SGT, "bgt"}, {SLE, "ble"}, {SGE, "bge"}};
+        for (String[] pair : pairs) {
+            BRANCH_FOR.put(pair[0], pair[1]);
+        }
+    }
+
+    public String op;
+    public IrValue dst;          // null if there is none
+    public IrValue[] args;
+    public String name;          // global of load and store, function of call
+    public IrBlock[] targets;    // of a branch or jump, else null
+    public IrBlock[] from;       // of a phi, else null
+
+    public IrInsn(String op, IrValue dst, IrValue... args) {
+        this.op = op;
+        this.dst = dst;
+        this.args = args;
+    }
+
+    /**
+     * Return the branch op code that tests the comparison with the given
+     * op code (e.g. blt for slt), or null if it is not a comparison.
+     */
+    public static String branchFor(String op) {
+        return BRANCH_FOR.get(op);
+    }
+
+    public boolean isBranch() {
+        return BRANCH_FOR.containsValue(op);
+    }
+
+    public boolean isPhi() {
+        return op.equals(PHI);
+    }
+
+    /**
+     * Return true if this instruction only computes dst, so that it can be
+     * removed if dst is not used.
+     */
+    public boolean isPure() {
+        return dst != null && !op.equals(CALL) && !op.equals(READ);
+    }
+
+    /**
+     * Return the value of the instruction with the given op code that
+     * computes dst from args, or null if it cannot be computed at compile
+     * time (e.g. a division by zero).  Like the MIPS code, the arithmetic
+     * wraps around.
+     */
+    public static Integer evaluate(String op, int[] args) {
+        int a = args[0];
+        int b = args.length > 1 ? args[1] : 0;
+        switch (op) {
+        case MOVE: return a;
+        case NEG:  return -a;
+        case ADD:  return a + b;
+        case SUB:  return a - b;
+        case MUL:  return a * b;
+        case DIV:  return b == 0 ? null : Integer.valueOf(a / b);
+        case SEQ:  return a == b ? 1 : 0;
+        case SNE:  return a != b ? 1 : 0;
+        case SLT:  return a < b ? 1 : 0;
+        case SGT:  return a > b ? 1 : 0;
+        case SLE:  return a <= b ? 1 : 0;
+        case SGE:  return a >= b ? 1 : 0;
+        default:   return null;
+        }
+    }
+
+    /**
+     * Return true if the branch with the given op code goes to its first
+     * target when comparing the given ints.
+     */
+    public static boolean branchTaken(String op, int a, int b) {
+        switch (op) {
+        case "beq": return a == b;
+        case "bne": return a != b;
+        case "blt": return a < b;
+        case "bgt": return a > b;
+        case "ble": return a <= b;
+        default:    return a >= b;
+        }
+    }
+
+    /**
+     * Return true if this instruction ends a basic block.
+     */
+    public boolean isTerminator() {
+        return targets != null || op.equals(RETURN);
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if (dst != null) {
+            sb.append(dst).append(" = ");
+        }
+        sb.append(op);
+        if (op.equals(STORE) || op.equals(LOAD)) {
+            sb.append(' ').append(name);
+            if (args.length > 0) {
+                sb.append(',');
+            }
+        } else if (op.equals(CALL)) {
+            sb.append(' ').append(name).append('(');
+        } else if (isPhi()) {
+            for (int k = 0; k < args.length; k++) {
+                sb.append(k == 0 ? " [" : ", [").append(args[k]).append(", ")
+                  .append(from[k].label).append(']');
+            }
+            return sb.toString();
+        }
+        for (int k = 0; k < args.length; k++) {
+            sb.append(k == 0 && !op.equals(CALL) ? " " : k == 0 ? "" : ", ");
+            sb.append(args[k]);
+        }
+        if (op.equals(CALL)) {
+            sb.append(')');
+        }
+        if (targets != null) {
+            sb.append(op.equals(JUMP) ? " " : " -> ");
+            for (int k = 0; k < targets.length; k++) {
+                sb.append(k == 0 ? "" : ", ").append(targets[k].label);
+            }
+        }
+        return sb.toString();
+    }
+}
+
+class IrBlock {
+    public String label;         // set by IrFunction.computeEdges
+    public List<IrInsn> insns = new ArrayList<IrInsn>();
+    public List<IrBlock> succs = new ArrayList<IrBlock>();
+    public List<IrBlock> preds = new ArrayList<IrBlock>();
+
+    /**
+     * Return the last instruction, or null if there is none.
+     */
+    public IrInsn last() {
+        return insns.isEmpty() ? null : insns.get(insns.size() - 1);
+    }
+
+    public boolean isTerminated() {
+        return !insns.isEmpty() && last().isTerminator();
+    }
+}
+
+class IrFunction {
+    public String name;          // label of the function
+    public List<IrValue> params = new ArrayList<IrValue>();
+    public List<IrBlock> blocks = new ArrayList<IrBlock>();
+
+    // name of the variable each temp holds, or null
+    private List<String> tempNames = new ArrayList<String>();
+
+    public IrFunction(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Return a new temp for the variable with the given name, or for an
+     * intermediate value if name is null.
+     */
+    public IrValue newTemp(String varName) {
+        tempNames.add(varName);
+        return IrValue.temp(tempNames.size() - 1);
+    }
+
+    public int numTemps() {
+        return tempNames.size();
+    }
+
+    /**
+     * Return the name of the variable the given temp holds, or null.
+     */
+    public String tempName(IrValue temp) {
+        return tempNames.get(temp.num);
+    }
+
+    /**
+     * Set the succs and preds of the blocks from their last instructions,
+     * remove the blocks that cannot be reached from the entry, and number
+     * the others in order.
+     */
+    public void computeEdges() {
+        Set<IrBlock> reached = new HashSet<IrBlock>();
+        Deque<IrBlock> work = new ArrayDeque<IrBlock>();
+        work.push(blocks.get(0));
+        reached.add(blocks.get(0));
+        while (!work.isEmpty()) {
+            IrBlock block = work.pop();
+            block.succs.clear();
+            block.preds.clear();
+            IrInsn last = block.last();
+            if (last != null && last.targets != null) {
+                for (IrBlock succ : last.targets) {
+                    if (!block.succs.contains(succ)) {
+                        block.succs.add(succ);
+                    }
+                    if (reached.add(succ)) {
+                        work.push(succ);
+                    }
+                }
+            }
+        }
+        blocks.removeIf(block -> !reached.contains(block));
+        for (int k = 0; k < blocks.size(); k++) {
+            IrBlock block = blocks.get(k);
+            block.label = "B" + k;
+            for (IrBlock succ : block.succs) {
+                succ.preds.add(block);
+            }
+        }
+    }
+
+    public void dump(PrintWriter p) {
+        p.print("function " + name + "(");
+        for (int k = 0; k < params.size(); k++) {
+            p.print((k == 0 ? "" : ", ") + params.get(k) + " "
+                    + tempNames.get(params.get(k).num));
+        }
+        p.println(")");
+        StringBuilder locals = new StringBuilder();
+        for (int k = 0; k < tempNames.size(); k++) {
+            if (tempNames.get(k) != null && !params.contains(IrValue.temp(k))) {
+                locals.append(locals.length() == 0 ? "" : ", ")
+                      .append("t").append(k).append(" ").append(tempNames.get(k));
+            }
+        }
+        if (locals.length() > 0) {
+            p.println("    locals " + locals);
+        }
+        for (IrBlock block : blocks) {
+            p.print(block.label + ":");
+            if (!block.preds.isEmpty()) {
+                p.print("\t\t# preds");
+                for (IrBlock pred : block.preds) {
+                    p.print(" " + pred.label);
+                }
+            }
+            p.println();
+            for (IrInsn insn : block.insns) {
+                p.println("    " + insn);
+            }
+        }
+    }
+}
+
+class IrProgram {
+    public List<String> globals = new ArrayList<String>();
+    public List<IrFunction> functions = new ArrayList<IrFunction>();
+
+    public void dump(PrintWriter p) {
+        for (String global : globals) {
+            p.println("global _" + global);
+        }
+        for (IrFunction fn : functions) {
+            p.println();
+            fn.dump(p);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+import java.util.*;
+
+/**
+ * The IrBuilder class holds the state of lowering one function to the IR
+ * (see FnDeclNode.lower): the function being built, the block that
+ * instructions are added to, and the temp of each local and formal.
+ *
+ * Blocks are laid out in the order they are started with setBlock, and a
+ * block that is left without a branch, jump or return falls through to
+ * the next one started (a jump to it is added).  After a return, further
+ * instructions go into a new block that nothing reaches; finish removes
+ * it.  A return in the copy of a body inlined into the function (see
+ * InlineExpNode) stores its value and jumps to the end of the copy.
+ */
+class IrBuilder {
+    private IrFunction fn;
+    private IrBlock block;   // block being filled, or null after a return
+
+    // temps of the locals and formals
+    private Map<Sym, IrValue> vars = new HashMap<Sym, IrValue>();
+    private Set<IrValue> varTemps = new HashSet<IrValue>();
+
+    // end of each inlined body being lowered, innermost first, and the
+    // temp its value goes in (empty if it has none)
+    private Deque<IrBlock> inlineExits = new ArrayDeque<IrBlock>();
+    private Deque<Optional<IrValue>> inlineValues = new ArrayDeque<Optional<IrValue>>();
+
+    public static final IrValue ZERO = IrValue.constant(0);
+    public static final IrValue ONE = IrValue.constant(1);
+
+    public IrBuilder(String name) {
+        fn = new IrFunction(name);
+        setBlock(new IrBlock());
+    }
+
+    /**
+     * Add a formal with the given name and sym, and return its temp.
+     */
+    public IrValue param(String name, Sym sym) {
+        IrValue temp = var(name, sym);
+        fn.params.add(temp);
+        return temp;
+    }
+
+    /**
+     * Return the temp of the local or formal with the given name and sym.
+     */
+    public IrValue var(String name, Sym sym) {
+        IrValue temp = vars.get(sym);
+        if (temp == null) {
+            temp = fn.newTemp(name);
+            vars.put(sym, temp);
+            varTemps.add(temp);
+        }
+        return temp;
+    }
+
+    /**
+     * Return a new temp for an intermediate value.
+     */
+    public IrValue newTemp() {
+        return fn.newTemp(null);
+    }
+
+    /**
+     * Return the given value, or a copy of it if it is the temp of a
+     * variable, so that it keeps its value when the variable is assigned.
+     */
+    public IrValue stable(IrValue value) {
+        if (!varTemps.contains(value)) {
+            return value;
+        }
+        IrValue temp = newTemp();
+        move(temp, value);
+        return temp;
+    }
+
+    /**
+     * Return a new block, to be started later with setBlock.
+     */
+    public IrBlock newBlock() {
+        return new IrBlock();
+    }
+
+    /**
+     * Add instructions to the given block from now on; the block being
+     * filled falls through to it.
+     */
+    public void setBlock(IrBlock next) {
+        if (block != null && !block.isTerminated()) {
+            jump(next);
+        }
+        fn.blocks.add(next);
+        block = next;
+    }
+
+    public void emit(IrInsn insn) {
+        if (block == null) {
+            // code after a return
+            setBlock(new IrBlock());
+        }
+        block.insns.add(insn);
+        if (insn.isTerminator()) {
+            block = null;
+        }
+    }
+
+    /**
+     * Add dst = op args and return dst, a new temp.
+     */
+    public IrValue op(String op, IrValue... args) {
+        IrValue dst = newTemp();
+        emit(new IrInsn(op, dst, args));
+        return dst;
+    }
+
+    public void move(IrValue dst, IrValue src) {
+        emit(new IrInsn(IrInsn.MOVE, dst, src));
+    }
+
+    public IrValue load(String global) {
+        IrInsn insn = new IrInsn(IrInsn.LOAD, newTemp());
+        insn.name = global;
+        emit(insn);
+        return insn.dst;
+    }
+
+    public void store(String global, IrValue value) {
+        IrInsn insn = new IrInsn(IrInsn.STORE, null, value);
+        insn.name = global;
+        emit(insn);
+    }
+
+    /**
+     * Add a call of the given function and return the temp of its value,
+     * or null if it returns none.
+     */
+    public IrValue call(String function, boolean hasValue, IrValue[] args) {
+        IrInsn insn = new IrInsn(IrInsn.CALL, hasValue ? newTemp() : null, args);
+        insn.name = function;
+        emit(insn);
+        return insn.dst;
+    }
+
+    /**
+     * Add a branch to ifTrue if the comparison (blt, beq, ...) of a and b
+     * holds, else to ifFalse.
+     */
+    public void branch(String op, IrValue a, IrValue b, IrBlock ifTrue, IrBlock ifFalse) {
+        IrInsn insn = new IrInsn(op, null, a, b);
+        insn.targets = new IrBlock[] { ifTrue, ifFalse };
+        emit(insn);
+    }
+
+    public void jump(IrBlock target) {
+        IrInsn insn = new IrInsn(IrInsn.JUMP, null);
+        insn.targets = new IrBlock[] { target };
+        emit(insn);
+    }
+
+    /**
+     * Add a return of the given value, or of none if it is null.
+     */
+    public void ret(IrValue value) {
+        if (!inlineExits.isEmpty()) {
+            IrValue result = inlineValues.peek().orElse(null);
+            if (value != null && result != null) {
+                move(result, value);
+            }
+            jump(inlineExits.peek());
+            return;
+        }
+        emit(value == null ? new IrInsn(IrInsn.RETURN, null)
+                           : new IrInsn(IrInsn.RETURN, null, value));
+    }
+
+    /**
+     * Make the returns added until endInline go to exit, storing their
+     * values into result (if it is not null).
+     */
+    public void beginInline(IrBlock exit, IrValue result) {
+        inlineExits.push(exit);
+        inlineValues.push(Optional.ofNullable(result));
+    }
+
+    public void endInline() {
+        inlineExits.pop();
+        inlineValues.pop();
+    }
+
+    /**
+     * Return the function, with a return at the end of the last block if
+     * it has none and its edges computed.
+     */
+    public IrFunction finish() {
+        if (block != null && !block.isTerminated()) {
+            ret(null);
+        }
+        fn.computeEdges();
+        return fn;
+    }
+}
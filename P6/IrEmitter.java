@@ -0,0 +1,218 @@
+import java.util.*;
+
+/**
+ * The IrEmitter class generates MIPS code from the IR of a program (see
+ * IrProgram), with the same calling convention and frame layout as the
+ * code generated from the AST (see FnDeclNode.codeGen): the first args are
+ * passed in the registers of Codegen.ARGS, the caller pushes the others
+ * last to first and pops them after the call, the value is returned in
+ * $v0, and the frame holds the return address at 0($fp) (if the function
+ * calls any), the caller's $fp at -4($fp), and the pushed args from 4($fp)
+ * up.
+ *
+ * Every temp has a word in the frame (a formal passed on the stack the
+ * word of its arg, one passed in a register is stored at entry), and
+ * each instruction loads its operands into $t0 and $t1, computes, and
+ * stores its result; the peephole pass removes the loads of values that
+ * were just stored.  Blocks are written in order, so a branch or jump to
+ * the next block falls through.  A function in SSA form is first taken
+ * out of it (see Ssa.destroy).
+ */
+class IrEmitter {
+    private IrFunction fn;
+
+    // offset from $fp of the word of each temp
+    private int[] offsets;
+
+    // label of each block, and of the function exit
+    private Map<IrBlock, String> labels = new HashMap<IrBlock, String>();
+    private String exitLabel;
+
+    // label of the block after the one being written, or null
+    private String next;
+
+    private IrEmitter(IrFunction fn) {
+        this.fn = fn;
+    }
+
+    /**
+     * Write the code of the given program, which was lowered in the given
+     * compilation, to p.
+     */
+    public static void emit(Compilation comp, IrProgram prog, Emitter p) {
+        Compilation prev = Compilation.bind(comp);
+        try {
+            comp.p = p;
+            for (String global : prog.globals) {
+                Codegen.genGlobalVar(global);
+            }
+            for (IrFunction fn : prog.functions) {
+                new IrEmitter(fn).emitFunction();
+            }
+            comp.literals.emit(p);
+        } finally {
+            Compilation.bind(prev);
+        }
+    }
+
+    private void emitFunction() {
+        Ssa.destroy(fn);
+        if (fn.name.equals("main")) {
+            Codegen.p().print("\t.text\n\t.globl main\nmain:\t# FUNCTION ENTRY\n");
+        } else {
+            Codegen.p().print("\t.text\n" + fn.name + ":\t# FUNCTION ENTRY\n");
+        }
+        offsets = new int[fn.numTemps()];
+        for (int k = Codegen.ARGS.length; k < fn.params.size(); k++) {
+            offsets[fn.params.get(k).num] = 4 + 4 * (k - Codegen.ARGS.length);
+        }
+        int size = 0;
+        for (int t = 0; t < offsets.length; t++) {
+            if (offsets[t] == 0) {
+                offsets[t] = -8 - size;
+                size += 4;
+            }
+        }
+        for (IrBlock block : fn.blocks) {
+            labels.put(block, Codegen.nextLabel());
+        }
+        exitLabel = Codegen.nextLabel();
+
+        boolean calls = false;
+        for (IrBlock block : fn.blocks) {
+            for (IrInsn insn : block.insns) {
+                calls |= insn.op.equals(IrInsn.CALL);
+            }
+        }
+
+        Codegen.beginFunction();
+        Codegen.genPrologue(calls, size);
+        for (int k = 0; k < fn.params.size() && k < Codegen.ARGS.length; k++) {
+            def(fn.params.get(k), Codegen.ARGS[k]);
+        }
+        for (int k = 0; k < fn.blocks.size(); k++) {
+            IrBlock block = fn.blocks.get(k);
+            next = k + 1 < fn.blocks.size() ? labels.get(fn.blocks.get(k + 1)) : exitLabel;
+            Codegen.genLabel(labels.get(block));
+            for (IrInsn insn : block.insns) {
+                emitInsn(insn);
+            }
+        }
+        Codegen.genLabel(exitLabel);
+        Codegen.genText("\t\t#FUNCTION EXIT\n");
+        Codegen.genPopFrame(calls);
+        Codegen.generate("jr", Codegen.RA);
+        Codegen.endFunction();
+    }
+
+    private void emitInsn(IrInsn insn) {
+        String op = insn.op;
+        if (insn.isBranch()) {
+            String a = use(insn.args[0], Codegen.T0);
+            String b = insn.args[1].isConst() ? insn.args[1].toString()
+                                              : use(insn.args[1], Codegen.T1);
+            Codegen.genBranch(op, a, b, labels.get(insn.targets[0]),
+                              labels.get(insn.targets[1]), next);
+        } else if (op.equals(IrInsn.JUMP)) {
+            String target = labels.get(insn.targets[0]);
+            if (!target.equals(next)) {
+                Codegen.generate("b", target);
+            }
+        } else if (op.equals(IrInsn.RETURN)) {
+            if (insn.args.length > 0) {
+                use(insn.args[0], Codegen.V0);
+            }
+            Codegen.generate("b", exitLabel);
+        } else if (op.equals(IrInsn.MOVE)) {
+            def(insn.dst, use(insn.args[0], Codegen.T0));
+        } else if (op.equals(IrInsn.NEG)) {
+            Codegen.generate("negu", Codegen.T0, use(insn.args[0], Codegen.T0));
+            def(insn.dst, Codegen.T0);
+        } else if (op.equals(IrInsn.MUL) || op.equals(IrInsn.DIV)) {
+            boolean mul = op.equals(IrInsn.MUL);
+            IrValue a = insn.args[0];
+            IrValue b = insn.args[1];
+            if (mul && a.isConst()) {
+                a = insn.args[1];
+                b = insn.args[0];
+            }
+            if (b.isConst() && Compilation.current().runs("strength")) {
+                // by a constant, see StrengthReducer
+                String src = use(a, Codegen.T0);
+                if (mul) {
+                    StrengthReducer.multiply(Codegen.T0, src, b.num);
+                } else {
+                    StrengthReducer.divide(Codegen.T0, src, b.num, Codegen.T1);
+                }
+            } else {
+                Codegen.generate(mul ? "mult" : "div", use(a, Codegen.T0), use(b, Codegen.T1));
+                Codegen.generate("mflo", Codegen.T0);
+            }
+            def(insn.dst, Codegen.T0);
+        } else if (op.equals(IrInsn.ADD) || op.equals(IrInsn.SUB)) {
+            // add and sub take an int as is
+            String a = use(insn.args[0], Codegen.T0);
+            String b = insn.args[1].isConst() ? insn.args[1].toString()
+                                              : use(insn.args[1], Codegen.T1);
+            Codegen.generate(op, Codegen.T0, a, b);
+            def(insn.dst, Codegen.T0);
+        } else if (IrInsn.branchFor(op) != null) {
+            Codegen.generate(op, Codegen.T0, use(insn.args[0], Codegen.T0),
+                             use(insn.args[1], Codegen.T1));
+            def(insn.dst, Codegen.T0);
+        } else if (op.equals(IrInsn.LOAD)) {
+            Codegen.generate("lw", Codegen.T0, insn.name);
+            def(insn.dst, Codegen.T0);
+        } else if (op.equals(IrInsn.STORE)) {
+            Codegen.generate("sw", use(insn.args[0], Codegen.T0), insn.name);
+        } else if (op.equals(IrInsn.CALL)) {
+            int numRegs = Math.min(insn.args.length, Codegen.ARGS.length);
+            for (int k = insn.args.length - 1; k >= numRegs; k--) {
+                Codegen.genPush(use(insn.args[k], Codegen.T0));
+            }
+            for (int k = 0; k < numRegs; k++) {
+                use(insn.args[k], Codegen.ARGS[k]);
+            }
+            Codegen.generate("jal", insn.name);
+            if (insn.args.length > numRegs) {
+                Codegen.generate("add", Codegen.SP, 4 * (insn.args.length - numRegs));
+            }
+            if (insn.dst != null) {
+                def(insn.dst, Codegen.V0);
+            }
+        } else if (op.equals(IrInsn.READ)) {
+            Codegen.generate("li", Codegen.V0, 5);
+            Codegen.generate("syscall");
+            def(insn.dst, Codegen.V0);
+        } else if (op.equals(IrInsn.WRITE)) {
+            IrValue value = insn.args[0];
+            use(value, Codegen.A0);
+            Codegen.generate("li", Codegen.V0, value.kind == IrValue.STRING ? 4 : 1);
+            Codegen.generate("syscall");
+        } else {
+            System.err.println("unexpected IR instruction " + insn);
+            System.exit(-1);
+        }
+    }
+
+    /**
+     * Load the given value into reg, and return reg.
+     */
+    private String use(IrValue value, String reg) {
+        if (value.isTemp()) {
+            Codegen.generateIndexed("lw", reg, Codegen.FP, offsets[value.num]);
+        } else if (value.isConst()) {
+            Codegen.generate("li", reg, value.num);
+        } else {
+            Codegen.generate("la", reg, value.label);
+        }
+        return reg;
+    }
+
+    /**
+     * Store reg into the word of the given temp.
+     */
+    private void def(IrValue temp, String reg) {
+        Codegen.generateIndexed("sw", reg, Codegen.FP, offsets[temp.num]);
+    }
+}
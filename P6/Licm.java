@@ -0,0 +1,151 @@
+import java.util.*;
+
+/**
+ * The Licm class holds the state of the loop-invariant code motion pass
+ * (see FnDeclNode.hoistInvariants), which computes the values that do not
+ * change while a loop runs once before it, instead of in every iteration.
+ *
+ * The only loops are while and repeat statements, so each is a natural
+ * loop: its header is the condition (or the count), it has no other entry,
+ * and the point before the statement is its preheader.  The loops of a
+ * function are visited outermost first (see StmtNode.hoistLoops), so a
+ * value that does not change in two nested loops is moved out of both.
+ *
+ * An int or bool variable does not change in a loop if the loop has no
+ * assignment, ++, -- or cin into it, and, for a global, makes no call
+ * (the callee can write any global).  An expression with no side effects
+ * whose operands do not change does not change either (see
+ * ExpNode.isInvariant); the largest such expressions, and the globals read
+ * in the loop, are stored into new locals before the loop (see hoist).
+ * They are evaluated even if the loop runs zero times or the code that
+ * uses them is not reached, so an expression that can fail (a divide by a
+ * variable, or an add or subtract, which trap on an overflow) is never
+ * moved; a negation is generated with negu, which does not trap.
+ */
+class Licm {
+    // function being visited
+    private FnDeclNode fn;
+
+    // state of the loop being looked at: the variables written in it,
+    // whether it makes a call, its depth, and the assignments of the values
+    // hoisted out of it
+    private Set<Sym> writes;
+    private boolean calls;
+    private int depth;
+    private List<StmtNode> hoisted;
+
+    // number of values hoisted so far, to name their locals
+    private int numHoisted;
+
+    public void beginFunction(FnDeclNode fn) {
+        this.fn = fn;
+        Compilation.current().loopDepth = 0;
+    }
+
+    public void endFunction() {
+        fn = null;
+    }
+
+    /**
+     * Count the uses in the code visited next as uses in one more loop (see
+     * Sym.addUse).
+     */
+    public void enterLoop() {
+        Compilation.current().loopDepth++;
+    }
+
+    public void exitLoop() {
+        Compilation.current().loopDepth--;
+    }
+
+    /**
+     * Start looking at a loop whose statement is at the current depth: its
+     * writes are added next, then the values to hoist out of it.
+     */
+    public void beginLoop() {
+        writes = new HashSet<Sym>();
+        calls = false;
+        depth = Compilation.current().loopDepth;
+        hoisted = new ArrayList<StmtNode>();
+    }
+
+    /**
+     * Return the assignments to put before the loop.
+     */
+    public List<StmtNode> endLoop() {
+        List<StmtNode> stmts = hoisted;
+        writes = null;
+        hoisted = null;
+        return stmts;
+    }
+
+    /**
+     * Record that the loop writes the given variable.
+     */
+    public void addWrite(Sym sym) {
+        writes.add(sym);
+    }
+
+    /**
+     * Return true if the loop writes the given variable.  The body of a
+     * function is looked at the same way, to find the variables it writes
+     * (see FnDeclNode.usesFrame).
+     */
+    public boolean writes(Sym sym) {
+        return writes.contains(sym);
+    }
+
+    /**
+     * Record that the loop makes a call.
+     */
+    public void addCall() {
+        calls = true;
+    }
+
+    /**
+     * Return true if the given variable is an int or bool that the loop
+     * does not change.
+     */
+    public boolean isInvariant(Sym sym) {
+        Type type = sym.getType();
+        if (!type.isIntType() && !type.isBoolType()) {
+            return false;
+        }
+        return !writes.contains(sym) && !(calls && sym.getOffset() == 1);
+    }
+
+    /**
+     * Return a variable to use in place of the given invariant expression,
+     * and add the assignment of the expression to it to the ones put before
+     * the loop.  The uses of the variables the expression reads move out of
+     * the loop, so they are counted again at its depth (see Sym.addUse).
+     */
+    public ExpNode hoist(ExpNode exp) {
+        Compilation comp = Compilation.current();
+        Set<Sym> reads = new HashSet<Sym>();
+        exp.addReads(reads);
+        Sym sym = fn.newLocal(exp.type());
+        String name = "_inv" + numHoisted++;
+        for (Sym read : reads) {
+            read.removeUse();
+        }
+        sym.addUse();
+        int loopDepth = comp.loopDepth;
+        comp.loopDepth = depth;
+        for (Sym read : reads) {
+            read.addUse();
+        }
+        sym.addUse();
+        comp.loopDepth = loopDepth;
+        AssignNode assign = new AssignNode(id(exp, name, sym), exp);
+        hoisted.add(new AssignStmtNode((AssignNode)assign.typed(exp.type())));
+        return id(exp, name, sym);
+    }
+
+    private IdNode id(ExpNode exp, String name, Sym sym) {
+        IdNode id = new IdNode(exp.lineNum(), exp.charNum(), name, -1);
+        id.link(sym);
+        id.typed(sym.getType());
+        return id;
+    }
+}
@@ -0,0 +1,174 @@
+import java.util.*;
+
+/**
+ * The LiteralPool class collects the string literals of one compilation.
+ * Code generation asks it for the label of each literal it loads, and at
+ * the end of the program the whole pool is written as one .data section,
+ * so the code of a function is not broken up by its literals.
+ *
+ * Literals with the same characters share one label.  A literal that is a
+ * suffix of a longer one ("sult: " in "result: ") is not stored at all:
+ * its label is put inside the longer literal, which is written in pieces
+ *    .L3:	.ascii "re"
+ *    .L7:	.asciiz "sult: "
+ */
+public class LiteralPool {
+    // label of each literal, by its text as written (with the quotes)
+    private HashMap<String, String> labels = new HashMap<String, String>();
+
+    // literals and their labels, in the order they were first used
+    private ArrayList<String> literals = new ArrayList<String>();
+    private ArrayList<String> literalLabels = new ArrayList<String>();
+
+    /**
+     * Returns the label of the given literal (with the quotes, as in the
+     * source), giving it a new label the first time it is seen.
+     */
+    public String label(String literal) {
+        String label = labels.get(literal);
+        if (label == null) {
+            label = Codegen.nextLabel();
+            labels.put(literal, label);
+            literals.add(literal);
+            literalLabels.add(label);
+        }
+        return label;
+    }
+
+    public boolean isEmpty() {
+        return literals.isEmpty();
+    }
+
+    /**
+     * Writes the .data section that holds every literal in the pool.
+     */
+    public void emit(Emitter p) {
+        if (literals.isEmpty()) {
+            return;
+        }
+        int n = literals.size();
+        List<List<String>> units = new ArrayList<List<String>>();
+        String[] chars = new String[n];
+        for (int k = 0; k < n; k++) {
+            units.add(units(literals.get(k)));
+            chars[k] = decode(units.get(k));
+        }
+
+        // sorted by their reversed characters, a literal that is a suffix
+        // of others comes right before them; each literal is stored in the
+        // last literal of the run of suffixes it starts
+        Integer[] order = new Integer[n];
+        for (int k = 0; k < n; k++) {
+            order[k] = k;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int c = compareReversed(chars[a], chars[b]);
+            return c != 0 ? c : Integer.compare(a, b);
+        });
+        int[] owner = new int[n];
+        for (int k = n - 1; k >= 0; k--) {
+            int lit = order[k];
+            owner[lit] = lit;
+            if (k + 1 < n && chars[order[k + 1]].endsWith(chars[lit])) {
+                owner[lit] = owner[order[k + 1]];
+            }
+        }
+
+        // labels inside each stored literal, by offset
+        ArrayList<TreeMap<Integer, List<String>>> inside =
+            new ArrayList<TreeMap<Integer, List<String>>>();
+        for (int k = 0; k < n; k++) {
+            inside.add(owner[k] == k ? new TreeMap<Integer, List<String>>() : null);
+        }
+        for (int k = 0; k < n; k++) {
+            int offset = chars[owner[k]].length() - chars[k].length();
+            inside.get(owner[k]).computeIfAbsent(offset, x -> new ArrayList<String>())
+                .add(literalLabels.get(k));
+        }
+
+        p.print("\t.data\n");
+        for (int k = 0; k < n; k++) {
+            if (owner[k] == k) {
+                emitStored(p, units.get(k), inside.get(k));
+            }
+        }
+    }
+
+    /**
+     * Writes one stored literal, with the given labels at their offsets:
+     * .ascii for every piece but the last, which is .asciiz.
+     */
+    private static void emitStored(Emitter p, List<String> units,
+                                   TreeMap<Integer, List<String>> inside) {
+        Iterator<Map.Entry<Integer, List<String>>> it = inside.entrySet().iterator();
+        Map.Entry<Integer, List<String>> entry = it.next();
+        while (entry != null) {
+            Map.Entry<Integer, List<String>> next = it.hasNext() ? it.next() : null;
+            List<String> pieceLabels = entry.getValue();
+            for (int j = 0; j < pieceLabels.size() - 1; j++) {
+                p.print(pieceLabels.get(j));
+                p.print(":\n");
+            }
+            p.print(pieceLabels.get(pieceLabels.size() - 1));
+            p.print(next != null ? ":\t.ascii \"" : ":\t.asciiz \"");
+            int end = next != null ? next.getKey() : units.size();
+            for (int u = entry.getKey(); u < end; u++) {
+                p.print(units.get(u));
+            }
+            p.print("\"\n");
+            entry = next;
+        }
+    }
+
+    /**
+     * Splits a literal (with the quotes) into the source text of each of
+     * its characters: a plain character or an escape such as \n.
+     */
+    private static List<String> units(String literal) {
+        List<String> units = new ArrayList<String>();
+        for (int k = 1; k < literal.length() - 1; k++) {
+            if (literal.charAt(k) == '\\' && k + 1 < literal.length() - 1) {
+                units.add(literal.substring(k, k + 2));
+                k++;
+            } else {
+                units.add(literal.substring(k, k + 1));
+            }
+        }
+        return units;
+    }
+
+    /**
+     * Returns the characters that the given units stand for.
+     */
+    private static String decode(List<String> units) {
+        StringBuilder sb = new StringBuilder();
+        for (String unit : units) {
+            if (unit.length() == 1) {
+                sb.append(unit.charAt(0));
+                continue;
+            }
+            switch (unit.charAt(1)) {
+            case 'n':
+                sb.append('\n');
+                break;
+            case 't':
+                sb.append('\t');
+                break;
+            default:    // \' \" \? \\
+                sb.append(unit.charAt(1));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int compareReversed(String a, String b) {
+        int i = a.length() - 1;
+        int j = b.length() - 1;
+        for (; i >= 0 && j >= 0; i--, j--) {
+            if (a.charAt(i) != b.charAt(j)) {
+                return Character.compare(a.charAt(i), b.charAt(j));
+            }
+        }
+        return Integer.compare(a.length(), b.length());
+    }
+}
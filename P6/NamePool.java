@@ -0,0 +1,142 @@
+import java.util.*;
+
+/**
+ * The NamePool class interns the identifiers of one compilation: each
+ * distinct name is stored once and given a dense int id (0, 1, 2, ...).
+ * The scanner interns every ID token straight from its character buffer,
+ * so a name that was seen before costs no new String, and the rest of the
+ * compiler can compare and look up names by id instead of by string.
+ */
+public class NamePool {
+    // id of "main", which is interned first
+    public static final int MAIN = 0;
+
+    // names by id
+    private String[] names = new String[64];
+    private int numNames = 0;
+
+    // open-addressing hash table of ids (-1 means empty); its size is a
+    // power of two and at least twice the number of names
+    private int[] table = new int[128];
+    private int[] hashes = new int[64];
+
+    public NamePool() {
+        Arrays.fill(table, -1);
+        intern("main");
+    }
+
+    /**
+     * Returns the id of the name in buf[start .. start + len - 1], adding
+     * the name to the pool if it is not there yet.
+     */
+    public int intern(char[] buf, int start, int len) {
+        int hash = hash(buf, start, len);
+        int mask = table.length - 1;
+        for (int k = spread(hash) & mask; ; k = (k + 1) & mask) {
+            int id = table[k];
+            if (id < 0) {
+                return add(new String(buf, start, len), hash, k);
+            }
+            if (hashes[id] == hash && sameChars(names[id], buf, start, len)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the given name, adding it to the pool if it is not
+     * there yet.
+     */
+    public int intern(String name) {
+        int id = find(name);
+        if (id >= 0) {
+            return id;
+        }
+        return intern(name.toCharArray(), 0, name.length());
+    }
+
+    /**
+     * Returns the id of the given name, or -1 if it is not in the pool.
+     */
+    public int find(String name) {
+        int hash = name.hashCode();
+        int mask = table.length - 1;
+        for (int k = spread(hash) & mask; ; k = (k + 1) & mask) {
+            int id = table[k];
+            if (id < 0) {
+                return -1;
+            }
+            if (hashes[id] == hash && names[id].equals(name)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Returns the name with the given id.
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Returns the number of names in the pool; every id is below it.
+     */
+    public int size() {
+        return numNames;
+    }
+
+    private int add(String name, int hash, int slot) {
+        if (numNames == names.length) {
+            names = Arrays.copyOf(names, 2 * numNames);
+            hashes = Arrays.copyOf(hashes, 2 * numNames);
+        }
+        int id = numNames++;
+        names[id] = name;
+        hashes[id] = hash;
+        table[slot] = id;
+        if (2 * numNames > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        table = new int[2 * table.length];
+        Arrays.fill(table, -1);
+        int mask = table.length - 1;
+        for (int id = 0; id < numNames; id++) {
+            int k = spread(hashes[id]) & mask;
+            while (table[k] >= 0) {
+                k = (k + 1) & mask;
+            }
+            table[k] = id;
+        }
+    }
+
+    // the same hash as String.hashCode, so find need not copy the name
+    private static int hash(char[] buf, int start, int len) {
+        int hash = 0;
+        for (int k = start; k < start + len; k++) {
+            hash = 31 * hash + buf[k];
+        }
+        return hash;
+    }
+
+    // mixes the high bits of a hash into the low bits used as the slot
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean sameChars(String name, char[] buf, int start, int len) {
+        if (name.length() != len) {
+            return false;
+        }
+        for (int k = 0; k < len; k++) {
+            if (name.charAt(k) != buf[start + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,4 +1,7 @@
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
 
 import java_cup.runtime.*;
 
@@ -13,10 +16,56 @@ import java_cup.runtime.*;
  * calls the parser.  If the parse is successful, then it will call name
  * analysis and type checking routines. If there is no error at the end,
  * it will generate MIPS code to the output file.
+ *
+ * Alternatively, the first argument can be -batch to compile many files
+ * in one run (see {@link BatchCompiler}).
+ *
+ * With the --stats option (or --stats=json), the time, CPU time and memory
+ * allocated by each phase and the counts of tokens, AST nodes, symbols,
+ * scopes, labels and instructions are printed to standard output (see
+ * {@link CompileStats}).
+ *
+ * With the --compact option, comments that only help people read the
+ * generated code (#PUSH and #POP) are left out (see {@link Emitter}).
+ *
+ * With --disable=<pass>[,<pass>...], the named optimization passes are
+ * not run (fold: constant folding, see ExpNode.fold; dce: dead code
+ * elimination, see FnDeclNode.removeDeadCode; peephole: see
+ * {@link Peephole}; promote: keeping locals in registers, see
+ * FnDeclNode; sccp: constant propagation on the IR, see {@link Sccp};
+ * tailcall: returning calls without growing the stack, see
+ * FnDeclNode.codeGenTailCall; inline: replacing calls of small functions
+ * with their bodies, see {@link Inliner}; strength: multiplying and
+ * dividing by constants with shifts and adds, see {@link StrengthReducer};
+ * licm: computing the values that do not change in a loop before it, see
+ * {@link Licm}).
+ *
+ * With --inline-size=<n> and --inline-loop=<n>, the inliner takes callees
+ * of up to n AST nodes outside loops (20 by default), and n more for each
+ * loop around the call (20 by default).  With --inline-report, what it
+ * inlined and why is printed to standard output.
+ *
+ * With the --ir option, the program is lowered to the three-address IR
+ * (see Ir.java) and the MIPS code is generated from it (see
+ * {@link IrEmitter}) instead of from the AST.  With --dump-ir, the IR is
+ * printed to standard output.  The IR is put into SSA form (see
+ * {@link Ssa}), where the sccp pass propagates constants through locals
+ * and branches (see {@link Sccp}).
  */
 public class P6 {
-	FileReader inFile;
-	private PrintWriter outFile;
+	Reader inFile;
+	private Emitter outFile;
+	private Compilation comp;
+	private PrintStream errStream = System.err;
+	private CompileStats stats;
+	private String statsFormat;
+	private boolean compact = false;
+	private boolean irBackend = false;
+	private boolean dumpIr = false;
+	private int inlineSize = -1;
+	private int inlineLoopBonus = -1;
+	private boolean inlineReport = false;
+	private Set<String> disabledPasses = new HashSet<String>();
 	private static PrintStream outStream = System.err;
 
 	public static final int RESULT_CORRECT = 0;
@@ -37,10 +86,39 @@ public class P6 {
 	 * is the command line to use. It shouldn't be invoked from
 	 * outside the class (hence the private constructor) because
 	 * it
-	 * @param args command line args array for [<infile> <outfile>]
+	 * @param args command line args array for
+	 *             [--stats[=json]] [--compact] [--disable=<passes>]
+	 *             [--ir] [--dump-ir] [--inline-size=<n>]
+	 *             [--inline-loop=<n>] [--inline-report] <infile> <outfile>
 	 */
 	private P6(String[] args) {
 		//Parse arguments
+		while (args.length > 0 && args[0].startsWith("--")) {
+			if (args[0].equals("--stats") || args[0].equals("--stats=text")) {
+				setStats("text");
+			} else if (args[0].equals("--stats=json")) {
+				setStats("json");
+			} else if (args[0].equals("--compact")) {
+				setCompact(true);
+			} else if (args[0].equals("--ir")) {
+				setIrBackend(true);
+			} else if (args[0].equals("--dump-ir")) {
+				setDumpIr(true);
+			} else if (args[0].startsWith("--inline-size=")) {
+				setInlineSize(intOption(args[0]));
+			} else if (args[0].startsWith("--inline-loop=")) {
+				setInlineLoopBonus(intOption(args[0]));
+			} else if (args[0].equals("--inline-report")) {
+				setInlineReport(true);
+			} else if (args[0].startsWith("--disable=")) {
+				for (String pass : args[0].substring("--disable=".length()).split(",")) {
+					disable(pass);
+				}
+			} else {
+				pukeAndDie("unknown option " + args[0]);
+			}
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
 		if (args.length < 2) {
 			String msg = "please supply name of the input file "
 				+ "and name of file for assembly output.";
@@ -57,6 +135,17 @@ public class P6 {
 		}
 	}
 
+	// value of an option of the form --name=<n>
+	private int intOption(String arg) {
+		String value = arg.substring(arg.indexOf('=') + 1);
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException ex) {
+			pukeAndDie("bad number in option " + arg);
+			return 0;
+		}
+	}
+
 	/**
 	 * Source code file path
 	 * @param filename path to source file
@@ -69,18 +158,112 @@ public class P6 {
 		}
 	}
 
+	/**
+	 * Source code from a reader, e.g. a file that was already read
+	 * @param reader source of the program
+	 */
+	public void setInput(Reader reader) {
+		inFile = reader;
+	}
+
 	/**
 	 * Text file output
 	 * @param filename path to destination file
 	 */
 	public void setOutfile(String filename) throws BadOutfileException{
 		try {
-			outFile = new PrintWriter(filename);
-		} catch (FileNotFoundException ex) {
+			outFile = new Emitter(FileChannel.open(Paths.get(filename),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING));
+			outFile.setCompact(compact);
+		} catch (IOException | InvalidPathException ex) {
 			throw new BadOutfileException(ex, filename);
 		}
 	}
 
+	/**
+	 * Turns off an optimization pass
+	 * @param pass name of the pass, e.g. "peephole"
+	 */
+	public void disable(String pass) {
+		disabledPasses.add(pass);
+	}
+
+	/**
+	 * Leaves the #PUSH and #POP comments out of the generated code
+	 * @param compact true for compact code
+	 */
+	public void setCompact(boolean compact) {
+		this.compact = compact;
+		if (outFile != null) {
+			outFile.setCompact(compact);
+		}
+	}
+
+	/**
+	 * Generates the code from the IR instead of from the AST
+	 * @param irBackend true to use the IR
+	 */
+	public void setIrBackend(boolean irBackend) {
+		this.irBackend = irBackend;
+	}
+
+	/**
+	 * Prints the IR of the program to standard output
+	 * @param dumpIr true to print the IR
+	 */
+	public void setDumpIr(boolean dumpIr) {
+		this.dumpIr = dumpIr;
+	}
+
+	/**
+	 * Largest callee the inliner takes for a call outside loops
+	 * @param size number of AST nodes of the callee's body
+	 */
+	public void setInlineSize(int size) {
+		this.inlineSize = size;
+	}
+
+	/**
+	 * Size the inliner allows more for each loop around a call
+	 * @param bonus number of AST nodes
+	 */
+	public void setInlineLoopBonus(int bonus) {
+		this.inlineLoopBonus = bonus;
+	}
+
+	/**
+	 * Prints what the inliner inlined and why to standard output
+	 * @param inlineReport true to print the report
+	 */
+	public void setInlineReport(boolean inlineReport) {
+		this.inlineReport = inlineReport;
+	}
+
+	/**
+	 * Stream for the error and warning messages of the program
+	 * @param stream destination of the messages (System.err by default)
+	 */
+	public void setErrStream(PrintStream stream) {
+		errStream = stream;
+	}
+
+	/**
+	 * Turns on the compilation statistics of {@link process}
+	 * @param format "text" or "json" (the format used by {@link run})
+	 */
+	public void setStats(String format) {
+		statsFormat = format;
+	}
+
+	/**
+	 * Statistics of the last call to {@link process}, or null if they
+	 * are not turned on
+	 */
+	public CompileStats getStats() {
+		return stats;
+	}
+
 	/**
 	 * Perform cleanup at the end of parsing. This should be called
 	 * after both good and bad input so that the files are all in a
@@ -130,40 +313,170 @@ public class P6 {
 	 */
 	private Symbol parseCFG() {
 		try {
-			parser P = new parser(new Yylex(inFile));
+			parser P = new parser(new Yylex(inFile, comp));
 			return P.parse();
 		} catch (Exception e) {
 			return null;
 		}
 	}
 
+	/**
+	 * Compiles the input file into the output file. Every call uses a
+	 * fresh Compilation, so a P6 instance holds no state from earlier
+	 * calls and several instances can process files on different threads.
+	 * @return one of the RESULT_* codes
+	 */
 	public int process() {
-		Symbol cfgRoot = parseCFG();
+		comp = new Compilation(errStream);
+		for (String pass : disabledPasses) {
+			comp.disable(pass);
+		}
+		if (inlineSize >= 0) {
+			comp.inlineSize = inlineSize;
+		}
+		if (inlineLoopBonus >= 0) {
+			comp.inlineLoopBonus = inlineLoopBonus;
+		}
+		if (inlineReport) {
+			comp.inlineReport = System.out;
+		}
+		stats = statsFormat != null ? new CompileStats() : null;
+		Compilation prev = Compilation.bind(comp);
+		try {
+			return process(comp);
+		} finally {
+			if (stats != null) {
+				stats.recordCounts(comp);
+			}
+			Compilation.bind(prev);
+		}
+	}
 
-		ProgramNode astRoot = (ProgramNode)cfgRoot.value;
-		if (ErrMsg.getErr()) {
+	private int process(Compilation comp) {
+		startPhase("parse");
+		Symbol cfgRoot = parseCFG();
+		endPhase();
+		if (cfgRoot == null || comp.hasErr()) {
 			return P6.RESULT_SYNTAX_ERROR;
 		}
 
-		astRoot.nameAnalysis();	 // perform name analysis
-		if (ErrMsg.getErr()) {
+		ProgramNode astRoot = (ProgramNode)cfgRoot.value;
+
+		startPhase("nameAnalysis");
+		astRoot.nameAnalysis(comp);	 // perform name analysis
+		endPhase();
+		if (comp.hasErr()) {
 			return P6.RESULT_NAME_ANALYSIS_ERROR;
 		}
 
-		astRoot.typeCheck();
-		if (ErrMsg.getErr()) {
+		startPhase("typeCheck");
+		astRoot.typeCheck(comp);
+		endPhase();
+		if (comp.hasErr()) {
 			return P6.RESULT_TYPE_ERROR;
 		}
 
+		if (comp.runs("fold")) {
+			startPhase("fold");
+			astRoot.fold(comp);
+			endPhase();
+		}
+		if (comp.runs("dce")) {
+			startPhase("dce");
+			astRoot.removeDeadCode(comp);
+			endPhase();
+		}
+		if (comp.runs("inline")) {
+			startPhase("inline");
+			astRoot.inline(comp);
+			endPhase();
+		}
+		if (comp.runs("licm")) {
+			startPhase("licm");
+			astRoot.hoistInvariants(comp);
+			endPhase();
+		}
+
+		IrProgram ir = null;
+		if (irBackend || dumpIr) {
+			startPhase("lower");
+			ir = astRoot.lower(comp);
+			endPhase();
+			startPhase("ssa");
+			for (IrFunction fn : ir.functions) {
+				Ssa.build(fn);
+			}
+			endPhase();
+			if (comp.runs("sccp")) {
+				startPhase("sccp");
+				for (IrFunction fn : ir.functions) {
+					Sccp.run(fn);
+				}
+				endPhase();
+			}
+			if (dumpIr) {
+				PrintWriter out = new PrintWriter(System.out);
+				ir.dump(out);
+				out.flush();
+			}
+		}
+
 		// Calling codeGen   //
-		astRoot.codeGen(this.outFile);
+		startPhase("codeGen");
+		if (irBackend) {
+			IrEmitter.emit(comp, ir, this.outFile);
+		} else {
+			astRoot.codeGen(comp, this.outFile);
+		}
 		// astRoot.unparse(this.outFile, 0);
+		if (this.outFile != null) {
+			this.outFile.flush();	// so that writing is part of codeGen
+		}
+		endPhase();
 
 		return P6.RESULT_CORRECT;
 	}
 
+	private void startPhase(String name) {
+		if (stats != null) {
+			stats.startPhase(name);
+		}
+	}
+
+	private void endPhase() {
+		if (stats != null) {
+			stats.endPhase();
+		}
+	}
+
+	/**
+	 * Name of a result code, as used in reports
+	 * @param resultCode one of the RESULT_* codes
+	 */
+	public static String resultName(int resultCode) {
+		switch(resultCode) {
+		case RESULT_CORRECT:
+			return "RESULT_CORRECT";
+		case RESULT_SYNTAX_ERROR:
+			return "RESULT_SYNTAX_ERROR";
+		case RESULT_TYPE_ERROR:
+			return "RESULT_TYPE_ERROR";
+		case RESULT_NAME_ANALYSIS_ERROR:
+			return "RESULT_NAME_ANALYSIS_ERROR";
+		default:
+			return "RESULT_OTHER_ERROR";
+		}
+	}
+
 	public void run() {
 		int resultCode = process();
+		if (stats != null) {
+			if (statsFormat.equals("json")) {
+				System.out.println(stats.toJson());
+			} else {
+				System.out.print(stats.toText());
+			}
+		}
 		if (resultCode == RESULT_CORRECT) {
 			cleanup();
 			return;
@@ -171,7 +484,9 @@ public class P6 {
 
 		switch(resultCode) {
 		case RESULT_SYNTAX_ERROR:
-			pukeAndDie("Syntax error", resultCode);
+			// the scanner or parser has already reported the error
+			cleanup();
+			System.exit(-1);
 		case RESULT_TYPE_ERROR:
 			pukeAndDie("Type checking error", resultCode);
 		case RESULT_NAME_ANALYSIS_ERROR:
@@ -212,6 +527,10 @@ public class P6 {
 	}
 
 	public static void main(String[] args) {
+		if (args.length > 0 && args[0].equals("-batch")) {
+			String[] rest = Arrays.copyOfRange(args, 1, args.length);
+			System.exit(BatchCompiler.main(rest));
+		}
 		P6 instance = new P6(args);
 		instance.run();
 	}
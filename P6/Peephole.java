@@ -0,0 +1,267 @@
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.regex.*;
+
+/**
+ * The Peephole class rewrites the code of one function (a list of Insns,
+ * see Codegen.endFunction) with a set of pattern rules.  Each rule is a
+ * few consecutive lines to look for and the lines to put in their place,
+ * written the way the lines look in the output, e.g.
+ *
+ *    "sw ?r, 0($sp)", "subu $sp, $sp, 4", "lw ?s, 4($sp)", "addu $sp, $sp, 4"
+ *        becomes  "move ?s, ?r"
+ *
+ * In a pattern, ?name matches an op code, an arg, or part of an arg (as
+ * in "?o(?b)"); a name matches the same text everywhere in the rule, and
+ * the replacement uses the text it matched.  A rule can also have a guard
+ * on the matched text.  A replacement line that is the same as one of the
+ * pattern lines keeps the matched line (with its comment).
+ *
+ * Lines are moved to the output one at a time, and after each line the
+ * rules are tried on the end of the output until none applies, so the
+ * result of one rewrite is tried again with the lines before it.
+ */
+class Peephole {
+    /**
+     * One rewrite rule
+     */
+    static class Rule {
+        String name;
+        Line[] pattern;
+        String[] replacement;
+        Predicate<Map<String, String>> guard = m -> true;
+
+        Rule(String name) {
+            this.name = name;
+        }
+
+        Rule match(String... lines) {
+            pattern = new Line[lines.length];
+            for (int k = 0; k < lines.length; k++) {
+                pattern[k] = new Line(lines[k]);
+            }
+            return this;
+        }
+
+        Rule replace(String... lines) {
+            replacement = lines;
+            return this;
+        }
+
+        Rule when(Predicate<Map<String, String>> guard) {
+            this.guard = guard;
+            return this;
+        }
+
+        // first word of the last pattern line, used to find the rules
+        // that can end at a given line
+        String lastWord() {
+            return firstWord(pattern[pattern.length - 1].text);
+        }
+    }
+
+    /**
+     * One line of a pattern, compiled to a regular expression with a
+     * group for each ?name
+     */
+    static class Line {
+        String text;
+        Pattern regex;
+        List<String> names = new ArrayList<String>();
+
+        Line(String text) {
+            this.text = text;
+            StringBuilder sb = new StringBuilder();
+            Matcher m = VAR.matcher(text);
+            int last = 0;
+            while (m.find()) {
+                sb.append(Pattern.quote(text.substring(last, m.start())));
+                // a whole arg may have parentheses, a part of one may not
+                boolean part = (m.start() > 0 && text.charAt(m.start() - 1) == '(')
+                    || (m.end() < text.length() && text.charAt(m.end()) == '(');
+                sb.append(part ? "([^,\\s()]+)" : "([^,\\s]+)");
+                names.add(m.group(1));
+                last = m.end();
+            }
+            sb.append(Pattern.quote(text.substring(last)));
+            regex = Pattern.compile(sb.toString());
+        }
+
+        /**
+         * Matches the given line, adding to (and checking against) the
+         * text already matched by each name.
+         */
+        boolean match(String line, Map<String, String> bound) {
+            Matcher m = regex.matcher(line);
+            if (!m.matches()) {
+                return false;
+            }
+            for (int k = 0; k < names.size(); k++) {
+                String value = m.group(k + 1);
+                String prev = bound.putIfAbsent(names.get(k), value);
+                if (prev != null && !prev.equals(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final Pattern VAR = Pattern.compile("\\?(\\w+)");
+
+    // ops that only write their first arg, from their second
+    private static final Set<String> LOADS =
+        new HashSet<String>(Arrays.asList("li", "la", "lw", "move"));
+
+    private static final String PUSH_R = "sw ?r, 0($sp)";
+    private static final String POP_R = "lw ?r, 4($sp)";
+    private static final String POP_S = "lw ?s, 4($sp)";
+    private static final String GROW = "subu $sp, $sp, 4";
+    private static final String SHRINK = "addu $sp, $sp, 4";
+
+    static final Rule[] RULES = {
+        new Rule("push and pop of the same register")
+            .match(PUSH_R, GROW, POP_R, SHRINK)
+            .replace(),
+        new Rule("push then pop into another register")
+            .match(PUSH_R, GROW, POP_S, SHRINK)
+            .replace("move ?s, ?r"),
+        // r is saved and restored around a load whose value is only moved
+        // to s, so it can be loaded into s; x still sees the same r, but
+        // not the same $sp
+        new Rule("push around a load")
+            .match(PUSH_R, GROW, "?op ?r, ?x", "move ?s, ?r", POP_R, SHRINK)
+            .replace("?op ?s, ?x")
+            .when(m -> LOADS.contains(m.get("op")) && !m.get("x").contains("$sp")),
+        new Rule("load of the register just stored")
+            .match("sw ?r, ?m", "lw ?r, ?m")
+            .replace("sw ?r, ?m"),
+        new Rule("load of the value just stored")
+            .match("sw ?r, ?m", "lw ?s, ?m")
+            .replace("sw ?r, ?m", "move ?s, ?r"),
+        new Rule("move to itself")
+            .match("move ?r, ?r")
+            .replace(),
+        new Rule("branch to the next line")
+            .match("b ?L", "?L:")
+            .replace("?L:"),
+        new Rule("branch after a branch")
+            .match("b ?L", "b ?M")
+            .replace("b ?L"),
+        new Rule("beq over a branch")
+            .match("beq ?a, ?b, ?L", "b ?M", "?L:")
+            .replace("bne ?a, ?b, ?M", "?L:"),
+        new Rule("bne over a branch")
+            .match("bne ?a, ?b, ?L", "b ?M", "?L:")
+            .replace("beq ?a, ?b, ?M", "?L:"),
+    };
+
+    // the rules, by the first word of their last line
+    private static final Map<String, List<Rule>> RULES_BY_LAST =
+        new HashMap<String, List<Rule>>();
+    static {
+        for (Rule rule : RULES) {
+            RULES_BY_LAST.computeIfAbsent(rule.lastWord(), x -> new ArrayList<Rule>())
+                .add(rule);
+        }
+    }
+
+    /**
+     * Returns the given code of a function with the rules applied until
+     * none applies.
+     */
+    static List<Insn> optimize(List<Insn> insns) {
+        ArrayList<Insn> out = new ArrayList<Insn>(insns.size());
+        for (Insn insn : insns) {
+            out.add(insn);
+            while (!out.isEmpty() && rewriteEnd(out)) {
+                // keep going
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Applies the first rule that matches the lines at the end of out.
+     * @return true if a rule was applied
+     */
+    private static boolean rewriteEnd(ArrayList<Insn> out) {
+        List<Rule> rules = RULES_BY_LAST.get(word(out.get(out.size() - 1)));
+        if (rules == null) {
+            return false;
+        }
+        for (Rule rule : rules) {
+            int n = rule.pattern.length;
+            int start = out.size() - n;
+            if (start < 0) {
+                continue;
+            }
+            Map<String, String> bound = new HashMap<String, String>();
+            boolean matched = true;
+            for (int k = 0; k < n && matched; k++) {
+                matched = rule.pattern[k].match(out.get(start + k).key(), bound);
+            }
+            if (!matched || !rule.guard.test(bound)) {
+                continue;
+            }
+            List<Insn> replacement = new ArrayList<Insn>();
+            for (String line : rule.replacement) {
+                replacement.add(instantiate(rule, line, bound, out, start));
+            }
+            out.subList(start, out.size()).clear();
+            out.addAll(replacement);
+            return true;
+        }
+        return false;
+    }
+
+    private static Insn instantiate(Rule rule, String line, Map<String, String> bound,
+                                    List<Insn> out, int start) {
+        for (int k = 0; k < rule.pattern.length; k++) {
+            if (rule.pattern[k].text.equals(line)) {
+                return out.get(start + k);
+            }
+        }
+        Matcher m = VAR.matcher(line);
+        StringBuffer sb = new StringBuffer();
+        while (m.find()) {
+            m.appendReplacement(sb, Matcher.quoteReplacement(bound.get(m.group(1))));
+        }
+        m.appendTail(sb);
+        return parse(sb.toString());
+    }
+
+    /**
+     * Returns the Insn for a line written as "op a, b" or "L:".
+     */
+    private static Insn parse(String line) {
+        if (line.endsWith(":")) {
+            return Insn.label(line.substring(0, line.length() - 1), "");
+        }
+        int space = line.indexOf(' ');
+        if (space < 0) {
+            return Insn.insn(line, "");
+        }
+        return Insn.insn(line.substring(0, space), "",
+                         line.substring(space + 1).split(", "));
+    }
+
+    // the word rules are found by: the op code, or ":" for a label
+    private static String word(Insn insn) {
+        if (insn.isLabel()) {
+            return ":";
+        }
+        if (insn.isInsn() && insn.label == null) {
+            return insn.opcode;
+        }
+        return "";
+    }
+
+    private static String firstWord(String line) {
+        if (line.endsWith(":")) {
+            return ":";
+        }
+        int space = line.indexOf(' ');
+        return space < 0 ? line : line.substring(0, space);
+    }
+}
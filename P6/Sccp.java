@@ -0,0 +1,258 @@
+import java.util.*;
+
+/**
+ * The Sccp class runs sparse conditional constant propagation (Wegman and
+ * Zadeck, "Constant Propagation with Conditional Branches") on the IR of
+ * a function in SSA form (see Ssa).
+ *
+ * Each temp starts out as "no value yet" and can only go down to a
+ * constant and then to "not constant"; only the edges and blocks found to
+ * be executable are looked at, so a constant branch condition keeps the
+ * code it skips from spoiling the values after it.  Then the temps found
+ * constant are replaced by their values, the instructions that computed
+ * them are removed, a branch whose outcome is known becomes a jump, and
+ * the blocks that are never executed are removed.  Last, the instructions
+ * whose values are not used are removed.
+ */
+class Sccp {
+    private static final int NONE = 0;       // no value yet
+    private static final int CONST = 1;
+    private static final int VARIES = 2;     // not constant
+
+    private IrFunction fn;
+    private int[] state;
+    private int[] value;
+
+    private Map<IrInsn, IrBlock> blockOf = new HashMap<IrInsn, IrBlock>();
+    private List<List<IrInsn>> uses = new ArrayList<List<IrInsn>>();
+
+    private Set<IrBlock> reached = new HashSet<IrBlock>();
+    private Map<IrBlock, Set<IrBlock>> executed = new HashMap<IrBlock, Set<IrBlock>>();
+
+    private Deque<IrBlock[]> edgeWork = new ArrayDeque<IrBlock[]>();
+    private Deque<IrInsn> insnWork = new ArrayDeque<IrInsn>();
+
+    private Sccp(IrFunction fn) {
+        this.fn = fn;
+        state = new int[fn.numTemps()];
+        value = new int[fn.numTemps()];
+        for (int t = 0; t < fn.numTemps(); t++) {
+            uses.add(new ArrayList<IrInsn>());
+        }
+    }
+
+    /**
+     * Propagate the constants of the given function, which is in SSA form
+     * with its edges computed.
+     */
+    public static void run(IrFunction fn) {
+        Sccp sccp = new Sccp(fn);
+        sccp.propagate();
+        sccp.rewrite();
+        fn.computeEdges();
+        removeUnused(fn);
+    }
+
+    private void propagate() {
+        // a temp that is never assigned is a formal or a local read before
+        // it is assigned, so it can have any value
+        Arrays.fill(state, VARIES);
+        for (IrBlock block : fn.blocks) {
+            executed.put(block, new HashSet<IrBlock>());
+            for (IrInsn insn : block.insns) {
+                blockOf.put(insn, block);
+                if (insn.dst != null) {
+                    state[insn.dst.num] = NONE;
+                }
+                for (IrValue arg : insn.args) {
+                    if (arg.isTemp()) {
+                        uses.get(arg.num).add(insn);
+                    }
+                }
+            }
+        }
+
+        edgeWork.add(new IrBlock[] { null, fn.blocks.get(0) });
+        while (!edgeWork.isEmpty() || !insnWork.isEmpty()) {
+            if (!edgeWork.isEmpty()) {
+                IrBlock[] edge = edgeWork.pop();
+                IrBlock block = edge[1];
+                if (edge[0] != null && !executed.get(edge[0]).add(block)) {
+                    continue;
+                }
+                boolean first = reached.add(block);
+                for (IrInsn insn : block.insns) {
+                    if (first || insn.isPhi()) {
+                        visit(insn);
+                    }
+                }
+            } else {
+                IrInsn insn = insnWork.pop();
+                if (reached.contains(blockOf.get(insn))) {
+                    visit(insn);
+                }
+            }
+        }
+    }
+
+    private void visit(IrInsn insn) {
+        if (insn.isPhi()) {
+            IrBlock block = blockOf.get(insn);
+            int newState = NONE;
+            int newValue = 0;
+            for (int k = 0; k < insn.args.length && newState != VARIES; k++) {
+                if (!executed.get(insn.from[k]).contains(block)) {
+                    continue;
+                }
+                IrValue arg = insn.args[k];
+                int argState = stateOf(arg);
+                if (argState == VARIES
+                    || argState == CONST && newState == CONST && valueOf(arg) != newValue) {
+                    newState = VARIES;
+                } else if (argState == CONST) {
+                    newState = CONST;
+                    newValue = valueOf(arg);
+                }
+            }
+            set(insn.dst, newState, newValue);
+        } else if (insn.isBranch()) {
+            IrBlock block = blockOf.get(insn);
+            int a = stateOf(insn.args[0]);
+            int b = stateOf(insn.args[1]);
+            if (a == CONST && b == CONST) {
+                boolean taken = IrInsn.branchTaken(insn.op, valueOf(insn.args[0]),
+                                                   valueOf(insn.args[1]));
+                edgeWork.add(new IrBlock[] { block, insn.targets[taken ? 0 : 1] });
+            } else if (a == VARIES || b == VARIES) {
+                for (IrBlock target : insn.targets) {
+                    edgeWork.add(new IrBlock[] { block, target });
+                }
+            }
+        } else if (insn.targets != null) {
+            edgeWork.add(new IrBlock[] { blockOf.get(insn), insn.targets[0] });
+        } else if (insn.dst != null) {
+            Integer result = null;
+            int newState = CONST;
+            if (insn.isPure() && !insn.op.equals(IrInsn.LOAD)) {
+                int[] args = new int[insn.args.length];
+                for (int k = 0; k < args.length; k++) {
+                    newState = Math.max(newState, stateOf(insn.args[k]));
+                    args[k] = valueOf(insn.args[k]);
+                }
+                if (newState == CONST) {
+                    result = IrInsn.evaluate(insn.op, args);
+                }
+            }
+            if (newState == NONE) {
+                set(insn.dst, NONE, 0);
+            } else if (result == null) {
+                set(insn.dst, VARIES, 0);
+            } else {
+                set(insn.dst, CONST, result);
+            }
+        }
+    }
+
+    private void set(IrValue temp, int newState, int newValue) {
+        if (state[temp.num] != newState) {
+            state[temp.num] = newState;
+            value[temp.num] = newValue;
+            insnWork.addAll(uses.get(temp.num));
+        }
+    }
+
+    private int stateOf(IrValue arg) {
+        if (arg.isTemp()) {
+            return state[arg.num];
+        }
+        return arg.isConst() ? CONST : VARIES;
+    }
+
+    private int valueOf(IrValue arg) {
+        return arg.isTemp() ? value[arg.num] : arg.num;
+    }
+
+    private void rewrite() {
+        for (IrBlock block : fn.blocks) {
+            if (!reached.contains(block)) {
+                continue;
+            }
+            ListIterator<IrInsn> it = block.insns.listIterator();
+            while (it.hasNext()) {
+                IrInsn insn = it.next();
+                if (insn.dst != null && state[insn.dst.num] == CONST) {
+                    it.remove();
+                    continue;
+                }
+                for (int k = 0; k < insn.args.length; k++) {
+                    IrValue arg = insn.args[k];
+                    if (arg.isTemp() && state[arg.num] == CONST) {
+                        insn.args[k] = IrValue.constant(value[arg.num]);
+                    }
+                }
+                if (insn.isPhi()) {
+                    removeDeadArgs(insn, block);
+                } else if (insn.isBranch() && executed.get(block).size() == 1) {
+                    IrInsn jump = new IrInsn(IrInsn.JUMP, null);
+                    jump.targets = new IrBlock[] { executed.get(block).iterator().next() };
+                    it.set(jump);
+                }
+            }
+        }
+    }
+
+    // remove the args of the phi coming from edges that are not executed,
+    // and make it a move if there is only one left
+    private void removeDeadArgs(IrInsn phi, IrBlock block) {
+        List<IrValue> args = new ArrayList<IrValue>();
+        List<IrBlock> from = new ArrayList<IrBlock>();
+        for (int k = 0; k < phi.args.length; k++) {
+            if (executed.get(phi.from[k]).contains(block)) {
+                args.add(phi.args[k]);
+                from.add(phi.from[k]);
+            }
+        }
+        phi.args = args.toArray(new IrValue[0]);
+        phi.from = from.toArray(new IrBlock[0]);
+        if (phi.args.length == 1) {
+            phi.op = IrInsn.MOVE;
+            phi.from = null;
+        }
+    }
+
+    /**
+     * Remove the instructions of the given function that only compute
+     * values that are not used.
+     */
+    public static void removeUnused(IrFunction fn) {
+        int[] useCount = new int[fn.numTemps()];
+        Map<IrInsn, IrBlock> blockOf = new HashMap<IrInsn, IrBlock>();
+        Map<IrValue, IrInsn> def = new HashMap<IrValue, IrInsn>();
+        for (IrBlock block : fn.blocks) {
+            for (IrInsn insn : block.insns) {
+                blockOf.put(insn, block);
+                if (insn.dst != null) {
+                    def.put(insn.dst, insn);
+                }
+                for (IrValue arg : insn.args) {
+                    if (arg.isTemp()) {
+                        useCount[arg.num]++;
+                    }
+                }
+            }
+        }
+        Deque<IrInsn> work = new ArrayDeque<IrInsn>(def.values());
+        while (!work.isEmpty()) {
+            IrInsn insn = work.pop();
+            if (!insn.isPure() || useCount[insn.dst.num] > 0
+                || !blockOf.get(insn).insns.remove(insn)) {
+                continue;
+            }
+            for (IrValue arg : insn.args) {
+                if (arg.isTemp() && --useCount[arg.num] == 0 && def.containsKey(arg)) {
+                    work.push(def.get(arg));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+import java.util.*;
+
+/**
+ * The Ssa class puts the IR of a function into SSA form and takes it out
+ * again (see Ir.java).
+ *
+ * build computes the dominator tree with the algorithm of Cooper, Harvey
+ * and Kennedy ("A Simple, Fast Dominance Algorithm"), places phis at the
+ * iterated dominance frontiers of the blocks that assign a temp, for the
+ * temps that are used in a block other than the one they are assigned in
+ * (semi-pruned SSA), and renames the temps on a walk of the dominator
+ * tree.  A temp read where no assignment reaches it (a local that was
+ * never assigned) keeps its old name.
+ *
+ * destroy replaces each phi with a copy of a new temp, which each
+ * predecessor assigns the value coming from it just before its branch or
+ * jump.  Since that temp is only read by the phi, this is correct on
+ * every edge, including critical ones, and keeps the phis of a block
+ * parallel.
+ */
+class Ssa {
+    private IrFunction fn;
+
+    // blocks in reverse postorder, and the number of each in it
+    private List<IrBlock> order = new ArrayList<IrBlock>();
+    private Map<IrBlock, Integer> number = new HashMap<IrBlock, Integer>();
+
+    // immediate dominator, children in the dominator tree and dominance
+    // frontier of each block, by number
+    private int[] idom;
+    private List<List<IrBlock>> children = new ArrayList<List<IrBlock>>();
+    private List<Set<IrBlock>> frontier = new ArrayList<Set<IrBlock>>();
+
+    private static final IrBlock END = new IrBlock();
+
+    private Ssa(IrFunction fn) {
+        this.fn = fn;
+    }
+
+    /**
+     * Put the given function, whose edges are computed, into SSA form.
+     */
+    public static void build(IrFunction fn) {
+        if (!fn.blocks.get(0).preds.isEmpty()) {
+            // a loop back to the entry: the phis there would have no
+            // value coming from outside the function
+            IrBlock entry = new IrBlock();
+            IrInsn jump = new IrInsn(IrInsn.JUMP, null);
+            jump.targets = new IrBlock[] { fn.blocks.get(0) };
+            entry.insns.add(jump);
+            fn.blocks.add(0, entry);
+            fn.computeEdges();
+        }
+        Ssa ssa = new Ssa(fn);
+        ssa.computeDominators();
+        ssa.rename(ssa.placePhis());
+    }
+
+    /**
+     * Take the given function out of SSA form.
+     */
+    public static void destroy(IrFunction fn) {
+        for (IrBlock block : fn.blocks) {
+            for (IrInsn insn : block.insns) {
+                if (!insn.isPhi()) {
+                    break;
+                }
+                IrValue temp = fn.newTemp(fn.tempName(insn.dst));
+                for (int k = 0; k < insn.args.length; k++) {
+                    List<IrInsn> insns = insn.from[k].insns;
+                    insns.add(insns.size() - 1, new IrInsn(IrInsn.MOVE, temp, insn.args[k]));
+                }
+                insn.op = IrInsn.MOVE;
+                insn.args = new IrValue[] { temp };
+                insn.from = null;
+            }
+        }
+    }
+
+    private void computeDominators() {
+        // reverse postorder, by a depth-first search without recursion
+        List<IrBlock> post = new ArrayList<IrBlock>();
+        Set<IrBlock> seen = new HashSet<IrBlock>();
+        Deque<IrBlock> blocks = new ArrayDeque<IrBlock>();
+        Deque<Iterator<IrBlock>> succs = new ArrayDeque<Iterator<IrBlock>>();
+        IrBlock entry = fn.blocks.get(0);
+        seen.add(entry);
+        blocks.push(entry);
+        succs.push(entry.succs.iterator());
+        while (!blocks.isEmpty()) {
+            if (succs.peek().hasNext()) {
+                IrBlock succ = succs.peek().next();
+                if (seen.add(succ)) {
+                    blocks.push(succ);
+                    succs.push(succ.succs.iterator());
+                }
+            } else {
+                post.add(blocks.pop());
+                succs.pop();
+            }
+        }
+        for (int k = post.size() - 1; k >= 0; k--) {
+            number.put(post.get(k), order.size());
+            order.add(post.get(k));
+        }
+
+        idom = new int[order.size()];
+        Arrays.fill(idom, -1);
+        idom[0] = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int b = 1; b < order.size(); b++) {
+                int newIdom = -1;
+                for (IrBlock pred : order.get(b).preds) {
+                    int p = number.get(pred);
+                    if (idom[p] != -1) {
+                        newIdom = newIdom == -1 ? p : intersect(p, newIdom);
+                    }
+                }
+                if (idom[b] != newIdom) {
+                    idom[b] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+
+        for (int b = 0; b < order.size(); b++) {
+            children.add(new ArrayList<IrBlock>());
+            frontier.add(new HashSet<IrBlock>());
+        }
+        for (int b = 1; b < order.size(); b++) {
+            children.get(idom[b]).add(order.get(b));
+        }
+        for (int b = 0; b < order.size(); b++) {
+            IrBlock block = order.get(b);
+            if (block.preds.size() < 2) {
+                continue;
+            }
+            for (IrBlock pred : block.preds) {
+                int runner = number.get(pred);
+                while (runner != idom[b]) {
+                    frontier.get(runner).add(block);
+                    runner = idom[runner];
+                }
+            }
+        }
+    }
+
+    // closest common dominator of the blocks with the given numbers
+    private int intersect(int b1, int b2) {
+        while (b1 != b2) {
+            while (b1 > b2) {
+                b1 = idom[b1];
+            }
+            while (b2 > b1) {
+                b2 = idom[b2];
+            }
+        }
+        return b1;
+    }
+
+    /**
+     * Add the phis, and return the temp each phi is for.
+     */
+    private Map<IrInsn, IrValue> placePhis() {
+        // the blocks that assign each temp, and the temps that are used in
+        // a block before it assigns them
+        Map<IrValue, Set<IrBlock>> defBlocks = new HashMap<IrValue, Set<IrBlock>>();
+        Set<IrValue> global = new HashSet<IrValue>();
+        for (IrValue param : fn.params) {
+            defBlocks.put(param, new HashSet<IrBlock>(Arrays.asList(order.get(0))));
+        }
+        for (IrBlock block : order) {
+            Set<IrValue> defined = new HashSet<IrValue>();
+            for (IrInsn insn : block.insns) {
+                for (IrValue arg : insn.args) {
+                    if (arg.isTemp() && !defined.contains(arg)) {
+                        global.add(arg);
+                    }
+                }
+                if (insn.dst != null) {
+                    defined.add(insn.dst);
+                    if (!defBlocks.containsKey(insn.dst)) {
+                        defBlocks.put(insn.dst, new HashSet<IrBlock>());
+                    }
+                    defBlocks.get(insn.dst).add(block);
+                }
+            }
+        }
+
+        Map<IrInsn, IrValue> phiTemps = new HashMap<IrInsn, IrValue>();
+        for (IrValue temp : global) {
+            Set<IrBlock> defs = defBlocks.get(temp);
+            if (defs == null) {
+                continue;
+            }
+            Set<IrBlock> hasPhi = new HashSet<IrBlock>();
+            Deque<IrBlock> work = new ArrayDeque<IrBlock>(defs);
+            while (!work.isEmpty()) {
+                for (IrBlock block : frontier.get(number.get(work.pop()))) {
+                    if (hasPhi.add(block)) {
+                        IrValue[] args = new IrValue[block.preds.size()];
+                        Arrays.fill(args, temp);
+                        IrInsn phi = new IrInsn(IrInsn.PHI, temp, args);
+                        phi.from = block.preds.toArray(new IrBlock[0]);
+                        block.insns.add(0, phi);
+                        phiTemps.put(phi, temp);
+                        if (!defs.contains(block)) {
+                            work.push(block);
+                        }
+                    }
+                }
+            }
+        }
+        return phiTemps;
+    }
+
+    /**
+     * Give each assignment a new temp, and make each use refer to the temp
+     * of the assignment that reaches it.
+     */
+    private void rename(Map<IrInsn, IrValue> phiTemps) {
+        // current name of each renamed temp
+        Map<IrValue, Deque<IrValue>> names = new HashMap<IrValue, Deque<IrValue>>();
+        for (IrValue param : fn.params) {
+            names.put(param, new ArrayDeque<IrValue>(Arrays.asList(param)));
+        }
+
+        // the walk of the dominator tree, without recursion; END marks the
+        // end of the subtree of the block below it, whose names are popped
+        // there
+        Deque<IrBlock> work = new ArrayDeque<IrBlock>();
+        Deque<List<IrValue>> pushed = new ArrayDeque<List<IrValue>>();
+        work.push(order.get(0));
+        while (!work.isEmpty()) {
+            IrBlock block = work.pop();
+            if (block == END) {
+                for (IrValue temp : pushed.pop()) {
+                    names.get(temp).pop();
+                }
+                continue;
+            }
+            List<IrValue> defined = new ArrayList<IrValue>();
+            for (IrInsn insn : block.insns) {
+                if (!insn.isPhi()) {
+                    for (int k = 0; k < insn.args.length; k++) {
+                        insn.args[k] = currentName(names, insn.args[k]);
+                    }
+                }
+                if (insn.dst != null) {
+                    IrValue temp = insn.isPhi() ? phiTemps.get(insn) : insn.dst;
+                    if (!names.containsKey(temp)) {
+                        names.put(temp, new ArrayDeque<IrValue>());
+                    }
+                    insn.dst = fn.newTemp(fn.tempName(temp));
+                    names.get(temp).push(insn.dst);
+                    defined.add(temp);
+                }
+            }
+            for (IrBlock succ : block.succs) {
+                for (IrInsn insn : succ.insns) {
+                    if (!insn.isPhi()) {
+                        break;
+                    }
+                    int k = Arrays.asList(insn.from).indexOf(block);
+                    insn.args[k] = currentName(names, phiTemps.get(insn));
+                }
+            }
+            work.push(END);
+            pushed.push(defined);
+            for (IrBlock child : children.get(number.get(block))) {
+                work.push(child);
+            }
+        }
+    }
+
+    private static IrValue currentName(Map<IrValue, Deque<IrValue>> names, IrValue value) {
+        Deque<IrValue> stack = names.get(value);
+        return stack == null || stack.isEmpty() ? value : stack.peek();
+    }
+}
@@ -0,0 +1,222 @@
+import java.util.*;
+
+/**
+ * The StrengthReducer class generates the code of a multiply or divide by
+ * a constant without mult or div where it can, since those take many
+ * cycles before the result can be read from LO or HI (see
+ * TimesNode.codeGenReg, DivideNode.codeGenReg and IrEmitter).
+ *
+ * A multiply by a constant that is the sum or difference of at most two
+ * powers of two (in its non-adjacent form, see terms) becomes shifts and
+ * an add or subtract, if that takes no more instructions than loading the
+ * constant and multiplying.
+ *
+ * A divide by a power of two becomes an arithmetic shift right, after the
+ * dividend is rounded toward zero by adding 2^k - 1 to it if it is
+ * negative.  A divide by any other constant becomes a multiply by its
+ * magic number, keeping the high word (see Hacker's Delight, section
+ * 10-4), with the same fix-ups: the quotient is corrected by the dividend
+ * when the magic number does not fit in 31 bits, shifted, and rounded
+ * toward zero by adding 1 if the dividend is negative.  A divide by a
+ * negative constant is the negation of the divide by its absolute value.
+ * A divide by zero or by -2^31 is left to div.
+ *
+ * Codegen.SPILL is used as a scratch register: the code is generated
+ * after both operands of an operation are evaluated, so it holds nothing.
+ */
+class StrengthReducer {
+    // most instructions a multiply is replaced with: as many as loading
+    // the constant, mult and mflo
+    private static final int MAX_MULTIPLY_OPS = 3;
+
+    /**
+     * Generate the code that leaves src * value in dst (which can be the
+     * same register as src).
+     */
+    public static void multiply(String dst, String src, int value) {
+        if (value == 0) {
+            Codegen.generate("li", dst, 0);
+            return;
+        }
+        int[] terms = terms(value);
+        if (terms.length > 2 || multiplyOps(terms) > MAX_MULTIPLY_OPS) {
+            Codegen.generate("li", Codegen.SPILL, value);
+            Codegen.generate("mult", src, Codegen.SPILL);
+            Codegen.generate("mflo", dst);
+            return;
+        }
+        if (terms.length == 1) {
+            String reg = shift(dst, src, shiftOf(terms[0]));
+            if (terms[0] < 0) {
+                Codegen.generate("negu", dst, reg);
+            } else if (!reg.equals(dst)) {
+                Codegen.generate("move", dst, reg);
+            }
+            return;
+        }
+        // the first term has the larger shift, so it is not src itself;
+        // it goes in SPILL so that src is still there for the second
+        String first = shift(Codegen.SPILL, src, shiftOf(terms[0]));
+        String second = shift(dst, src, shiftOf(terms[1]));
+        if (terms[0] > 0) {
+            Codegen.generate(terms[1] > 0 ? "addu" : "subu", dst, first, second);
+        } else if (terms[1] > 0) {
+            Codegen.generate("subu", dst, second, first);
+        } else {
+            Codegen.generate("addu", dst, first, second);
+            Codegen.generate("negu", dst, dst);
+        }
+    }
+
+    /**
+     * Generate the code that leaves src / value in dst (which can be the
+     * same register as src), rounded toward zero as div does.  temp is a
+     * register that can be used besides Codegen.SPILL, or null if there
+     * is none.
+     */
+    public static void divide(String dst, String src, int value, String temp) {
+        if (value == 0 || value == Integer.MIN_VALUE) {
+            Codegen.generate("li", Codegen.SPILL, value);
+            Codegen.generate("div", src, Codegen.SPILL);
+            Codegen.generate("mflo", dst);
+            return;
+        }
+        int abs = Math.abs(value);
+        if ((abs & (abs - 1)) == 0) {
+            int k = Integer.numberOfTrailingZeros(abs);
+            if (k == 0) {
+                // dividing by 1 or -1
+            } else if (k == 1) {
+                Codegen.generate("srl", Codegen.SPILL, src, 31);
+            } else {
+                Codegen.generate("sra", Codegen.SPILL, src, 31);
+                Codegen.generate("srl", Codegen.SPILL, Codegen.SPILL, 32 - k);
+            }
+            String reg = src;
+            if (k > 0) {
+                Codegen.generate("addu", dst, src, Codegen.SPILL);
+                Codegen.generate("sra", dst, dst, k);
+                reg = dst;
+            }
+            if (value < 0) {
+                Codegen.generate("negu", dst, reg);
+            } else if (!reg.equals(dst)) {
+                Codegen.generate("move", dst, reg);
+            }
+            return;
+        }
+        // the quotient is built in a register other than src, which is
+        // still needed
+        String quot = dst.equals(src) ? temp : dst;
+        if (quot == null) {
+            Codegen.generate("li", Codegen.SPILL, value);
+            Codegen.generate("div", src, Codegen.SPILL);
+            Codegen.generate("mflo", dst);
+            return;
+        }
+        int[] magic = magic(abs);
+        Codegen.generate("li", Codegen.SPILL, magic[0]);
+        Codegen.generate("mult", src, Codegen.SPILL);
+        Codegen.generate("mfhi", quot);
+        if (magic[0] < 0) {
+            Codegen.generate("addu", quot, quot, src);
+        }
+        if (magic[1] > 0) {
+            Codegen.generate("sra", quot, quot, magic[1]);
+        }
+        Codegen.generate("srl", Codegen.SPILL, src, 31);
+        Codegen.generate("addu", dst, quot, Codegen.SPILL);
+        if (value < 0) {
+            Codegen.generate("negu", dst, dst);
+        }
+    }
+
+    /**
+     * Return the terms of value in its non-adjacent form, largest first:
+     * each is 1 + the shift of a power of two, negated if the power of two
+     * is subtracted.  No two powers of two are next to each other, so
+     * there are as few terms as there can be.
+     */
+    private static int[] terms(int value) {
+        // the digits, from the lowest, of value as a 32-bit word
+        int[] digits = new int[33];
+        int numTerms = 0;
+        long rest = value & 0xFFFFFFFFL;
+        for (int k = 0; rest != 0; k++) {
+            if ((rest & 1) != 0) {
+                digits[k] = (rest & 3) == 3 ? -1 : 1;
+                rest -= digits[k];
+                numTerms++;
+            }
+            rest >>= 1;
+        }
+        int[] terms = new int[numTerms];
+        int n = 0;
+        // a power of two of 2^32 or more does not change a 32-bit product
+        for (int k = 31; k >= 0; k--) {
+            if (digits[k] != 0) {
+                terms[n++] = digits[k] * (k + 1);
+            }
+        }
+        return Arrays.copyOf(terms, n);
+    }
+
+    private static int shiftOf(int term) {
+        return Math.abs(term) - 1;
+    }
+
+    // number of instructions multiply generates for the given terms
+    private static int multiplyOps(int[] terms) {
+        int ops = terms.length - 1;
+        boolean allNegative = true;
+        for (int term : terms) {
+            if (shiftOf(term) > 0) {
+                ops++;
+            }
+            allNegative &= term < 0;
+        }
+        return allNegative ? ops + 1 : ops;
+    }
+
+    // shift src left into dst and return dst, or return src if there is no
+    // shift
+    private static String shift(String dst, String src, int shift) {
+        if (shift == 0) {
+            return src;
+        }
+        Codegen.generate("sll", dst, src, shift);
+        return dst;
+    }
+
+    /**
+     * Return the magic number and shift for a signed divide by d, which is
+     * at least 3 and not a power of two (Hacker's Delight, figure 10-1).
+     */
+    private static int[] magic(int d) {
+        final long two31 = 0x80000000L;
+        long anc = two31 - 1 - two31 % d;
+        int p = 31;
+        long q1 = two31 / anc;
+        long r1 = two31 - q1 * anc;
+        long q2 = two31 / d;
+        long r2 = two31 - q2 * d;
+        long delta;
+        do {
+            p++;
+            q1 *= 2;
+            r1 *= 2;
+            if (r1 >= anc) {
+                q1++;
+                r1 -= anc;
+            }
+            q2 *= 2;
+            r2 *= 2;
+            if (r2 >= d) {
+                q2++;
+                r2 -= d;
+            }
+            delta = d - r2;
+        } while (q1 < delta || (q1 == delta && r1 == 0));
+        return new int[] { (int)(q2 + 1), p - 32 };
+    }
+}
@@ -6,12 +6,16 @@ import java.util.*;
  */
 public class Sym {
     private Type type;
-    private static int localInitOffset = -8;
     // if offset is 1 then it is global var
     private int offset = 0;
+    // register the variable is kept in instead (see FnDeclNode), or null
+    private String register = null;
+    // uses of the variable, each weighted by the loops around it
+    private long useWeight = 0;
     
     public Sym(Type type) {
         this.type = type;
+        Compilation.current().numSyms++;
     }
     
     public Type getType() {
@@ -34,11 +38,60 @@ public class Sym {
     public void setOffset(int offset) {
         this.offset = offset;
     }
+
+    public String getRegister() {
+        return register;
+    }
+
+    public void setRegister(String register) {
+        this.register = register;
+    }
+
+    public long getUseWeight() {
+        return useWeight;
+    }
+
+    /**
+     * Count one use of the variable: 1 outside loops, 10 in one loop, 100
+     * in two, and so on (up to 6 loops deep).
+     */
+    public void addUse() {
+        useWeight += useWeight(Compilation.current().loopDepth);
+    }
+
+    /**
+     * Take back one use of the variable counted by addUse at the current
+     * loop depth (see Licm.hoist).
+     */
+    public void removeUse() {
+        useWeight = Math.max(0, useWeight - useWeight(Compilation.current().loopDepth));
+    }
+
+    private static long useWeight(int loopDepth) {
+        long weight = 1;
+        for (int k = Math.min(loopDepth, 6); k > 0; k--) {
+            weight *= 10;
+        }
+        return weight;
+    }
+
+    /**
+     * Count the uses of the given variable as uses of this one, in the
+     * given number of loops more (see FnDeclNode.addInlined).
+     */
+    public void addUses(Sym sym, int loops) {
+        long weight = sym.useWeight;
+        for (int k = Math.min(loops, 6); k > 0; k--) {
+            weight *= 10;
+        }
+        useWeight += weight;
+    }
+    // the offset counter belongs to the current compilation
     public static int getLocalInitOffset() {
-	return Sym.localInitOffset;
+	return Compilation.current().localInitOffset;
     }
     public static void setLocalInitOffset(int offset) {
-	Sym.localInitOffset = offset;
+	Compilation.current().localInitOffset = offset;
     }
 
 }
@@ -57,7 +110,7 @@ class FnSym extends Sym {
     private int sizeLocals = 0;
     
     public FnSym(Type type, int numparams) {
-        super(new FnType());
+        super(Type.FN);
         returnType = type;
         numParams = numparams;
     }
@@ -119,7 +172,7 @@ class StructSym extends Sym {
     private IdNode structType;  // name of the struct type
     
     public StructSym(IdNode id) {
-        super(new StructType(id));
+        super(((StructDefSym)id.sym()).getStructType());
         structType = id;
     }
 
@@ -137,13 +190,19 @@ class StructSym extends Sym {
 class StructDefSym extends Sym {
     // new fields
     private SymTable symTab;
+    private StructType structType;  // the type of variables of this struct
     
-    public StructDefSym(SymTable table) {
-        super(new StructDefType());
+    public StructDefSym(SymTable table, IdNode id) {
+        super(Type.STRUCT_DEF);
         symTab = table;
+        structType = new StructType(id);
     }
 
     public SymTable getSymTable() {
         return symTab;
     }
+
+    public StructType getStructType() {
+        return structType;
+    }
 }
@@ -1,14 +1,59 @@
 import java.util.*;
 
+/**
+ * A symbol table with nested scopes, kept as a single table in the style
+ * of LeBlanc and Cook.  The table maps each name, by its id in the
+ * compilation's NamePool, to its innermost visible declaration; that
+ * declaration points to the one it shadows, so each name has its own chain
+ * of declarations, innermost first.
+ *
+ * The declarations made in each scope are recorded in an undo log, so
+ * removing a scope only touches the names declared in it, and looking a
+ * name up by id costs one array access however deeply the scopes are
+ * nested.  The methods that take a String find the name's id first.
+ */
 public class SymTable {
-    private List<HashMap<String, Sym>> list;
-    
+    /**
+     * One declaration of a name
+     */
+    private static class Entry {
+        int id;
+        Sym sym;
+        int scope;          // number of the scope it was declared in
+        Entry shadowed;     // declaration of the same name it hides, or null
+
+        Entry(int id, Sym sym, int scope, Entry shadowed) {
+            this.id = id;
+            this.sym = sym;
+            this.scope = scope;
+            this.shadowed = shadowed;
+        }
+    }
+
+    // pool that gives the ids of names
+    private NamePool names;
+
+    // innermost visible declaration of each name, by id; null if none
+    private Entry[] table;
+
+    // declarations in the order they were made; the ones of scope k start
+    // at scopeStart[k - 1]
+    private ArrayList<Entry> log;
+    private int[] scopeStart;
+
+    // number of scopes; the innermost one is numbered numScopes
+    private int numScopes;
+
     public SymTable() {
-        list = new LinkedList<HashMap<String, Sym>>();
-        list.add(new HashMap<String, Sym>());
+        names = Compilation.current().names;
+        table = new Entry[Math.max(16, names.size())];
+        log = new ArrayList<Entry>();
+        scopeStart = new int[8];
+        numScopes = 0;
+        addScope();
     }
-    
-    public void addDecl(String name, Sym sym) 
+
+    public void addDecl(String name, Sym sym)
 	throws DuplicateSymException, EmptySymTableException, WrongArgumentException {
 	if (name == null && sym == null) {
 	    throw new WrongArgumentException("Arguments name and sym are null.");
@@ -16,60 +61,103 @@ public class SymTable {
 	else if (name == null) {
 	    throw new WrongArgumentException("Argument name is null.");
 	}
+
+        addDecl(names.intern(name), sym);
+    }
+
+    public void addDecl(int id, Sym sym)
+	throws DuplicateSymException, EmptySymTableException, WrongArgumentException {
+	if (id < 0) {
+	    throw new WrongArgumentException("Argument id is negative.");
+	}
 	else if (sym == null) {
 	    throw new WrongArgumentException("Argument sym is null.");
 	}
-               
-        if (list.isEmpty()) {
+
+        if (numScopes == 0) {
             throw new EmptySymTableException();
         }
-	
-        HashMap<String, Sym> symTab = list.get(0);
-        if (symTab.containsKey(name))
+
+        if (id >= table.length) {
+            table = Arrays.copyOf(table, Math.max(2 * table.length, id + 1));
+        }
+        Entry visible = table[id];
+        if (visible != null && visible.scope == numScopes)
             throw new DuplicateSymException();
-        
-        symTab.put(name, sym);
+
+        Entry entry = new Entry(id, sym, numScopes, visible);
+        table[id] = entry;
+        log.add(entry);
     }
-    
+
     public void addScope() {
-        list.add(0, new HashMap<String, Sym>());
+        if (numScopes == scopeStart.length) {
+            scopeStart = Arrays.copyOf(scopeStart, 2 * numScopes);
+        }
+        scopeStart[numScopes++] = log.size();
+        Compilation.current().numScopes++;
     }
-    
+
     public Sym lookupLocal(String name) {
-        if (list.isEmpty())
+        return lookupLocal(names.find(name));
+    }
+
+    public Sym lookupLocal(int id) {
+        if (id < 0 || id >= table.length)
             return null;
-        
-        HashMap<String, Sym> symTab = list.get(0); 
-        return symTab.get(name);
+        Entry entry = table[id];
+        if (entry == null || entry.scope != numScopes)
+            return null;
+        return entry.sym;
     }
-    
+
     public Sym lookupGlobal(String name) {
-        if (list.isEmpty())
+        return lookupGlobal(names.find(name));
+    }
+
+    public Sym lookupGlobal(int id) {
+        if (id < 0 || id >= table.length)
             return null;
-        
-        for (HashMap<String, Sym> symTab : list) {
-            Sym sym = symTab.get(name);
-            if (sym != null)
-                return sym;
-        }
-        return null;
+        Entry entry = table[id];
+        if (entry == null)
+            return null;
+        return entry.sym;
     }
-    
+
     public void removeScope() throws EmptySymTableException {
-        if (list.isEmpty())
+        if (numScopes == 0)
             throw new EmptySymTableException();
-        list.remove(0);
+
+        // undo the declarations of the innermost scope, newest first
+        int start = scopeStart[--numScopes];
+        for (int k = log.size() - 1; k >= start; k--) {
+            Entry entry = log.remove(k);
+            table[entry.id] = entry.shadowed;
+        }
     }
-    
+
     public void print() {
         System.out.print("\n=== Sym Table ===\n");
-        for (HashMap<String, Sym> symTab : list) {
-            System.out.println(symTab.toString());
+        for (int k = numScopes - 1; k >= 0; k--) {
+            System.out.println(scopeMap(k).toString());
         }
         System.out.println();
     }
 
+    /**
+     * Returns the declarations of the scope at the given index (0 is the
+     * outermost) as a map, the way print shows them.
+     */
+    private HashMap<String, Sym> scopeMap(int index) {
+        HashMap<String, Sym> map = new HashMap<String, Sym>();
+        int end = index + 1 < numScopes ? scopeStart[index + 1] : log.size();
+        for (int k = scopeStart[index]; k < end; k++) {
+            map.put(names.name(log.get(k).id), log.get(k).sym);
+        }
+        return map;
+    }
+
     public int getNumScope() {
-        return this.list.size();
+        return numScopes;
     }
 }
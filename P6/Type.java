@@ -4,6 +4,20 @@
  */
 abstract public class Type {
 
+    /**
+     * the only instances of the types that have no parts; use these instead
+     * of making new ones.  There is one StructType per struct definition
+     * (see StructDefSym), so two types are equal only if they are the same
+     * object.
+     */
+    public static final Type ERROR = new ErrorType();
+    public static final Type INT = new IntType();
+    public static final Type BOOL = new BoolType();
+    public static final Type VOID = new VoidType();
+    public static final Type STRING = new StringType();
+    public static final Type FN = new FnType();
+    public static final Type STRUCT_DEF = new StructDefType();
+
     /**
      * default constructor
      */
@@ -11,10 +25,16 @@ abstract public class Type {
     }
 
     /**
-     * every subclass must provide a toString method and an equals method
+     * every subclass must provide a toString method
      */
     abstract public String toString();
-    abstract public boolean equals(Type t);
+
+    /**
+     * types are canonical, so equal types are the same object
+     */
+    public boolean equals(Type t) {
+        return this == t;
+    }
 
     /**
      * default methods for "isXXXType"
@@ -61,10 +81,6 @@ class ErrorType extends Type {
         return true;
     }
 
-    public boolean equals(Type t) {
-        return t.isErrorType();
-    }
-
     public String toString() {
         return "error";
     }
@@ -79,10 +95,6 @@ class IntType extends Type {
         return true;
     }
 
-    public boolean equals(Type t) {
-        return t.isIntType();
-    }
-
     public String toString() {
         return "int";
     }
@@ -97,10 +109,6 @@ class BoolType extends Type {
         return true;
     }
 
-    public boolean equals(Type t) {
-        return t.isBoolType();
-    }
-
     public String toString() {
         return "bool";
     }
@@ -115,10 +123,6 @@ class VoidType extends Type {
         return true;
     }
 
-    public boolean equals(Type t) {
-        return t.isVoidType();
-    }
-
     public String toString() {
         return "void";
     }
@@ -133,10 +137,6 @@ class StringType extends Type {
         return true;
     }
 
-    public boolean equals(Type t) {
-        return t.isStringType();
-    }
-
     public String toString() {
         return "String";
     }
@@ -151,10 +151,6 @@ class FnType extends Type {
         return true;
     }
 
-    public boolean equals(Type t) {
-        return t.isFnType();
-    }
-
     public String toString() {
         return "function";
     }
@@ -174,10 +170,6 @@ class StructType extends Type {
         return true;
     }
 
-    public boolean equals(Type t) {
-        return t.isStructType();
-    }
-
     public String toString() {
         return myId.name();
     }
@@ -192,10 +184,6 @@ class StructDefType extends Type {
         return true;
     }
 
-    public boolean equals(Type t) {
-        return t.isStructDefType();
-    }
-
     public String toString() {
         return "struct";
     }
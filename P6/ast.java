@@ -50,7 +50,7 @@ import java.util.*;
 //                                    DeclListNode, StmtListNode
 //       WhileStmtNode       ExpNode, DeclListNode, StmtListNode
 //       RepeatStmtNode      ExpNode, DeclListNode, StmtListNode
-//       CallStmtNode        CallExpNode
+//       CallStmtNode        CallExpNode (or InlineExpNode)
 //       ReturnStmtNode      ExpNode
 //
 //     ExpNode:
@@ -62,6 +62,8 @@ import java.util.*;
 //       DotAccessNode       ExpNode, IdNode
 //       AssignNode          ExpNode, ExpNode
 //       CallExpNode         IdNode, ExpListNode
+//       InlineExpNode       CallExpNode, linked list of IdNode,
+//                                    StmtListNode
 //       UnaryExpNode        ExpNode
 //         UnaryMinusNode
 //         NotNode
@@ -99,7 +101,8 @@ import java.util.*;
 //        UnaryExpNode,    BinaryExpNode,   UnaryMinusNode, NotNode,
 //        PlusNode,        MinusNode,       TimesNode,      DivideNode,
 //        AndNode,         OrNode,          EqualsNode,     NotEqualsNode,
-//        LessNode,        GreaterNode,     LessEqNode,     GreaterEqNode
+//        LessNode,        GreaterNode,     LessEqNode,     GreaterEqNode,
+//        InlineExpNode
 //
 // **********************************************************************
 
@@ -107,7 +110,24 @@ import java.util.*;
 // ASTnode class (base class for all other kinds of nodes)$
 // **********************************************************************
 
-abstract class ASTnode { 
+abstract class ASTnode implements Cloneable { 
+    // count the nodes of the current compilation
+    public ASTnode() {
+        Compilation.current().numNodes++;
+    }
+
+    // return a copy of this node that shares its kids, for the copy
+    // methods of the subclasses (see Inliner)
+    protected ASTnode shallowCopy() {
+        try {
+            return (ASTnode)clone();
+        } catch (CloneNotSupportedException ex) {
+            System.err.println("Unexpected CloneNotSupportedException in ASTnode.shallowCopy");
+            System.exit(-1);
+            return null;
+        }
+    }
+
     // every subclass must provide an unparse operation
     abstract public void unparse(PrintWriter p, int indent);
 
@@ -131,30 +151,118 @@ class ProgramNode extends ASTnode {
      * nameAnalysis
      * Creates an empty symbol table for the outermost scope, then processes
      * all of the globals, struct defintions, and functions in the program.
+     * The state of the analysis is kept in the given compilation.
      */
-    public void nameAnalysis() {
-        SymTable symTab = new SymTable();
-        // special offset to know this is global var
-        Sym.setLocalInitOffset(1);
-        myDeclList.nameAnalysis(symTab);
-        // check whether there is a main function
-        Sym mainSym = symTab.lookupLocal("main");
-        if(mainSym == null || !mainSym.getType().isFnType()) {
-            ErrMsg.fatal(0, 0, "No main function");
+    public void nameAnalysis(Compilation comp) {
+        Compilation prev = Compilation.bind(comp);
+        try {
+            SymTable symTab = new SymTable();
+            // special offset to know this is global var
+            Sym.setLocalInitOffset(1);
+            myDeclList.nameAnalysis(symTab);
+            // check whether there is a main function
+            Sym mainSym = symTab.lookupLocal(NamePool.MAIN);
+            if(mainSym == null || !mainSym.getType().isFnType()) {
+                ErrMsg.fatal(0, 0, "No main function");
+            }
+        } finally {
+            Compilation.bind(prev);
         }
     }
     
     /**
      * typeCheck
      */
-    public void typeCheck() {
-        myDeclList.typeCheck();
+    public void typeCheck(Compilation comp) {
+        Compilation prev = Compilation.bind(comp);
+        try {
+            myDeclList.typeCheck();
+        } finally {
+            Compilation.bind(prev);
+        }
+    }
+
+    /**
+     * fold
+     * Replaces the expressions whose value is known at compile time with
+     * literals and simplifies the others (see ExpNode.fold).
+     */
+    public void fold(Compilation comp) {
+        Compilation prev = Compilation.bind(comp);
+        try {
+            myDeclList.fold();
+        } finally {
+            Compilation.bind(prev);
+        }
+    }
+
+    /**
+     * removeDeadCode
+     * Removes the statements that can never run or have no effect (see
+     * FnDeclNode.removeDeadCode).
+     */
+    public void removeDeadCode(Compilation comp) {
+        Compilation prev = Compilation.bind(comp);
+        try {
+            myDeclList.removeDeadCode();
+        } finally {
+            Compilation.bind(prev);
+        }
+    }
+
+    /**
+     * inline
+     * Replaces the calls of small functions with copies of their bodies
+     * (see Inliner).
+     */
+    public void inline(Compilation comp) {
+        Compilation prev = Compilation.bind(comp);
+        try {
+            myDeclList.inline(new Inliner(comp));
+        } finally {
+            Compilation.bind(prev);
+        }
+    }
+
+    /**
+     * hoistInvariants
+     * Computes the values that do not change in a loop once before it
+     * (see Licm).
+     */
+    public void hoistInvariants(Compilation comp) {
+        Compilation prev = Compilation.bind(comp);
+        try {
+            myDeclList.hoistInvariants(new Licm());
+        } finally {
+            Compilation.bind(prev);
+        }
+    }
+
+    /**
+     * lower
+     * Return the IR of the program (see Ir.java).
+     */
+    public IrProgram lower(Compilation comp) {
+        Compilation prev = Compilation.bind(comp);
+        try {
+            IrProgram prog = new IrProgram();
+            myDeclList.lower(prog);
+            return prog;
+        } finally {
+            Compilation.bind(prev);
+        }
     }
 
-    public void codeGen(PrintWriter p) {
-        Codegen.p = p;
-        Codegen.stringMap = new HashMap<>();
-        myDeclList.codeGen();
+    public void codeGen(Compilation comp, Emitter p) {
+        Compilation prev = Compilation.bind(comp);
+        try {
+            comp.p = p;
+            comp.literals = new LiteralPool();
+            myDeclList.codeGen();
+            comp.literals.emit(p);
+        } finally {
+            Compilation.bind(prev);
+        }
     }
     
     public void unparse(PrintWriter p, int indent) {
@@ -189,10 +297,12 @@ class DeclListNode extends ASTnode {
         for (DeclNode node : myDecls) {
             if (node instanceof VarDeclNode) {
                 ((VarDeclNode)node).nameAnalysis(symTab, globalTab);
-                ((VarDeclNode)node).getSym().setOffset(curOffset);
+                Sym sym = ((VarDeclNode)node).getSym();
+                sym.setOffset(curOffset);
                 if (curOffset != 1) {
                     // only when it is in a function
                     curOffset -= 4;
+                    FnDeclNode.addLocal(sym);
                 }
             } else {
                 node.nameAnalysis(symTab);
@@ -208,6 +318,43 @@ class DeclListNode extends ASTnode {
             node.typeCheck();
         }
     }
+    public void fold() {
+        for (DeclNode node : myDecls) {
+            if (node instanceof FnDeclNode) {
+                ((FnDeclNode)node).fold();
+            }
+        }
+    }
+    public void removeDeadCode() {
+        for (DeclNode node : myDecls) {
+            if (node instanceof FnDeclNode) {
+                ((FnDeclNode)node).removeDeadCode();
+            }
+        }
+    }
+    public void inline(Inliner in) {
+        for (DeclNode node : myDecls) {
+            if (node instanceof FnDeclNode) {
+                ((FnDeclNode)node).inline(in);
+            }
+        }
+    }
+    public void hoistInvariants(Licm l) {
+        for (DeclNode node : myDecls) {
+            if (node instanceof FnDeclNode) {
+                ((FnDeclNode)node).hoistInvariants(l);
+            }
+        }
+    }
+    public void lower(IrProgram prog) {
+        for (DeclNode node : myDecls) {
+            if (node instanceof VarDeclNode) {
+                ((VarDeclNode)node).lower(prog);
+            } else if (node instanceof FnDeclNode) {
+                prog.functions.add(((FnDeclNode)node).lower());
+            }
+        }
+    }
     public void codeGen() {
         for (DeclNode node : myDecls) {
             if (node instanceof VarDeclNode || node instanceof FnDeclNode){
@@ -248,15 +395,27 @@ class FormalsListNode extends ASTnode {
     public List<Type> nameAnalysis(SymTable symTab) {
         List<Type> typeList = new LinkedList<Type>();
         int curOffset = 4;
+        int homeOffset = -8;
+        int k = 0;
         for (FormalDeclNode node : myFormals) {
             Sym sym = node.nameAnalysis(symTab);
             if (sym != null) {
                 typeList.add(sym.getType());
-                sym.setOffset(curOffset);
-                curOffset += 4;
+                if (k < Codegen.ARGS.length) {
+                    // passed in a register, and kept in the frame with the
+                    // locals if it is not kept in a register
+                    sym.setOffset(homeOffset);
+                    homeOffset -= 4;
+                } else {
+                    sym.setOffset(curOffset);
+                    curOffset += 4;
+                }
+                FnDeclNode.addLocal(sym);
             }
+            k++;
         }
         this.sizeParams = curOffset - 4;
+        Sym.setLocalInitOffset(homeOffset);
         return typeList;
     }    
     
@@ -266,9 +425,41 @@ class FormalsListNode extends ASTnode {
     public int length() {
         return myFormals.size();
     }
+    /**
+     * Return the syms of the formals, in order.
+     */
+    public List<Sym> syms() {
+        List<Sym> syms = new ArrayList<Sym>();
+        for (FormalDeclNode node : myFormals) {
+            syms.add(node.sym());
+        }
+        return syms;
+    }
+    /**
+     * Return the size of the args passed on the stack.
+     */
     public int getSizeParams() {
         return this.sizeParams;
     }
+
+    /**
+     * Return copies of the ids of the formals for the given copy of the
+     * body of the function (see FnDeclNode.copyBody), in order: null for a
+     * formal the body does not use.
+     */
+    public List<IdNode> copyIds(Inliner in) {
+        List<IdNode> ids = new ArrayList<IdNode>();
+        for (FormalDeclNode node : myFormals) {
+            ids.add(in.isCopied(node.sym()) ? (IdNode)node.idNode().copy(in) : null);
+        }
+        return ids;
+    }
+    
+    public void lower(IrBuilder b) {
+        for (FormalDeclNode node : myFormals) {
+            node.lower(b);
+        }
+    }
     
     public void unparse(PrintWriter p, int indent) {
         Iterator<FormalDeclNode> it = myFormals.iterator();
@@ -297,9 +488,10 @@ class FnBodyNode extends ASTnode {
      * Given a symbol table symTab, do:
      * - process the declaration list
      * - process the statement list
+     * The locals go below the formals that are passed in registers (see
+     * FormalsListNode.nameAnalysis).
      */
     public void nameAnalysis(SymTable symTab) {
-        Sym.setLocalInitOffset(-8);
         myDeclList.nameAnalysis(symTab);
         myStmtList.nameAnalysis(symTab);
         int curOffset = Sym.getLocalInitOffset();
@@ -314,6 +506,40 @@ class FnBodyNode extends ASTnode {
     public void typeCheck(Type retType) {
         myStmtList.typeCheck(retType);
     }    
+    public void fold() {
+        myStmtList.fold();
+    }
+    public void addReads(Set<Sym> reads) {
+        myStmtList.addReads(reads);
+    }
+    public boolean removeDeadCode(Set<Sym> reads) {
+        return myStmtList.removeDeadCode(reads);
+    }
+    public void markTailCalls(FnDeclNode fn) {
+        myStmtList.markTailCalls(fn);
+    }
+    public void inline(Inliner in) {
+        myStmtList.inline(in);
+    }
+    public void hoistInvariants(Licm l) {
+        myStmtList.hoistLoops(l);
+    }
+    public void addWrites(Licm l) {
+        myStmtList.addWrites(l);
+    }
+    public int numNodes() {
+        return myStmtList.numNodes();
+    }
+    /**
+     * Return a copy of the statements (see Inliner); the decls are only
+     * needed by name analysis.
+     */
+    public StmtListNode copy(Inliner in) {
+        return myStmtList.copy(in);
+    }
+    public void lower(IrBuilder b) {
+        myStmtList.lower(b);
+    }
     public void codeGen(String fnEndLabel) {
         myStmtList.codeGen(fnEndLabel);
     }
@@ -351,6 +577,131 @@ class StmtListNode extends ASTnode {
             node.typeCheck(retType);
         }
     }
+    public void fold() {
+        for(StmtNode node : myStmts) {
+            node.fold();
+        }
+    }
+    /**
+     * Add the variables read by the statements to reads.
+     */
+    public void addReads(Set<Sym> reads) {
+        for(StmtNode node : myStmts) {
+            node.addReads(reads);
+        }
+    }
+
+    /**
+     * removeDeadCode
+     * Given the variables that are read somewhere in the function, remove
+     * the statements that can never run or have no effect.
+     * @return true if anything was removed
+     */
+    public boolean removeDeadCode(Set<Sym> reads) {
+        List<StmtNode> kept = new ArrayList<StmtNode>(myStmts.size());
+        boolean changed = removeDeadCode(kept, reads);
+        myStmts = kept;
+        return changed;
+    }
+
+    /**
+     * Add the statements that are kept in place of this list to out (see
+     * StmtNode.removeDeadCode), leaving out the ones after a statement
+     * that always returns.
+     * @return true if anything was removed
+     */
+    public boolean removeDeadCode(List<StmtNode> out, Set<Sym> reads) {
+        boolean changed = false;
+        Iterator<StmtNode> it = myStmts.iterator();
+        while (it.hasNext()) {
+            changed |= it.next().removeDeadCode(out, reads);
+            if (!out.isEmpty() && out.get(out.size() - 1).alwaysReturns()) {
+                changed |= it.hasNext();
+                break;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Return true if running the statements always ends in a return.
+     */
+    public boolean alwaysReturns() {
+        return !myStmts.isEmpty() && myStmts.get(myStmts.size() - 1).alwaysReturns();
+    }
+
+    public void markTailCalls(FnDeclNode fn) {
+        for (StmtNode node : myStmts) {
+            node.markTailCalls(fn);
+        }
+    }
+
+    public boolean isEmpty() {
+        return myStmts.isEmpty();
+    }
+
+    public void inline(Inliner in) {
+        for (StmtNode node : myStmts) {
+            node.inline(in);
+        }
+    }
+
+    /**
+     * Tell the given pass which variables the statements write and whether
+     * they make a call (see Licm).
+     */
+    public void addWrites(Licm l) {
+        for (StmtNode node : myStmts) {
+            node.addWrites(l);
+        }
+    }
+
+    /**
+     * Replace the invariant expressions in the statements with the
+     * variables the given pass hoists them into (see ExpNode.hoist).
+     */
+    public void hoist(Licm l) {
+        for (StmtNode node : myStmts) {
+            node.hoist(l);
+        }
+    }
+
+    /**
+     * hoistLoops
+     * Hoist the invariant values out of the loops in the statements, and
+     * put their assignments before the loops (see StmtNode.hoistLoops).
+     */
+    public void hoistLoops(Licm l) {
+        List<StmtNode> stmts = new ArrayList<StmtNode>(myStmts.size());
+        for (StmtNode node : myStmts) {
+            node.hoistLoops(stmts, l);
+        }
+        myStmts = stmts;
+    }
+
+    public int numNodes() {
+        int size = 1;
+        for (StmtNode node : myStmts) {
+            size += node.numNodes();
+        }
+        return size;
+    }
+
+    public StmtListNode copy(Inliner in) {
+        StmtListNode list = (StmtListNode)shallowCopy();
+        list.myStmts = new ArrayList<StmtNode>(myStmts.size());
+        for (StmtNode node : myStmts) {
+            list.myStmts.add(node.copy(in));
+        }
+        return list;
+    }
+
+    public void lower(IrBuilder b) {
+        for(StmtNode node : myStmts) {
+            node.lower(b);
+        }
+    }
+
     public void codeGen(String fnEndLabel) {
         for(StmtNode node : myStmts) {
             node.codeGen(fnEndLabel);            
@@ -370,8 +721,6 @@ class StmtListNode extends ASTnode {
 class ExpListNode extends ASTnode {
     public ExpListNode(List<ExpNode> S) {
         myExps = S;
-        myExpsReversed = new LinkedList<ExpNode>(S);
-        Collections.reverse(myExpsReversed);
     }
     
     public int size() {
@@ -412,11 +761,133 @@ class ExpListNode extends ASTnode {
         }
     }
 
+    public void fold() {
+        myExps.replaceAll(node -> node.fold());
+    }
+
+    public void addReads(Set<Sym> reads) {
+        for (ExpNode node : myExps) {
+            node.addReads(reads);
+        }
+    }
+
+    public void inline(Inliner in) {
+        myExps.replaceAll(node -> node.inline(in));
+    }
+
+    public void addWrites(Licm l) {
+        for (ExpNode node : myExps) {
+            node.addWrites(l);
+        }
+    }
+
+    public void hoist(Licm l) {
+        myExps.replaceAll(node -> node.hoist(l));
+    }
+
+    public int numNodes() {
+        int size = 1;
+        for (ExpNode node : myExps) {
+            size += node.numNodes();
+        }
+        return size;
+    }
+
+    public ExpListNode copy(Inliner in) {
+        List<ExpNode> exps = new LinkedList<ExpNode>();
+        for (ExpNode node : myExps) {
+            exps.add(node.copy(in));
+        }
+        ExpListNode list = (ExpListNode)shallowCopy();
+        list.myExps = exps;
+        return list;
+    }
+
+    /**
+     * Return the values of the exps, which are evaluated last to first as
+     * by codeGen.  A variable's value is copied if an exp evaluated after
+     * it could assign to it.
+     */
+    public IrValue[] lower(IrBuilder b) {
+        List<ExpNode> exps = new ArrayList<ExpNode>(myExps);
+        IrValue[] values = new IrValue[exps.size()];
+        for (int k = values.length - 1; k >= 0; k--) {
+            values[k] = exps.get(k).lower(b);
+            for (int j = 0; j < k; j++) {
+                if (exps.get(j).hasSideEffects()) {
+                    values[k] = b.stable(values[k]);
+                    break;
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Evaluate the args of a call last to first: the first ones go in the
+     * registers of Codegen.ARGS, and the others are pushed, so that the
+     * first of them ends up on top of the stack.  An arg evaluated before
+     * one with side effects (which could make a call and change the ARGS
+     * registers) waits in a register of Codegen.TEMPS until all are
+     * evaluated.
+     */
     public void codeGen() {
-        for (ExpNode node : myExpsReversed) {
-            node.codeGenCommon();
+        int numRegs = Math.min(myExps.size(), Codegen.ARGS.length);
+        for (int k = myExps.size() - 1; k >= numRegs; k--) {
+            myExps.get(k).codeGenCommon();
             Codegen.genPush(Codegen.T0);
         }
+        // the args after the first one with side effects wait
+        int first = 0;
+        while (first < numRegs - 1 && !myExps.get(first).hasSideEffects()) {
+            first++;
+        }
+        int numWaiting = 0;
+        for (int k = numRegs - 1; k >= 0; k--) {
+            myExps.get(k).codeGenReg(numWaiting);
+            if (k > first) {
+                numWaiting++;
+            } else if (!Codegen.retargetLast(Codegen.TEMPS[numWaiting], Codegen.ARGS[k])) {
+                Codegen.generate("move", Codegen.ARGS[k], Codegen.TEMPS[numWaiting]);
+            }
+        }
+        for (int k = first + 1; k < numRegs; k++) {
+            Codegen.generate("move", Codegen.ARGS[k], Codegen.TEMPS[numRegs - 1 - k]);
+        }
+    }
+
+    /**
+     * Evaluate the exps last to first, as codeGen does, and store each
+     * into the corresponding variable instead of passing it.  An exp whose
+     * variable is null is only evaluated for its side effects.
+     */
+    public void codeGenStores(List<IdNode> vars) {
+        for (int k = myExps.size() - 1; k >= 0; k--) {
+            ExpNode node = myExps.get(k);
+            IdNode var = vars.get(k);
+            if (var != null) {
+                node.codeGenCommon();
+                String home = var.homeRegister();
+                if (home == null || !Codegen.retargetLast(Codegen.T0, home)) {
+                    var.codeGenStore(Codegen.T0);
+                }
+            } else if (node.hasSideEffects()) {
+                node.codeGenCommon();
+            }
+        }
+    }
+
+    /**
+     * Add the IR that evaluates the exps as lower does and stores each
+     * into the corresponding variable (see codeGenStores).
+     */
+    public void lowerStores(IrBuilder b, List<IdNode> vars) {
+        IrValue[] values = lower(b);
+        for (int k = 0; k < values.length; k++) {
+            if (vars.get(k) != null) {
+                vars.get(k).lowerStore(b, values[k]);
+            }
+        }
     }
     
     public void unparse(PrintWriter p, int indent) {
@@ -432,7 +903,6 @@ class ExpListNode extends ASTnode {
 
     // list of kids (ExpNodes)
     private List<ExpNode> myExps;
-    private List<ExpNode> myExpsReversed;
 }
 
 // **********************************************************************
@@ -477,7 +947,6 @@ class VarDeclNode extends DeclNode {
     
     public Sym nameAnalysis(SymTable symTab, SymTable globalTab) {
         boolean badDecl = false;
-        String name = myId.name();
         Sym sym = null;
         IdNode structId = null;
 
@@ -489,7 +958,7 @@ class VarDeclNode extends DeclNode {
         
         else if (myType instanceof StructNode) {
             structId = ((StructNode)myType).idNode();
-            sym = globalTab.lookupGlobal(structId.name());
+            sym = globalTab.lookupGlobal(structId.id());
             
             // if the name for the struct type is not found, 
             // or is not a struct type
@@ -503,7 +972,7 @@ class VarDeclNode extends DeclNode {
             }
         }
         
-        if (symTab.lookupLocal(name) != null) {
+        if (symTab.lookupLocal(myId.id()) != null) {
             ErrMsg.fatal(myId.lineNum(), myId.charNum(), 
                          "Multiply declared identifier");
             badDecl = true;            
@@ -517,7 +986,7 @@ class VarDeclNode extends DeclNode {
                 else {
                     sym = new Sym(myType.type());
                 }
-                symTab.addDecl(name, sym);
+                symTab.addDecl(myId.id(), sym);
                 myId.link(sym);
             } catch (DuplicateSymException ex) {
                 System.err.println("Unexpected DuplicateSymException " +
@@ -536,10 +1005,15 @@ class VarDeclNode extends DeclNode {
         
         return sym;
     }    
+    public void lower(IrProgram prog) {
+        if (this.myId.sym().getOffset() == 1) {
+            prog.globals.add(this.myId.name());
+        }
+    }
     public void codeGen() {
         if (this.myId.sym().getOffset() == 1) {
             // only when it is global var
-            Codegen.p.print(Codegen.addGlobalVar(this.myId.name()));
+            Codegen.genGlobalVar(this.myId.name());
         }
     }
     public void unparse(PrintWriter p, int indent) {
@@ -585,10 +1059,9 @@ class FnDeclNode extends DeclNode {
      *     exit scope
      */
     public Sym nameAnalysis(SymTable symTab) {
-        String name = myId.name();
         FnSym sym = null;
         
-        if (symTab.lookupLocal(name) != null) {
+        if (symTab.lookupLocal(myId.id()) != null) {
             ErrMsg.fatal(myId.lineNum(), myId.charNum(),
                          "Multiply declared identifier");
         }
@@ -596,7 +1069,7 @@ class FnDeclNode extends DeclNode {
         else { // add function name to local symbol table
             try {
                 sym = new FnSym(myType.type(), myFormalsList.length());
-                symTab.addDecl(name, sym);
+                symTab.addDecl(myId.id(), sym);
                 myId.link(sym);
             } catch (DuplicateSymException ex) {
                 System.err.println("Unexpected DuplicateSymException " +
@@ -614,6 +1087,9 @@ class FnDeclNode extends DeclNode {
         }
         
         symTab.addScope();  // add a new scope for locals and params
+        Compilation comp = Compilation.current();
+        comp.fnLocals = new ArrayList<Sym>();
+        comp.fnCalls = 0;
         
         // process the formals
         List<Type> typeList = myFormalsList.nameAnalysis(symTab);
@@ -624,6 +1100,9 @@ class FnDeclNode extends DeclNode {
         
         myBody.nameAnalysis(symTab); // process the function body
         sym.setSizeLocals(myBody.getSizeLocals());
+        myLocals = comp.fnLocals;
+        myNumCalls = comp.fnCalls;
+        comp.fnLocals = null;
         try {
             symTab.removeScope();  // exit scope
         } catch (EmptySymTableException ex) {
@@ -641,71 +1120,409 @@ class FnDeclNode extends DeclNode {
     public void typeCheck() {
         myBody.typeCheck(myType.type());
     }
-    public void codeGen() {
-        // fn entry
-        String fnName = this.myId.name();
-        String fnEndLabel = Codegen.nextLabel();
-        if(fnName.equals("main")) {
-            Codegen.p.print("\t.text\n\t.globl main\nmain:\t# FUNCTION ENTRY\n");
-        } else {
-            Codegen.p.print(String.format("\t.text\n_%s:\t# FUNCTION ENTRY\n", fnName));
-        }
-        Codegen.genPush(Codegen.RA);
-        Codegen.genPush(Codegen.FP);
-        Codegen.generate("addu", Codegen.FP, Codegen.SP, 8);
-        Codegen.generate("subu", Codegen.SP, Codegen.SP, ((FnSym)this.myId.sym()).getSizeLocals());
-        // fn body
-        this.myBody.codeGen(fnEndLabel);
-        
-        Codegen.genLabel(fnEndLabel);
-        // fn exit
-        Codegen.p.print("\t\t#FUNCTION EXIT\n");
-        // load return address
-        Codegen.generateIndexed("lw", Codegen.RA, Codegen.FP, 0);
-        // FP holds the address to which we need to restore SP
-        Codegen.generate("move", Codegen.T0, Codegen.FP);
-        // restore FP
-        Codegen.generateIndexed("lw", Codegen.FP, Codegen.FP, -4);
-        // restore SP
-        Codegen.generate("move", Codegen.SP, Codegen.T0);
-        // return
-        Codegen.generate("jr", Codegen.RA);
-    }
-    public void unparse(PrintWriter p, int indent) {
-        addIndent(p, indent);
-        myType.unparse(p, 0);
-        p.print(" ");
-        p.print(myId.name());
-        p.print("(");
-        myFormalsList.unparse(p, 0);
-        p.println(") {");
-        myBody.unparse(p, indent+4);
-        p.println("}\n");
+    public void fold() {
+        myBody.fold();
     }
 
-    // 4 kids
-    private TypeNode myType;
-    private IdNode myId;
-    private FormalsListNode myFormalsList;
-    private FnBodyNode myBody;
-}
+    /**
+     * inline
+     * Replace the calls in the body that the given inliner chooses with
+     * copies of the callees' bodies, then let later functions inline calls
+     * of this one.
+     */
+    public void inline(Inliner in) {
+        in.beginFunction(this);
+        myBody.inline(in);
+        in.endFunction();
+    }
 
-class FormalDeclNode extends DeclNode {
-    public FormalDeclNode(TypeNode type, IdNode id) {
-        myType = type;
-        myId = id;
+    /**
+     * hoistInvariants
+     * Hoist the values that do not change in the loops of the body out of
+     * them (see Licm).
+     */
+    public void hoistInvariants(Licm l) {
+        l.beginFunction(this);
+        myBody.hoistInvariants(l);
+        l.endFunction();
     }
 
     /**
-     * nameAnalysis
-     * Given a symbol table symTab, do:
-     * if this formal is declared void, then error
+     * Return a new local of the given type, with a word of the frame, that
+     * can be kept in a register like the others (see Licm.hoist).
+     */
+    public Sym newLocal(Type type) {
+        FnSym sym = this.sym();
+        Sym local = new Sym(type);
+        local.setOffset(-8 - sym.getSizeLocals());
+        sym.setSizeLocals(sym.getSizeLocals() + 4);
+        myLocals.add(local);
+        return local;
+    }
+
+    public FnSym sym() {
+        return (FnSym)this.myId.sym();
+    }
+
+    /**
+     * Return the number of AST nodes in the statements of the body, which
+     * is what the inliner weighs a call of this function by.
+     */
+    public int bodySize() {
+        return myBody.numNodes();
+    }
+
+    public String name() {
+        return this.myId.name();
+    }
+
+    /**
+     * Return a copy of the body of this function to run in place of the
+     * given call, with new variables in place of its locals and formals
+     * (see Inliner.local).
+     */
+    public InlineExpNode copyBody(CallExpNode call, Inliner in) {
+        StmtListNode body = myBody.copy(in);
+        return new InlineExpNode(call, myFormalsList.copyIds(in), body);
+    }
+
+    /**
+     * Record that a copy of the body of callee was inlined into this
+     * function in the given number of loops: give each of the new
+     * variables (by the variable of callee it copies) a word of the frame,
+     * keep the ones that are worth it in registers like the other locals,
+     * and count the calls of the copy in place of the one it replaces.
+     */
+    public void addInlined(FnDeclNode callee, Map<Sym, Sym> copies, int loops) {
+        FnSym sym = this.sym();
+        int sizeLocals = sym.getSizeLocals();
+        for (Map.Entry<Sym, Sym> entry : copies.entrySet()) {
+            Sym copy = entry.getValue();
+            copy.setOffset(-8 - sizeLocals);
+            sizeLocals += 4;
+            if (callee.myLocals.contains(entry.getKey())) {
+                copy.addUses(entry.getKey(), loops);
+                myLocals.add(copy);
+            }
+        }
+        sym.setSizeLocals(sizeLocals);
+        myNumCalls += callee.myNumCalls - 1;
+    }
+
+    /**
+     * removeDeadCode
+     * Remove the statements of the body that can never run and the stores
+     * into locals that are never read, until there are none left (a store
+     * that is removed can leave another local unread).  A local that is
+     * not read is not worth a register (see codeGen), but it can still be
+     * written, by an assignment used as a value.
+     */
+    public void removeDeadCode() {
+        Set<Sym> reads;
+        do {
+            reads = new HashSet<Sym>();
+            myBody.addReads(reads);
+        } while (myBody.removeDeadCode(reads));
+    }
+
+    /**
+     * lower
+     * Return the IR of the function.
+     */
+    public IrFunction lower() {
+        String name = this.myId.id() == NamePool.MAIN ? "main" : "_" + this.myId.name();
+        IrBuilder b = new IrBuilder(name);
+        myFormalsList.lower(b);
+        myBody.lower(b);
+        return b.finish();
+    }
+
+    public void codeGen() {
+        // fn entry
+        String fnName = this.myId.name();
+        String fnEndLabel = Codegen.nextLabel();
+        if(this.myId.id() == NamePool.MAIN) {
+            Codegen.p().print("\t.text\n\t.globl main\nmain:\t# FUNCTION ENTRY\n");
+        } else {
+            Codegen.p().print("\t.text\n_");
+            Codegen.p().print(fnName);
+            Codegen.p().print(":\t# FUNCTION ENTRY\n");
+        }
+        Codegen.beginFunction();
+        myBodyLabel = null;
+        if (Compilation.current().runs("tailcall")) {
+            myBody.markTailCalls(this);
+        }
+        mySizeLocals = ((FnSym)this.myId.sym()).getSizeLocals();
+        // the locals the body never reads get no register, whether or not
+        // dead code was removed; the count of a repeat that is unrolled is
+        // one (see RepeatStmtNode.addReads)
+        Set<Sym> reads = new HashSet<Sym>();
+        myBody.addReads(reads);
+        myUnread = new HashSet<Sym>(myLocals);
+        myUnread.removeAll(reads);
+        List<Sym> promoted = Compilation.current().runs("promote")
+            ? this.promoteLocals() : new ArrayList<Sym>();
+        myNumSaved = 0;
+        for (Sym sym : promoted) {
+            if (Arrays.asList(Codegen.SAVED).contains(sym.getRegister())) {
+                myNumSaved++;
+            }
+        }
+        // a function that calls none does not save $ra, and needs no frame
+        // at all if it keeps the locals it uses in SCRATCH registers
+        myHasFrame = myNumCalls > 0 || myNumSaved > 0 || this.usesFrame();
+        String base = Codegen.SP;
+        if (myHasFrame) {
+            Codegen.genPrologue(myNumCalls > 0, mySizeLocals + 4 * myNumSaved);
+            base = Codegen.FP;
+        }
+        // save the SAVED registers below the other locals
+        for (int k = 0; k < myNumSaved; k++) {
+            Codegen.generateIndexed("sw", Codegen.SAVED[k], Codegen.FP, savedOffset(k));
+        }
+        // a tail call of this function starts over here, with new args
+        if (myBodyLabel != null) {
+            Codegen.genLabel(myBodyLabel);
+        }
+        // move the formals passed in registers to where they are kept,
+        // and load the promoted formals passed on the stack into their
+        // registers ($sp has not moved yet if there is no frame)
+        List<Sym> formals = myFormalsList.syms();
+        for (int k = 0; k < formals.size(); k++) {
+            Sym sym = formals.get(k);
+            String reg = sym.getRegister();
+            if (k >= Codegen.ARGS.length) {
+                if (reg != null) {
+                    Codegen.generateIndexed("lw", reg, base, sym.getOffset());
+                }
+            } else if (reg != null) {
+                if (!reg.equals(Codegen.ARGS[k])) {
+                    Codegen.generate("move", reg, Codegen.ARGS[k]);
+                }
+            } else if (myLocals.contains(sym) && sym.getUseWeight() > 0
+                       && !myUnread.contains(sym)) {
+                Codegen.generateIndexed("sw", Codegen.ARGS[k], Codegen.FP, sym.getOffset());
+            }
+        }
+        // fn body
+        this.myBody.codeGen(fnEndLabel);
+        
+        Codegen.genLabel(fnEndLabel);
+        // fn exit
+        Codegen.genText("\t\t#FUNCTION EXIT\n");
+        this.codeGenPopFrame();
+        Codegen.generate("jr", Codegen.RA);
+        Codegen.endFunction();
+    }
+
+    /**
+     * Return true if the body reads or stores to a local or formal that is
+     * not kept in a register, so that it needs its word of the frame.  The
+     * stores are found from the body, not the uses: a local that is never
+     * read gets no register (see promoteLocals), but can still be stored
+     * to by an assignment used as a value.
+     */
+    private boolean usesFrame() {
+        Licm writes = new Licm();
+        writes.beginLoop();
+        myBody.addWrites(writes);
+        for (Sym sym : myLocals) {
+            if (sym.getRegister() != null) {
+                continue;
+            }
+            if (writes.writes(sym)
+                || (sym.getUseWeight() > 0 && !myUnread.contains(sym))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // offset from $fp of the word the k-th SAVED register is saved in,
+    // below the other locals
+    private int savedOffset(int k) {
+        return -8 - mySizeLocals - 4 * k;
+    }
+
+    // restore the SAVED registers, $sp, $fp and $ra of the caller
+    private void codeGenPopFrame() {
+        for (int k = 0; k < myNumSaved; k++) {
+            Codegen.generateIndexed("lw", Codegen.SAVED[k], Codegen.FP, savedOffset(k));
+        }
+        if (myHasFrame) {
+            Codegen.genPopFrame(myNumCalls > 0);
+        }
+    }
+
+    /**
+     * Record that the given call is returned by this function, so it is a
+     * tail call.
+     */
+    public void addTailCall(CallExpNode call) {
+        if (call.fnSym() == this.myId.sym() && myBodyLabel == null) {
+            myBodyLabel = Codegen.nextLabel();
+        }
+    }
+
+    /**
+     * Generate the code of "return call;" in this function without growing
+     * the stack, and return true; or return false if the callee's args
+     * passed on the stack do not take the same space as this function's,
+     * which its caller pops.  The args go in the registers they are passed
+     * in and where this function's args passed on the stack are.  A call
+     * of this function then starts the body over, where the formals are
+     * moved to where they are kept.  A call of another function pops this
+     * function's frame and jumps to the callee, which returns straight to
+     * this function's caller.
+     */
+    public boolean codeGenTailCall(CallExpNode call) {
+        FnSym callee = call.fnSym();
+        int sizeParams = ((FnSym)this.myId.sym()).getSizeParams();
+        if (callee.getSizeParams() != sizeParams) {
+            return false;
+        }
+        // the arg for the formal at offset o($fp) is pushed at o($sp)
+        call.codeGenArgs();
+        for (int offset = 4; offset <= sizeParams; offset += 4) {
+            Codegen.generateIndexed("lw", Codegen.T0, Codegen.SP, offset);
+            Codegen.generateIndexed("sw", Codegen.T0, Codegen.FP, offset);
+        }
+        if (callee == this.myId.sym()) {
+            if (sizeParams > 0) {
+                Codegen.generate("addu", Codegen.SP, Codegen.SP, sizeParams);
+            }
+            Codegen.generate("b", myBodyLabel);
+        } else {
+            this.codeGenPopFrame();
+            Codegen.generate("b", call.label());
+        }
+        return true;
+    }
+    /**
+     * Record that the function being analyzed calls a function.
+     */
+    public static void addCall() {
+        Compilation.current().fnCalls++;
+    }
+
+    /**
+     * Record a local or formal of the function being analyzed, so that it
+     * can be kept in a register if it is an int or bool.
+     */
+    public static void addLocal(Sym sym) {
+        List<Sym> locals = Compilation.current().fnLocals;
+        if (locals != null && (sym.getType().isIntType() || sym.getType().isBoolType())) {
+            locals.add(sym);
+        }
+    }
+
+    /**
+     * Keep the locals and formals with the most uses (weighted by the
+     * loops they are used in) in registers, if they are read at all.  A
+     * function that calls none keeps each formal passed in a register of
+     * Codegen.SCRATCH in that register, and first uses the other registers
+     * of Codegen.SCRATCH, which cost nothing to keep a local in.  Then the
+     * registers of Codegen.SAVED are used, as long as that saves more than
+     * the register costs: a store and a load to save and restore it, and
+     * for a formal passed on the stack a load of its value.  No local's
+     * address is ever taken, so any of them can be promoted.  Return the
+     * promoted ones.
+     */
+    private List<Sym> promoteLocals() {
+        List<Sym> candidates = new ArrayList<Sym>();
+        for (Sym sym : myLocals) {
+            if (sym.getUseWeight() > 0 && !myUnread.contains(sym)) {
+                candidates.add(sym);
+            }
+        }
+        // sort is stable, so equal weights keep the declaration order
+        candidates.sort((a, b) -> Long.compare(b.getUseWeight(), a.getUseWeight()));
+        List<Sym> promoted = new ArrayList<Sym>();
+        List<String> scratch = new ArrayList<String>();
+        if (myNumCalls == 0) {
+            List<Sym> formals = myFormalsList.syms();
+            for (String reg : Codegen.SCRATCH) {
+                int k = Arrays.asList(Codegen.ARGS).indexOf(reg);
+                if (k >= 0 && k < formals.size() && candidates.contains(formals.get(k))) {
+                    formals.get(k).setRegister(reg);
+                    promoted.add(formals.get(k));
+                } else {
+                    scratch.add(reg);
+                }
+            }
+        }
+        int numScratch = 0;
+        int numSaved = 0;
+        for (Sym sym : candidates) {
+            if (promoted.contains(sym)) {
+                continue;
+            }
+            if (numScratch < scratch.size()) {
+                sym.setRegister(scratch.get(numScratch++));
+            } else if (numSaved < Codegen.SAVED.length
+                       && sym.getUseWeight() > (sym.getOffset() > 0 ? 3 : 2)) {
+                sym.setRegister(Codegen.SAVED[numSaved++]);
+            } else {
+                continue;
+            }
+            promoted.add(sym);
+        }
+        return promoted;
+    }
+
+    public void unparse(PrintWriter p, int indent) {
+        addIndent(p, indent);
+        myType.unparse(p, 0);
+        p.print(" ");
+        p.print(myId.name());
+        p.print("(");
+        myFormalsList.unparse(p, 0);
+        p.println(") {");
+        myBody.unparse(p, indent+4);
+        p.println("}\n");
+    }
+
+    // 4 kids
+    private TypeNode myType;
+    private IdNode myId;
+    private FormalsListNode myFormalsList;
+    private FnBodyNode myBody;
+
+    // int and bool locals and formals, in the order they were declared,
+    // and the ones that are never read (see codeGen)
+    private List<Sym> myLocals;
+    private Set<Sym> myUnread;
+
+    // number of calls in the body (more than there are if some were
+    // removed as dead code)
+    private int myNumCalls;
+
+    // frame of the function while its code is generated: the size of its
+    // locals, the number of SAVED registers it saves, whether it has a
+    // frame at all, and the label of the start of the body (null if no
+    // tail call goes there)
+    private int mySizeLocals;
+    private int myNumSaved;
+    private boolean myHasFrame;
+    private String myBodyLabel;
+}
+
+class FormalDeclNode extends DeclNode {
+    public FormalDeclNode(TypeNode type, IdNode id) {
+        myType = type;
+        myId = id;
+    }
+
+    /**
+     * nameAnalysis
+     * Given a symbol table symTab, do:
+     * if this formal is declared void, then error
      * else if this formal is already in the local symble table,
      *     then issue multiply declared error message and return null
      * else add a new entry to the symbol table and return that Sym
      */
     public Sym nameAnalysis(SymTable symTab) {
-        String name = myId.name();
         boolean badDecl = false;
         Sym sym = null;
         
@@ -715,7 +1532,7 @@ class FormalDeclNode extends DeclNode {
             badDecl = true;        
         }
         
-        if (symTab.lookupLocal(name) != null) {
+        if (symTab.lookupLocal(myId.id()) != null) {
             ErrMsg.fatal(myId.lineNum(), myId.charNum(), 
                          "Multiply declared identifier");
             badDecl = true;
@@ -724,7 +1541,7 @@ class FormalDeclNode extends DeclNode {
         if (!badDecl) {  // insert into symbol table
             try {
                 sym = new Sym(myType.type());
-                symTab.addDecl(name, sym);
+                symTab.addDecl(myId.id(), sym);
                 myId.link(sym);
             } catch (DuplicateSymException ex) {
                 System.err.println("Unexpected DuplicateSymException " +
@@ -744,6 +1561,18 @@ class FormalDeclNode extends DeclNode {
         return sym;
     }    
     
+    public Sym sym() {
+        return myId.sym();
+    }
+
+    public IdNode idNode() {
+        return myId;
+    }
+
+    public void lower(IrBuilder b) {
+        b.param(myId.name(), myId.sym());
+    }
+    
     public void unparse(PrintWriter p, int indent) {
         myType.unparse(p, 0);
         p.print(" ");
@@ -772,10 +1601,9 @@ class StructDeclNode extends DeclNode {
      *     add a new entry to symbol table for this struct
      */
     public Sym nameAnalysis(SymTable symTab) {
-        String name = myId.name();
         boolean badDecl = false;
         
-        if (symTab.lookupLocal(name) != null) {
+        if (symTab.lookupLocal(myId.id()) != null) {
             ErrMsg.fatal(myId.lineNum(), myId.charNum(), 
                          "Multiply declared identifier");
             badDecl = true;            
@@ -788,8 +1616,8 @@ class StructDeclNode extends DeclNode {
         
         if (!badDecl) {
             try {   // add entry to symbol table
-                StructDefSym sym = new StructDefSym(structSymTab);
-                symTab.addDecl(name, sym);
+                StructDefSym sym = new StructDefSym(structSymTab, myId);
+                symTab.addDecl(myId.id(), sym);
                 myId.link(sym);
             } catch (DuplicateSymException ex) {
                 System.err.println("Unexpected DuplicateSymException " +
@@ -842,7 +1670,7 @@ class IntNode extends TypeNode {
      * type
      */
     public Type type() {
-        return new IntType();
+        return Type.INT;
     }
     
     public void unparse(PrintWriter p, int indent) {
@@ -858,7 +1686,7 @@ class BoolNode extends TypeNode {
      * type
      */
     public Type type() {
-        return new BoolType();
+        return Type.BOOL;
     }
     
     public void unparse(PrintWriter p, int indent) {
@@ -874,7 +1702,7 @@ class VoidNode extends TypeNode {
      * type
      */
     public Type type() {
-        return new VoidType();
+        return Type.VOID;
     }
     
     public void unparse(PrintWriter p, int indent) {
@@ -895,7 +1723,11 @@ class StructNode extends TypeNode {
      * type
      */
     public Type type() {
-        return new StructType(myId);
+        Sym sym = myId.sym();
+        if (sym instanceof StructDefSym) {
+            return ((StructDefSym)sym).getStructType();
+        }
+        return Type.ERROR;  // not a struct name; already reported
     }
     
     public void unparse(PrintWriter p, int indent) {
@@ -914,7 +1746,92 @@ class StructNode extends TypeNode {
 abstract class StmtNode extends ASTnode {
     abstract public void nameAnalysis(SymTable symTab);
     abstract public void typeCheck(Type retType);
+    abstract public void fold();
     abstract public void codeGen(String fnExitLabel);
+
+    /**
+     * lower
+     * Add the IR of this statement to the function being built.
+     */
+    abstract public void lower(IrBuilder b);
+
+    /**
+     * Add the variables this statement reads to reads.  A variable that
+     * is only read to be written back (x++) is not counted.
+     */
+    abstract public void addReads(Set<Sym> reads);
+
+    /**
+     * removeDeadCode
+     * Given the variables that are read somewhere in the function, add
+     * the statements to keep in place of this one to out: none if it has
+     * no effect, the statements of the branch that is taken if its
+     * condition is a literal, else this statement with the dead code in
+     * its own lists removed.
+     * @return true if anything was removed
+     */
+    public boolean removeDeadCode(List<StmtNode> out, Set<Sym> reads) {
+        out.add(this);
+        return false;
+    }
+
+    /**
+     * Return true if running this statement always ends in a return.
+     */
+    public boolean alwaysReturns() {
+        return false;
+    }
+
+    /**
+     * Tell the returns of a call in this statement that the call is in
+     * tail position in the given function (see FnDeclNode.codeGenTailCall).
+     */
+    public void markTailCalls(FnDeclNode fn) {
+    }
+
+    /**
+     * inline
+     * Replace the calls in this statement that the given inliner chooses
+     * with copies of the callees' bodies (see ExpNode.inline).
+     */
+    public void inline(Inliner in) {
+    }
+
+    /**
+     * Return a copy of this statement for the given inliner, with its
+     * locals replaced (see Inliner.local).
+     */
+    abstract public StmtNode copy(Inliner in);
+
+    /**
+     * Return the number of AST nodes in this statement.
+     */
+    abstract public int numNodes();
+
+    /**
+     * Tell the given pass which variables this statement writes and
+     * whether it makes a call (see Licm).
+     */
+    public void addWrites(Licm l) {
+    }
+
+    /**
+     * hoist
+     * Replace the invariant expressions in this statement with the
+     * variables the given pass hoists them into (see ExpNode.hoist).
+     */
+    public void hoist(Licm l) {
+    }
+
+    /**
+     * hoistLoops
+     * Add the statements to run in place of this one to out: if it is a
+     * loop, the assignments of the values hoisted out of it (see Licm),
+     * then this statement, after the loops in its own lists are looked at.
+     */
+    public void hoistLoops(List<StmtNode> out, Licm l) {
+        out.add(this);
+    }
 }
 
 class AssignStmtNode extends StmtNode {
@@ -936,8 +1853,49 @@ class AssignStmtNode extends StmtNode {
     public void typeCheck(Type retType) {
         myAssign.typeCheck();
     }
+    public void fold() {
+        myAssign.fold();
+    }
+    public void addReads(Set<Sym> reads) {
+        myAssign.addReads(reads);
+    }
+    public boolean removeDeadCode(List<StmtNode> out, Set<Sym> reads) {
+        if (!myAssign.storesUnread(reads)) {
+            out.add(this);
+            return false;
+        }
+        // only the effects of the value are kept
+        ExpNode exp = myAssign.exp();
+        if (exp instanceof CallExpNode || exp instanceof InlineExpNode) {
+            out.add(new CallStmtNode(exp));
+        } else if (exp.hasSideEffects()) {
+            out.add(this);
+            return false;
+        }
+        return true;
+    }
+    public void inline(Inliner in) {
+        myAssign.inline(in);
+    }
+    public void addWrites(Licm l) {
+        myAssign.addWrites(l);
+    }
+    public void hoist(Licm l) {
+        myAssign.hoist(l);
+    }
+    public int numNodes() {
+        return 1 + myAssign.numNodes();
+    }
+    public StmtNode copy(Inliner in) {
+        AssignStmtNode node = (AssignStmtNode)shallowCopy();
+        node.myAssign = (AssignNode)myAssign.copy(in);
+        return node;
+    }
+    public void lower(IrBuilder b) {
+        myAssign.lower(b);
+    }
     public void codeGen(String fnExitLabel) {
-        myAssign.codeGenExp();
+        myAssign.codeGenStmt();
     }
     public void unparse(PrintWriter p, int indent) {
         addIndent(p, indent);
@@ -973,17 +1931,47 @@ class PostIncStmtNode extends StmtNode {
                          "Arithmetic operator applied to non-numeric operand");
         }
     }
+    public void fold() {
+        // the operand is a variable
+    }
+    public void addReads(Set<Sym> reads) {
+        // the variable is only read to be written back
+    }
+    public boolean removeDeadCode(List<StmtNode> out, Set<Sym> reads) {
+        if (myExp instanceof IdNode && ((IdNode)myExp).isUnreadLocal(reads)) {
+            return true;
+        }
+        out.add(this);
+        return false;
+    }
+    public void addWrites(Licm l) {
+        if (myExp instanceof IdNode) {
+            l.addWrite(((IdNode)myExp).sym());
+        }
+    }
+    public int numNodes() {
+        return 1 + myExp.numNodes();
+    }
+    public StmtNode copy(Inliner in) {
+        PostIncStmtNode node = (PostIncStmtNode)shallowCopy();
+        node.myExp = myExp.copy(in);
+        return node;
+    }
+    public void lower(IrBuilder b) {
+        IdNode node = (IdNode) myExp;
+        node.lowerStore(b, b.op(IrInsn.ADD, node.lower(b), IrBuilder.ONE));
+    }
     public void codeGen(String fnExitLabel) {
         assert (myExp instanceof IdNode);
         IdNode node = (IdNode) myExp;
-        node.codeGenLoc();
-        node.codeGenExp();
-        // value
-        Codegen.genPop(Codegen.T0);
-        // address
-        Codegen.genPop(Codegen.T1);
+        String home = node.homeRegister();
+        if (home != null) {
+            Codegen.generate("add", home, home, 1);
+            return;
+        }
+        node.codeGenCommon();
         Codegen.generate("add", Codegen.T0, Codegen.T0, 1);
-        Codegen.generateIndexed("sw", Codegen.T0, Codegen.T1, 0);
+        node.codeGenStore(Codegen.T0);
     }
     public void unparse(PrintWriter p, int indent) {
         addIndent(p, indent);
@@ -1019,17 +2007,47 @@ class PostDecStmtNode extends StmtNode {
                          "Arithmetic operator applied to non-numeric operand");
         }
     }
+    public void fold() {
+        // the operand is a variable
+    }
+    public void addReads(Set<Sym> reads) {
+        // the variable is only read to be written back
+    }
+    public boolean removeDeadCode(List<StmtNode> out, Set<Sym> reads) {
+        if (myExp instanceof IdNode && ((IdNode)myExp).isUnreadLocal(reads)) {
+            return true;
+        }
+        out.add(this);
+        return false;
+    }
+    public void addWrites(Licm l) {
+        if (myExp instanceof IdNode) {
+            l.addWrite(((IdNode)myExp).sym());
+        }
+    }
+    public int numNodes() {
+        return 1 + myExp.numNodes();
+    }
+    public StmtNode copy(Inliner in) {
+        PostDecStmtNode node = (PostDecStmtNode)shallowCopy();
+        node.myExp = myExp.copy(in);
+        return node;
+    }
+    public void lower(IrBuilder b) {
+        IdNode node = (IdNode) myExp;
+        node.lowerStore(b, b.op(IrInsn.SUB, node.lower(b), IrBuilder.ONE));
+    }
     public void codeGen(String fnExitLabel) {
         assert (myExp instanceof IdNode);
         IdNode node = (IdNode) myExp;
-        node.codeGenLoc();
-        node.codeGenExp();
-        // value
-        Codegen.genPop(Codegen.T0);
-        // address
-        Codegen.genPop(Codegen.T1);
+        String home = node.homeRegister();
+        if (home != null) {
+            Codegen.generate("sub", home, home, 1);
+            return;
+        }
+        node.codeGenCommon();
         Codegen.generate("sub", Codegen.T0, Codegen.T0, 1);
-        Codegen.generateIndexed("sw", Codegen.T0, Codegen.T1, 0);
+        node.codeGenStore(Codegen.T0);
     }
     public void unparse(PrintWriter p, int indent) {
         addIndent(p, indent);
@@ -1075,6 +2093,33 @@ class ReadStmtNode extends StmtNode {
                          "Attempt to read a struct variable");
         }
     }
+    public void fold() {
+        // the operand is a variable
+    }
+    public void addReads(Set<Sym> reads) {
+        // the input is read even if the variable is not
+    }
+    public void addWrites(Licm l) {
+        if (myExp instanceof IdNode) {
+            l.addWrite(((IdNode)myExp).sym());
+        }
+    }
+    public int numNodes() {
+        return 1 + myExp.numNodes();
+    }
+    public StmtNode copy(Inliner in) {
+        ReadStmtNode node = (ReadStmtNode)shallowCopy();
+        node.myExp = myExp.copy(in);
+        return node;
+    }
+    public void lower(IrBuilder b) {
+        IdNode node = (IdNode) myExp;
+        IrValue value = b.op(IrInsn.READ);
+        if(node.sym().getType().isBoolType()){
+            value = b.op(IrInsn.SNE, value, IrBuilder.ZERO);
+        }
+        node.lowerStore(b, value);
+    }
     public void codeGen(String fnExitLabel) {
         // only read int or boolean
         // for boolean, if not 0 then true
@@ -1082,14 +2127,11 @@ class ReadStmtNode extends StmtNode {
         Codegen.generate("li", Codegen.V0, 5);
         Codegen.generate("syscall");
         IdNode node = (IdNode) myExp;
-        node.codeGenLoc();
-        // address of the target node
-        Codegen.genPop(Codegen.T0);
         if(node.sym().getType().isBoolType()){
-            Codegen.generate("sne", Codegen.T1, Codegen.V0, Codegen.FALSE);
-            Codegen.generateIndexed("sw", Codegen.T1, Codegen.T0, 0);
+            Codegen.generate("sne", Codegen.T0, Codegen.V0, Codegen.FALSE);
+            node.codeGenStore(Codegen.T0);
         }else{
-            Codegen.generateIndexed("sw", Codegen.V0, Codegen.T0, 0);
+            node.codeGenStore(Codegen.V0);
         }
         
     }
@@ -1143,11 +2185,38 @@ class WriteStmtNode extends StmtNode {
                          "Attempt to write void");
         }
     }
+    public void fold() {
+        myExp = myExp.fold();
+    }
+    public void addReads(Set<Sym> reads) {
+        myExp.addReads(reads);
+    }
+    public void inline(Inliner in) {
+        myExp = myExp.inline(in);
+    }
+    public void addWrites(Licm l) {
+        myExp.addWrites(l);
+    }
+    public void hoist(Licm l) {
+        myExp = myExp.hoist(l);
+    }
+    public int numNodes() {
+        return 1 + myExp.numNodes();
+    }
+    public StmtNode copy(Inliner in) {
+        WriteStmtNode node = (WriteStmtNode)shallowCopy();
+        node.myExp = myExp.copy(in);
+        return node;
+    }
+    public void lower(IrBuilder b) {
+        b.emit(new IrInsn(IrInsn.WRITE, null, myExp.lower(b)));
+    }
     public void codeGen(String fnExitLabel) {
-        myExp.codeGenExp();
-        Type expType = myExp.typeCheck();
-        Codegen.genPop(Codegen.T0);
-        Codegen.generate("move", Codegen.A0, Codegen.T0);
+        myExp.codeGenCommon();
+        Type expType = myExp.type();
+        if (!Codegen.retargetLast(Codegen.T0, Codegen.A0)) {
+            Codegen.generate("move", Codegen.A0, Codegen.T0);
+        }
         int sysCallCode = 1;
         if(expType.isStringType()) {
             sysCallCode = 4;
@@ -1210,10 +2279,69 @@ class IfStmtNode extends StmtNode {
         
         myStmtList.typeCheck(retType);
     }
+    public void fold() {
+        myExp = myExp.fold();
+        myStmtList.fold();
+    }
+    public void addReads(Set<Sym> reads) {
+        myExp.addReads(reads);
+        myStmtList.addReads(reads);
+    }
+    public boolean removeDeadCode(List<StmtNode> out, Set<Sym> reads) {
+        Integer cond = myExp.constValue();
+        if (cond != null) {
+            if (cond != 0) {
+                myStmtList.removeDeadCode(out, reads);
+            }
+            return true;
+        }
+        boolean changed = myStmtList.removeDeadCode(reads);
+        if (myStmtList.isEmpty() && !myExp.hasSideEffects()) {
+            return true;
+        }
+        out.add(this);
+        return changed;
+    }
+    public void markTailCalls(FnDeclNode fn) {
+        myStmtList.markTailCalls(fn);
+    }
+    public void inline(Inliner in) {
+        myExp = myExp.inline(in);
+        myStmtList.inline(in);
+    }
+    public void addWrites(Licm l) {
+        myExp.addWrites(l);
+        myStmtList.addWrites(l);
+    }
+    public void hoist(Licm l) {
+        myExp = myExp.hoist(l);
+        myStmtList.hoist(l);
+    }
+    public void hoistLoops(List<StmtNode> out, Licm l) {
+        out.add(this);
+        myStmtList.hoistLoops(l);
+    }
+    public int numNodes() {
+        return 1 + myExp.numNodes() + myStmtList.numNodes();
+    }
+    public StmtNode copy(Inliner in) {
+        IfStmtNode node = (IfStmtNode)shallowCopy();
+        node.myExp = myExp.copy(in);
+        node.myStmtList = myStmtList.copy(in);
+        return node;
+    }
+    public void lower(IrBuilder b) {
+        IrBlock thenBlock = b.newBlock();
+        IrBlock doneBlock = b.newBlock();
+        myExp.lowerJump(b, thenBlock, doneBlock);
+        b.setBlock(thenBlock);
+        myStmtList.lower(b);
+        b.setBlock(doneBlock);
+    }
     public void codeGen(String fnExitLabel) {
         String trueLab = Codegen.nextLabel();
         String doneLab = Codegen.nextLabel();
-        myExp.codeGenJump(trueLab, doneLab);
+        myExp.codeGenJump(trueLab, doneLab, trueLab);
         Codegen.genLabel(trueLab);
         myStmtList.codeGen(fnExitLabel);
         Codegen.genLabel(doneLab);
@@ -1301,11 +2429,85 @@ class IfElseStmtNode extends StmtNode {
         myThenStmtList.typeCheck(retType);
         myElseStmtList.typeCheck(retType);
     }
+    public void fold() {
+        myExp = myExp.fold();
+        myThenStmtList.fold();
+        myElseStmtList.fold();
+    }
+    public void addReads(Set<Sym> reads) {
+        myExp.addReads(reads);
+        myThenStmtList.addReads(reads);
+        myElseStmtList.addReads(reads);
+    }
+    public boolean removeDeadCode(List<StmtNode> out, Set<Sym> reads) {
+        Integer cond = myExp.constValue();
+        if (cond != null) {
+            (cond != 0 ? myThenStmtList : myElseStmtList).removeDeadCode(out, reads);
+            return true;
+        }
+        boolean changed = myThenStmtList.removeDeadCode(reads);
+        changed |= myElseStmtList.removeDeadCode(reads);
+        if (myThenStmtList.isEmpty() && myElseStmtList.isEmpty()
+            && !myExp.hasSideEffects()) {
+            return true;
+        }
+        out.add(this);
+        return changed;
+    }
+    public boolean alwaysReturns() {
+        return myThenStmtList.alwaysReturns() && myElseStmtList.alwaysReturns();
+    }
+    public void markTailCalls(FnDeclNode fn) {
+        myThenStmtList.markTailCalls(fn);
+        myElseStmtList.markTailCalls(fn);
+    }
+    public void inline(Inliner in) {
+        myExp = myExp.inline(in);
+        myThenStmtList.inline(in);
+        myElseStmtList.inline(in);
+    }
+    public void addWrites(Licm l) {
+        myExp.addWrites(l);
+        myThenStmtList.addWrites(l);
+        myElseStmtList.addWrites(l);
+    }
+    public void hoist(Licm l) {
+        myExp = myExp.hoist(l);
+        myThenStmtList.hoist(l);
+        myElseStmtList.hoist(l);
+    }
+    public void hoistLoops(List<StmtNode> out, Licm l) {
+        out.add(this);
+        myThenStmtList.hoistLoops(l);
+        myElseStmtList.hoistLoops(l);
+    }
+    public int numNodes() {
+        return 1 + myExp.numNodes() + myThenStmtList.numNodes() + myElseStmtList.numNodes();
+    }
+    public StmtNode copy(Inliner in) {
+        IfElseStmtNode node = (IfElseStmtNode)shallowCopy();
+        node.myExp = myExp.copy(in);
+        node.myThenStmtList = myThenStmtList.copy(in);
+        node.myElseStmtList = myElseStmtList.copy(in);
+        return node;
+    }
+    public void lower(IrBuilder b) {
+        IrBlock thenBlock = b.newBlock();
+        IrBlock elseBlock = b.newBlock();
+        IrBlock doneBlock = b.newBlock();
+        myExp.lowerJump(b, thenBlock, elseBlock);
+        b.setBlock(thenBlock);
+        myThenStmtList.lower(b);
+        b.jump(doneBlock);
+        b.setBlock(elseBlock);
+        myElseStmtList.lower(b);
+        b.setBlock(doneBlock);
+    }
     public void codeGen(String fnExitLabel) {
         String trueLab = Codegen.nextLabel();
         String falseLab = Codegen.nextLabel();
         String doneLab = Codegen.nextLabel();
-        myExp.codeGenJump(trueLab, falseLab);
+        myExp.codeGenJump(trueLab, falseLab, trueLab);
         Codegen.genLabel(trueLab);
         myThenStmtList.codeGen(fnExitLabel);
         Codegen.generate("b", doneLab);
@@ -1354,6 +2556,8 @@ class WhileStmtNode extends StmtNode {
      * - exit the scope
      */
     public void nameAnalysis(SymTable symTab) {
+        // uses in the loop count more (see Sym.addUse)
+        Compilation.current().loopDepth++;
         myExp.nameAnalysis(symTab);
         symTab.addScope();
         myDeclList.nameAnalysis(symTab);
@@ -1365,6 +2569,7 @@ class WhileStmtNode extends StmtNode {
                                " in IfStmtNode.nameAnalysis");
             System.exit(-1);        
         }
+        Compilation.current().loopDepth--;
     }
     
     /**
@@ -1380,15 +2585,86 @@ class WhileStmtNode extends StmtNode {
         
         myStmtList.typeCheck(retType);
     }
-    public void codeGen(String fnExitLabel) {
-        String condLabel = Codegen.nextLabel();
+    public void fold() {
+        myExp = myExp.fold();
+        myStmtList.fold();
+    }
+    public void addReads(Set<Sym> reads) {
+        myExp.addReads(reads);
+        myStmtList.addReads(reads);
+    }
+    public boolean removeDeadCode(List<StmtNode> out, Set<Sym> reads) {
+        Integer cond = myExp.constValue();
+        if (cond != null && cond == 0) {
+            return true;
+        }
+        out.add(this);
+        return myStmtList.removeDeadCode(reads);
+    }
+    public void markTailCalls(FnDeclNode fn) {
+        myStmtList.markTailCalls(fn);
+    }
+    public void inline(Inliner in) {
+        // the condition runs as often as the body
+        in.enterLoop();
+        myExp = myExp.inline(in);
+        myStmtList.inline(in);
+        in.exitLoop();
+    }
+    public void addWrites(Licm l) {
+        myExp.addWrites(l);
+        myStmtList.addWrites(l);
+    }
+    public void hoist(Licm l) {
+        l.enterLoop();
+        myExp = myExp.hoist(l);
+        myStmtList.hoist(l);
+        l.exitLoop();
+    }
+    public void hoistLoops(List<StmtNode> out, Licm l) {
+        // the condition runs as often as the body
+        l.beginLoop();
+        addWrites(l);
+        l.enterLoop();
+        myExp = myExp.hoist(l);
+        myStmtList.hoist(l);
+        out.addAll(l.endLoop());
+        out.add(this);
+        myStmtList.hoistLoops(l);
+        l.exitLoop();
+    }
+    public int numNodes() {
+        return 1 + myExp.numNodes() + myStmtList.numNodes();
+    }
+    public StmtNode copy(Inliner in) {
+        WhileStmtNode node = (WhileStmtNode)shallowCopy();
+        node.myExp = myExp.copy(in);
+        node.myStmtList = myStmtList.copy(in);
+        return node;
+    }
+    public void lower(IrBuilder b) {
+        // the condition is after the body, as in codeGen
+        IrBlock bodyBlock = b.newBlock();
+        IrBlock condBlock = b.newBlock();
+        IrBlock doneBlock = b.newBlock();
+        b.jump(condBlock);
+        b.setBlock(bodyBlock);
+        myStmtList.lower(b);
+        b.setBlock(condBlock);
+        myExp.lowerJump(b, bodyBlock, doneBlock);
+        b.setBlock(doneBlock);
+    }
+    public void codeGen(String fnExitLabel) {
+        // the condition is after the body, so each iteration takes one
+        // branch (back to the body) instead of two
+        String condLabel = Codegen.nextLabel();
         String bodyLabel = Codegen.nextLabel();
         String doneLab = Codegen.nextLabel();
-        Codegen.genLabel(condLabel);
-        myExp.codeGenJump(bodyLabel, doneLab);
+        Codegen.generate("b", condLabel);
         Codegen.genLabel(bodyLabel);
         myStmtList.codeGen(fnExitLabel);
-        Codegen.generate("b", condLabel);
+        Codegen.genLabel(condLabel);
+        myExp.codeGenJump(bodyLabel, doneLab, doneLab);
         Codegen.genLabel(doneLab);
     }
     public void unparse(PrintWriter p, int indent) {
@@ -1422,9 +2698,21 @@ class RepeatStmtNode extends StmtNode {
      * - enter a new scope
      * - process the decls and stmts
      * - exit the scope
+     * The count is kept in a local of its own, which is set once before
+     * the loop and counted down in it (see codeGen).
      */
     public void nameAnalysis(SymTable symTab) {
+        myCount = new Sym(Type.INT);
+        myCount.setOffset(Sym.getLocalInitOffset());
+        Sym.setLocalInitOffset(myCount.getOffset() - 4);
+        FnDeclNode.addLocal(myCount);
+        myCount.addUse();
+        // the count is evaluated once, before the loop; uses in the loop
+        // count more (see Sym.addUse)
         myExp.nameAnalysis(symTab);
+        Compilation.current().loopDepth++;
+        myCount.addUse();
+        myCount.addUse();
         symTab.addScope();
         myDeclList.nameAnalysis(symTab);
         myStmtList.nameAnalysis(symTab);
@@ -1435,6 +2723,7 @@ class RepeatStmtNode extends StmtNode {
                                " in IfStmtNode.nameAnalysis");
             System.exit(-1);        
         }
+        Compilation.current().loopDepth--;
     }
     
     /**
@@ -1450,9 +2739,138 @@ class RepeatStmtNode extends StmtNode {
         
         myStmtList.typeCheck(retType);
     }
+    public void fold() {
+        myExp = myExp.fold();
+        myStmtList.fold();
+    }
+    public void addReads(Set<Sym> reads) {
+        // the count is read each time around the loop, unless there is
+        // no loop; then it gets no register (see FnDeclNode.codeGen)
+        if (!this.isUnrolled()) {
+            reads.add(myCount);
+        }
+        myExp.addReads(reads);
+        myStmtList.addReads(reads);
+    }
+    public boolean removeDeadCode(List<StmtNode> out, Set<Sym> reads) {
+        Integer count = myExp.constValue();
+        if (count != null && count <= 0) {
+            return true;
+        }
+        out.add(this);
+        return myStmtList.removeDeadCode(reads);
+    }
+    public void markTailCalls(FnDeclNode fn) {
+        myStmtList.markTailCalls(fn);
+    }
+    public void inline(Inliner in) {
+        // the count is only evaluated once
+        myExp = myExp.inline(in);
+        in.enterLoop();
+        myStmtList.inline(in);
+        in.exitLoop();
+    }
+    public void addWrites(Licm l) {
+        myExp.addWrites(l);
+        myStmtList.addWrites(l);
+    }
+    public void hoist(Licm l) {
+        myExp = myExp.hoist(l);
+        l.enterLoop();
+        myStmtList.hoist(l);
+        l.exitLoop();
+    }
+    public void hoistLoops(List<StmtNode> out, Licm l) {
+        // the count is only evaluated once, but the values hoisted out of
+        // the body go before it, so they must not read what it writes
+        l.beginLoop();
+        addWrites(l);
+        l.enterLoop();
+        myStmtList.hoist(l);
+        out.addAll(l.endLoop());
+        out.add(this);
+        myStmtList.hoistLoops(l);
+        l.exitLoop();
+    }
+    public int numNodes() {
+        return 1 + myExp.numNodes() + myStmtList.numNodes();
+    }
+    public StmtNode copy(Inliner in) {
+        RepeatStmtNode node = (RepeatStmtNode)shallowCopy();
+        node.myCount = in.local(myCount);
+        node.myExp = myExp.copy(in);
+        node.myStmtList = myStmtList.copy(in);
+        return node;
+    }
+    public void lower(IrBuilder b) {
+        // the body runs as many times as the value of the exp, if it is
+        // positive
+        IrBlock bodyBlock = b.newBlock();
+        IrBlock condBlock = b.newBlock();
+        IrBlock doneBlock = b.newBlock();
+        IrValue count = b.newTemp();
+        b.move(count, myExp.lower(b));
+        b.jump(condBlock);
+        b.setBlock(bodyBlock);
+        myStmtList.lower(b);
+        b.emit(new IrInsn(IrInsn.SUB, count, count, IrBuilder.ONE));
+        b.setBlock(condBlock);
+        b.branch("bgt", count, IrBuilder.ZERO, bodyBlock, doneBlock);
+        b.setBlock(doneBlock);
+    }
+    /**
+     * codeGen
+     * The body runs as many times as the value of the exp, if it is
+     * positive.  The exp is evaluated once into the count, whose register
+     * (see FnDeclNode.promoteLocals) is counted down at the bottom of the
+     * loop, so each iteration takes one branch.  A body that runs a
+     * literal number of times is repeated that many times instead, if it
+     * is small (see isUnrolled).
+     */
     public void codeGen(String fnExitLabel) {
-        // do nothing
-        
+        Integer count = myExp.constValue();
+        if (this.isUnrolled()) {
+            for (int k = 0; k < count; k++) {
+                myStmtList.codeGen(fnExitLabel);
+            }
+            return;
+        }
+        String bodyLabel = Codegen.nextLabel();
+        String doneLabel = Codegen.nextLabel();
+        String reg = myCount.getRegister();
+        myExp.codeGenCommon();
+        if (reg == null) {
+            reg = Codegen.T0;
+            Codegen.generateIndexed("sw", reg, Codegen.FP, myCount.getOffset());
+        } else if (!Codegen.retargetLast(Codegen.T0, reg)) {
+            Codegen.generate("move", reg, Codegen.T0);
+        }
+        if (count == null) {
+            Codegen.generate("blez", reg, doneLabel);
+        }
+        Codegen.genLabel(bodyLabel);
+        myStmtList.codeGen(fnExitLabel);
+        if (myCount.getRegister() == null) {
+            Codegen.generateIndexed("lw", reg, Codegen.FP, myCount.getOffset());
+            Codegen.generate("sub", reg, reg, 1);
+            Codegen.generateIndexed("sw", reg, Codegen.FP, myCount.getOffset());
+        } else {
+            Codegen.generate("sub", reg, reg, 1);
+        }
+        Codegen.generate("bgtz", reg, bodyLabel);
+        Codegen.genLabel(doneLabel);
+    }
+
+    /**
+     * Return true if the count is a literal and the body, repeated that
+     * many times, has at most MAX_UNROLLED_NODES nodes, so it is generated
+     * that many times in a row with no count (or not at all if the count
+     * is zero or less).  This is known before the locals get registers,
+     * so the count does not take one for nothing.
+     */
+    private boolean isUnrolled() {
+        Integer count = myExp.constValue();
+        return count != null && (long)count * myStmtList.numNodes() <= MAX_UNROLLED_NODES;
     }
     public void unparse(PrintWriter p, int indent) {
         addIndent(p, indent);
@@ -1469,11 +2887,19 @@ class RepeatStmtNode extends StmtNode {
     private ExpNode myExp;
     private DeclListNode myDeclList;
     private StmtListNode myStmtList;
+
+    // local the count is kept in
+    private Sym myCount;
+
+    // most nodes a body with a literal count is unrolled into: a few
+    // iterations of a short body, which would each take a decrement and a
+    // branch as a loop
+    private static final int MAX_UNROLLED_NODES = 24;
 }
 
 
 class CallStmtNode extends StmtNode {
-    public CallStmtNode(CallExpNode call) {
+    public CallStmtNode(ExpNode call) {
         myCall = call;
     }
     
@@ -1491,6 +2917,32 @@ class CallStmtNode extends StmtNode {
     public void typeCheck(Type retType) {
         myCall.typeCheck();
     }
+    public void fold() {
+        myCall.fold();
+    }
+    public void addReads(Set<Sym> reads) {
+        myCall.addReads(reads);
+    }
+    public void inline(Inliner in) {
+        myCall = myCall.inline(in);
+    }
+    public void addWrites(Licm l) {
+        myCall.addWrites(l);
+    }
+    public void hoist(Licm l) {
+        myCall = myCall.hoist(l);
+    }
+    public int numNodes() {
+        return 1 + myCall.numNodes();
+    }
+    public StmtNode copy(Inliner in) {
+        CallStmtNode node = (CallStmtNode)shallowCopy();
+        node.myCall = myCall.copy(in);
+        return node;
+    }
+    public void lower(IrBuilder b) {
+        myCall.lower(b);
+    }
     public void codeGen(String fnExitLabel) {
         myCall.codeGenCommon();
     }
@@ -1500,8 +2952,8 @@ class CallStmtNode extends StmtNode {
         p.println(";");
     }
 
-    // 1 kid
-    private CallExpNode myCall;
+    // 1 kid (a CallExpNode, or the InlineExpNode that replaced it)
+    private ExpNode myCall;
 }
 
 class ReturnStmtNode extends StmtNode {
@@ -1545,11 +2997,67 @@ class ReturnStmtNode extends StmtNode {
         }
         
     }
+    public void fold() {
+        if (myExp != null) {
+            myExp = myExp.fold();
+        }
+    }
+    public void addReads(Set<Sym> reads) {
+        if (myExp != null) {
+            myExp.addReads(reads);
+        }
+    }
+    public boolean alwaysReturns() {
+        return true;
+    }
+    public void lower(IrBuilder b) {
+        if (myExp!=null && !myExp.type().isVoidType()) {
+            b.ret(myExp.lower(b));
+        } else {
+            b.ret(null);
+        }
+    }
+    public void inline(Inliner in) {
+        if (myExp != null) {
+            myExp = myExp.inline(in);
+        }
+    }
+    public void addWrites(Licm l) {
+        if (myExp != null) {
+            myExp.addWrites(l);
+        }
+    }
+    public void hoist(Licm l) {
+        if (myExp != null) {
+            myExp = myExp.hoist(l);
+        }
+    }
+    public int numNodes() {
+        return myExp == null ? 1 : 1 + myExp.numNodes();
+    }
+    public StmtNode copy(Inliner in) {
+        // a return in the copy is not a tail call (see InlineExpNode)
+        ReturnStmtNode node = (ReturnStmtNode)shallowCopy();
+        node.myExp = myExp == null ? null : myExp.copy(in);
+        node.myTailCallOf = null;
+        return node;
+    }
+    public void markTailCalls(FnDeclNode fn) {
+        if (myExp instanceof CallExpNode) {
+            myTailCallOf = fn;
+            fn.addTailCall((CallExpNode)myExp);
+        }
+    }
     public void codeGen(String labelFnEnd) {
-        if (myExp!=null && !myExp.typeCheck().isVoidType()) {
-            myExp.codeGenExp();
+        if (myTailCallOf != null && myTailCallOf.codeGenTailCall((CallExpNode)myExp)) {
+            return;
+        }
+        if (myExp!=null && !myExp.type().isVoidType()) {
+            myExp.codeGenCommon();
             // store the return value into V0
-            Codegen.genPop(Codegen.V0);
+            if (!Codegen.retargetLast(Codegen.T0, Codegen.V0)) {
+                Codegen.generate("move", Codegen.V0, Codegen.T0);
+            }
         }
         Codegen.generate("b", labelFnEnd);
     }
@@ -1565,6 +3073,9 @@ class ReturnStmtNode extends StmtNode {
 
     // 1 kid
     private ExpNode myExp; // possibly null
+
+    // function the call returned is a tail call of, or null
+    private FnDeclNode myTailCallOf;
 }
 
 // **********************************************************************
@@ -1577,15 +3088,203 @@ abstract class ExpNode extends ASTnode {
      */
     public void nameAnalysis(SymTable symTab) { }
     
-    abstract public Type typeCheck();
+    /**
+     * typeCheck
+     * Compute the type of this expression with checkType and remember it,
+     * so that later phases can get it from type() without walking the
+     * subtree again.
+     */
+    public Type typeCheck() {
+        myExpType = checkType();
+        return myExpType;
+    }
+
+    /**
+     * Return the type computed by the last typeCheck.
+     */
+    public Type type() {
+        return myExpType;
+    }
+
+    abstract protected Type checkType();
     abstract public int lineNum();
     abstract public int charNum();
+
+    /**
+     * fold
+     * Return the expression to generate code for in place of this one,
+     * after typeCheck: a literal if its value is known at compile time,
+     * a simpler expression if an operand makes the operation trivial
+     * (x + 0, x * 0, true && x), else this expression with its operands
+     * folded.  Values wrap around as in the generated code, and an
+     * operand with side effects is never dropped.
+     */
+    public ExpNode fold() {
+        return this;
+    }
+
+    /**
+     * Add the variables this expression reads to reads.
+     */
+    public void addReads(Set<Sym> reads) {
+    }
+
+    /**
+     * inline
+     * Return the expression to generate code for in place of this one: a
+     * call that the given inliner chooses is replaced with a copy of the
+     * callee's body (see Inliner), and the calls in the operands are
+     * looked at first.
+     */
+    public ExpNode inline(Inliner in) {
+        return this;
+    }
+
+    /**
+     * Return a copy of this expression for the given inliner, with its
+     * locals replaced (see Inliner.local).
+     */
+    public ExpNode copy(Inliner in) {
+        return (ExpNode)shallowCopy();
+    }
+
+    /**
+     * Return the number of AST nodes in this expression.
+     */
+    public int numNodes() {
+        return 1;
+    }
+
+    /**
+     * Tell the given pass which variables this expression writes and
+     * whether it makes a call (see Licm).
+     */
+    public void addWrites(Licm l) {
+    }
+
+    /**
+     * Return true if this expression has the same value every time the
+     * loop the given pass is looking at evaluates it, and evaluating it
+     * before the loop has no effect and cannot fail: a literal, a variable
+     * the loop does not change, or an operation on those.
+     */
+    public boolean isInvariant(Licm l) {
+        return constValue() != null;
+    }
+
+    /**
+     * hoist
+     * Return the expression to generate code for in place of this one in
+     * the loop the given pass is looking at: the largest invariant
+     * operations in it, and the globals it reads that the loop does not
+     * change, are replaced with new locals computed before the loop (see
+     * Licm.hoist).
+     */
+    public ExpNode hoist(Licm l) {
+        return this;
+    }
+
+    /**
+     * Return the value of this expression if it is an int or bool literal
+     * (true is 1, false is 0), else null.
+     */
+    public Integer constValue() {
+        return null;
+    }
+
+    /**
+     * Give this expression, made by fold, the type of the expression it
+     * replaces, and return it.
+     */
+    protected ExpNode typed(Type type) {
+        myExpType = type;
+        return this;
+    }
+
+    /**
+     * Return an int literal with the given value in place of this
+     * expression.
+     */
+    protected ExpNode intLit(int value) {
+        return new IntLitNode(lineNum(), charNum(), value).typed(Type.INT);
+    }
+
+    /**
+     * Return true or false in place of this expression.
+     */
+    protected ExpNode boolLit(boolean value) {
+        ExpNode lit = value ? new TrueNode(lineNum(), charNum())
+                            : new FalseNode(lineNum(), charNum());
+        return lit.typed(Type.BOOL);
+    }
+
+    /**
+     * codeGen
+     * An expression is evaluated by codeGenReg(reg) into the register
+     * Codegen.TEMPS[reg], using only that register and the ones after it,
+     * so the values already in the registers before it are kept.
+     * codeGenCommon evaluates into $t0, and codeGenExp also pushes it.
+     */
     public void codeGenExp(){
         this.codeGenCommon();
         Codegen.genPush(Codegen.T0);
     };
-    abstract protected void codeGenCommon();
-    public void codeGenJump(String trueLabel, String falseLabel) {}
+    protected void codeGenCommon() {
+        this.codeGenReg(0);
+    }
+    abstract protected void codeGenReg(int reg);
+
+    /**
+     * lower
+     * Add the IR that evaluates this expression to the function being
+     * built, and return its value.
+     */
+    abstract public IrValue lower(IrBuilder b);
+
+    /**
+     * Add the IR that goes to ifTrue if this (bool) expression is true and
+     * to ifFalse if it is false.
+     */
+    public void lowerJump(IrBuilder b, IrBlock ifTrue, IrBlock ifFalse) {
+        b.branch("bne", lower(b), IrBuilder.ZERO, ifTrue, ifFalse);
+    }
+
+    /**
+     * Generate code that goes to trueLabel if this (bool) expression is
+     * true and to falseLabel if it is false.  next is the label of the
+     * code that follows, or null; no jump is generated to it.
+     */
+    public void codeGenJump(String trueLabel, String falseLabel, String next) {
+        this.codeGenCommon();
+        Codegen.genBranch("bne", Codegen.T0, Codegen.FALSE, trueLabel, falseLabel, next);
+    }
+
+    /**
+     * Return the number of registers needed to evaluate this expression
+     * without pushing anything (its Sethi-Ullman number).
+     */
+    public int regsNeeded() {
+        return 1;
+    }
+
+    /**
+     * Return true if evaluating this expression can change a variable or
+     * write output, so it has to be evaluated in source order.
+     */
+    public boolean hasSideEffects() {
+        return false;
+    }
+
+    /**
+     * Return the register that already holds the value of this expression
+     * (a variable kept in a register), or null.
+     */
+    public String homeRegister() {
+        return null;
+    }
+
+    // type computed by typeCheck
+    private Type myExpType;
 }
 
 class IntLitNode extends ExpNode {
@@ -1610,13 +3309,19 @@ class IntLitNode extends ExpNode {
     }
         
     /**
-     * typeCheck
+     * checkType
      */
-    public Type typeCheck() {
-        return new IntType();
+    protected Type checkType() {
+        return Type.INT;
     }
-    protected void codeGenCommon() {
-        Codegen.generate("li", "$t0", String.valueOf(this.myIntVal));
+    public Integer constValue() {
+        return myIntVal;
+    }
+    protected void codeGenReg(int reg) {
+        Codegen.generate("li", Codegen.TEMPS[reg], this.myIntVal);
+    }
+    public IrValue lower(IrBuilder b) {
+        return IrValue.constant(myIntVal);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print(myIntVal);
@@ -1649,25 +3354,20 @@ class StringLitNode extends ExpNode {
     }
     
     /**
-     * typeCheck
+     * checkType
      */
-    public Type typeCheck() {
-        return new StringType();
-    }
-    protected void codeGenCommon() {
-        String myLabel = null;
-        if(!Codegen.stringMap.containsKey(myStrVal)) {
-            Codegen.p.print("\t.data\n");
-            myLabel = Codegen.nextLabel();
-            Codegen.p.print(String.format("%s:\t.asciiz %s\n", myLabel, myStrVal));
-            Codegen.p.print("\t.text\n");
-            Codegen.stringMap.put(myStrVal, myLabel);
-        }else{
-            myLabel = Codegen.stringMap.get(myStrVal);
-        }
-
-        Codegen.generate("la", Codegen.T0, myLabel);
+    protected Type checkType() {
+        return Type.STRING;
+    }
+    protected void codeGenReg(int reg) {
+        // the literal itself is written with the rest of the pool at the
+        // end of the program
+        String myLabel = Codegen.literals().label(myStrVal);
+        Codegen.generate("la", Codegen.TEMPS[reg], myLabel);
     } 
+    public IrValue lower(IrBuilder b) {
+        return IrValue.string(Codegen.literals().label(myStrVal));
+    }
     public void unparse(PrintWriter p, int indent) {
         p.print(myStrVal);
     }
@@ -1702,17 +3402,27 @@ class TrueNode extends ExpNode {
     }
 
     /**
-     * typeCheck
+     * checkType
      */
-    public Type typeCheck() {
-        return new BoolType();
+    protected Type checkType() {
+        return Type.BOOL;
     }
-    protected void codeGenCommon() {
-        Codegen.generate("li", Codegen.T0, Codegen.TRUE);
+    public Integer constValue() {
+        return 1;
     }
-    public void codeGenJump(String trueLabel, String falseLabel) {
-        this.codeGenCommon();
-        Codegen.generate("b", trueLabel);
+    protected void codeGenReg(int reg) {
+        Codegen.generate("li", Codegen.TEMPS[reg], Codegen.TRUE);
+    }
+    public void codeGenJump(String trueLabel, String falseLabel, String next) {
+        if (!trueLabel.equals(next)) {
+            Codegen.generate("b", trueLabel);
+        }
+    }
+    public IrValue lower(IrBuilder b) {
+        return IrBuilder.ONE;
+    }
+    public void lowerJump(IrBuilder b, IrBlock ifTrue, IrBlock ifFalse) {
+        b.jump(ifTrue);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print("true");
@@ -1743,17 +3453,27 @@ class FalseNode extends ExpNode {
     }
 
     /**
-     * typeCheck
+     * checkType
      */
-    public Type typeCheck() {
-        return new BoolType();
+    protected Type checkType() {
+        return Type.BOOL;
     }
-    protected void codeGenCommon() {
-        Codegen.generate("li", Codegen.T0, Codegen.FALSE);
+    public Integer constValue() {
+        return 0;
     }
-    public void codeGenJump(String trueLabel, String falseLabel) {
-        this.codeGenCommon();
-        Codegen.generate("b", falseLabel);
+    protected void codeGenReg(int reg) {
+        Codegen.generate("li", Codegen.TEMPS[reg], Codegen.FALSE);
+    }
+    public void codeGenJump(String trueLabel, String falseLabel, String next) {
+        if (!falseLabel.equals(next)) {
+            Codegen.generate("b", falseLabel);
+        }
+    }
+    public IrValue lower(IrBuilder b) {
+        return IrBuilder.ZERO;
+    }
+    public void lowerJump(IrBuilder b, IrBlock ifTrue, IrBlock ifFalse) {
+        b.jump(ifFalse);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print("false");
@@ -1764,10 +3484,11 @@ class FalseNode extends ExpNode {
 }
 
 class IdNode extends ExpNode {
-    public IdNode(int lineNum, int charNum, String strVal) {
+    public IdNode(int lineNum, int charNum, String strVal, int nameId) {
         myLineNum = lineNum;
         myCharNum = charNum;
         myStrVal = strVal;
+        myNameId = nameId;
     }
 
     /**
@@ -1783,6 +3504,13 @@ class IdNode extends ExpNode {
     public String name() {
         return myStrVal;
     }
+
+    /**
+     * Return the id of this ID's name in the compilation's NamePool.
+     */
+    public int id() {
+        return myNameId;
+    }
     
     /**
      * Return the symbol associated with this ID.
@@ -1812,18 +3540,19 @@ class IdNode extends ExpNode {
      * - if ok, link to symbol table entry
      */
     public void nameAnalysis(SymTable symTab) {
-        Sym sym = symTab.lookupGlobal(myStrVal);
+        Sym sym = symTab.lookupGlobal(myNameId);
         if (sym == null) {
             ErrMsg.fatal(myLineNum, myCharNum, "Undeclared identifier");
         } else {
             link(sym);
+            sym.addUse();
         }
     }
  
     /**
-     * typeCheck
+     * checkType
      */
-    public Type typeCheck() {
+    protected Type checkType() {
         if (mySym != null) {
             return mySym.getType();
         } 
@@ -1834,28 +3563,110 @@ class IdNode extends ExpNode {
         return null;
     }
 
-    private void codeGenLoad(String command) {
+    private void codeGenLoad(String command, String reg) {
         if(mySym.getOffset() != 1) {
-            Codegen.generateIndexed(command, Codegen.T0, Codegen.FP, this.mySym.getOffset());
+            Codegen.generateIndexed(command, reg, Codegen.FP, this.mySym.getOffset());
         } else {
-            Codegen.generate(command, Codegen.T0, "_" + myStrVal);
+            Codegen.generate(command, reg, "_" + myStrVal);
         }
         
     }
-    protected void codeGenCommon() {
-        this.codeGenLoad("lw");
+    public void addReads(Set<Sym> reads) {
+        reads.add(mySym);
     }
 
-    public void codeGenLoc() {
-        this.codeGenLoad("la");
-        Codegen.genPush(Codegen.T0);
+    public ExpNode copy(Inliner in) {
+        IdNode node = (IdNode)shallowCopy();
+        if (mySym.getOffset() != 1) {
+            node.mySym = in.local(mySym);
+        }
+        return node;
+    }
+
+    public boolean isInvariant(Licm l) {
+        return l.isInvariant(mySym);
+    }
+
+    public ExpNode hoist(Licm l) {
+        // a global is loaded through its label each time, a local is in a
+        // register or its frame word already
+        if (mySym.getOffset() == 1 && l.isInvariant(mySym)) {
+            return l.hoist(this);
+        }
+        return this;
+    }
+
+    /**
+     * Return true if this is a local variable or formal that is not in
+     * reads, so storing into it has no effect.
+     */
+    public boolean isUnreadLocal(Set<Sym> reads) {
+        return mySym.getOffset() != 1 && !reads.contains(mySym);
+    }
+
+    protected void codeGenReg(int reg) {
+        if (homeRegister() != null) {
+            Codegen.generate("move", Codegen.TEMPS[reg], homeRegister());
+        } else {
+            this.codeGenLoad("lw", Codegen.TEMPS[reg]);
+        }
+    }
+
+    /**
+     * Store the given register into this variable.
+     */
+    public void codeGenStore(String reg) {
+        if (homeRegister() != null) {
+            Codegen.generate("move", homeRegister(), reg);
+        } else {
+            this.codeGenLoad("sw", reg);
+        }
+    }
+
+    /**
+     * Return the register this variable is kept in, or null if it is kept
+     * in memory (see FnDeclNode.promoteLocals).
+     */
+    public String homeRegister() {
+        return mySym.getRegister();
+    }
+
+    public int regsNeeded() {
+        return homeRegister() != null ? 0 : 1;
+    }
+
+    public void codeGenJump(String trueLabel, String falseLabel, String next) {
+        String reg = homeRegister();
+        if (reg == null) {
+            reg = Codegen.T0;
+            this.codeGenLoad("lw", reg);
+        }
+        Codegen.genBranch("bne", reg, Codegen.FALSE, trueLabel, falseLabel, next);
+    }
+    /**
+     * Return the value of the variable: a global is loaded, a local or
+     * formal is its temp.
+     */
+    public IrValue lower(IrBuilder b) {
+        if (mySym.getOffset() == 1) {
+            return b.load("_" + myStrVal);
+        }
+        return b.var(myStrVal, mySym);
     }
 
-    public void codeGenJump(String trueLabel, String falseLabel) {
-        this.codeGenLoad("lw");
-        Codegen.generate("beq", Codegen.T0, Codegen.FALSE, falseLabel);
-        Codegen.generate("b", trueLabel);
+    /**
+     * Store the given value into the variable, and return its value.
+     */
+    public IrValue lowerStore(IrBuilder b, IrValue value) {
+        if (mySym.getOffset() == 1) {
+            b.store("_" + myStrVal, value);
+            return value;
+        }
+        IrValue temp = b.var(myStrVal, mySym);
+        b.move(temp, value);
+        return temp;
     }
+
     public void unparse(PrintWriter p, int indent) {
         p.print(myStrVal);
         if (mySym != null) {
@@ -1866,6 +3677,7 @@ class IdNode extends ExpNode {
     private int myLineNum;
     private int myCharNum;
     private String myStrVal;
+    private int myNameId;
     private Sym mySym;
 }
 
@@ -1976,7 +3788,7 @@ class DotAccessExpNode extends ExpNode {
         // do name analysis on RHS of dot-access in the struct's symbol table
         if (!badAccess) {
         
-            sym = structSymTab.lookupGlobal(myId.name()); // lookup
+            sym = structSymTab.lookupGlobal(myId.id()); // lookup
             if (sym == null) { // not found - RHS is not a valid field name
                 ErrMsg.fatal(myId.lineNum(), myId.charNum(), 
                              "Invalid struct field name");
@@ -1995,12 +3807,19 @@ class DotAccessExpNode extends ExpNode {
     }    
  
     /**
-     * typeCheck
+     * checkType
      */
-    public Type typeCheck() {
+    protected Type checkType() {
         return myId.typeCheck();
     }
-    protected void codeGenCommon() {
+    public void addReads(Set<Sym> reads) {
+        myLoc.addReads(reads);
+    }
+    protected void codeGenReg(int reg) {
+    }
+    public IrValue lower(IrBuilder b) {
+        // structs are not lowered, as codeGenReg generates nothing for them
+        return IrBuilder.ZERO;
     }
     public void unparse(PrintWriter p, int indent) {
         myLoc.unparse(p, 0);
@@ -2048,65 +3867,127 @@ class AssignNode extends ExpNode {
     }
  
     /**
-     * typeCheck
+     * checkType
      */
-    public Type typeCheck() {
+    protected Type checkType() {
         Type typeLhs = myLhs.typeCheck();
         Type typeExp = myExp.typeCheck();
         Type retType = typeLhs;
         
         if (typeLhs.isFnType() && typeExp.isFnType()) {
             ErrMsg.fatal(lineNum(), charNum(), "Function assignment");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         if (typeLhs.isStructDefType() && typeExp.isStructDefType()) {
             ErrMsg.fatal(lineNum(), charNum(), "Struct name assignment");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         if (typeLhs.isStructType() && typeExp.isStructType()) {
             ErrMsg.fatal(lineNum(), charNum(), "Struct variable assignment");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }        
         
-        if (!typeLhs.equals(typeExp) && !typeLhs.isErrorType() && !typeExp.isErrorType()) {
+        else if (!typeLhs.equals(typeExp) && !typeLhs.isErrorType() && !typeExp.isErrorType()) {
             ErrMsg.fatal(lineNum(), charNum(), "Type mismatch");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         if (typeLhs.isErrorType() || typeExp.isErrorType()) {
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         return retType;
     }
-    protected void codeGenCommon() {
-        myExp.codeGenExp();
-        if(myLhs instanceof IdNode) {
-            ((IdNode)myLhs).codeGenLoc();
-        }else{
-            // only possbile: struct ignore
-            return;
+    public ExpNode fold() {
+        myExp = myExp.fold();
+        return this;
+    }
+    public ExpNode inline(Inliner in) {
+        myExp = myExp.inline(in);
+        return this;
+    }
+    public void addWrites(Licm l) {
+        if (myLhs instanceof IdNode) {
+            l.addWrite(((IdNode)myLhs).sym());
         }
-        // get the address of lhs
-        Codegen.genPop(Codegen.T1);
-        // get the result of rhs
-        Codegen.genPop(Codegen.T0);
-        // move the result
-        Codegen.generateIndexed("sw", Codegen.T0, Codegen.T1, 0);
+        myExp.addWrites(l);
     }
-
-    public void codeGenJump(String trueLabel, String falseLabel) {
-        this.codeGenCommon();
-        Codegen.generate("beq", Codegen.T0, Codegen.FALSE, falseLabel);
-        Codegen.generate("b", trueLabel);
+    public ExpNode hoist(Licm l) {
+        myExp = myExp.hoist(l);
+        return this;
     }
-    public void unparse(PrintWriter p, int indent) {
-        if (indent != -1)  p.print("(");
-        myLhs.unparse(p, 0);
-        p.print(" = ");
-        myExp.unparse(p, 0);
+    public int numNodes() {
+        return 1 + myLhs.numNodes() + myExp.numNodes();
+    }
+    public ExpNode copy(Inliner in) {
+        AssignNode node = (AssignNode)shallowCopy();
+        node.myLhs = myLhs.copy(in);
+        node.myExp = myExp.copy(in);
+        return node;
+    }
+    public void addReads(Set<Sym> reads) {
+        if (!(myLhs instanceof IdNode)) {
+            myLhs.addReads(reads);
+        }
+        myExp.addReads(reads);
+    }
+
+    /**
+     * Return true if this stores into a local that is not in reads.
+     */
+    public boolean storesUnread(Set<Sym> reads) {
+        return myLhs instanceof IdNode && ((IdNode)myLhs).isUnreadLocal(reads);
+    }
+
+    public ExpNode exp() {
+        return myExp;
+    }
+
+    protected void codeGenReg(int reg) {
+        // the value of the assignment is left in the register
+        myExp.codeGenReg(reg);
+        if(myLhs instanceof IdNode) {
+            ((IdNode)myLhs).codeGenStore(Codegen.TEMPS[reg]);
+        }
+        // else only possbile: struct ignore
+    }
+
+    /**
+     * Generate code for the assignment as a statement: the value is not
+     * needed afterwards, so for a variable kept in a register the last
+     * instruction can write that register instead of $t0.
+     */
+    public void codeGenStmt() {
+        myExp.codeGenCommon();
+        if (myLhs instanceof IdNode) {
+            IdNode lhs = (IdNode)myLhs;
+            String home = lhs.homeRegister();
+            if (home == null || !Codegen.retargetLast(Codegen.T0, home)) {
+                lhs.codeGenStore(Codegen.T0);
+            }
+        }
+    }
+    public int regsNeeded() {
+        return Math.max(1, myExp.regsNeeded());
+    }
+    public boolean hasSideEffects() {
+        return true;
+    }
+
+    public IrValue lower(IrBuilder b) {
+        IrValue value = myExp.lower(b);
+        if (myLhs instanceof IdNode) {
+            return ((IdNode)myLhs).lowerStore(b, value);
+        }
+        return value;
+    }
+    public void unparse(PrintWriter p, int indent) {
+        if (indent != -1)  p.print("(");
+        myLhs.unparse(p, 0);
+        p.print(" = ");
+        myExp.unparse(p, 0);
         if (indent != -1)  p.print(")");
     }
 
@@ -2151,16 +4032,17 @@ class CallExpNode extends ExpNode {
     public void nameAnalysis(SymTable symTab) {
         myId.nameAnalysis(symTab);
         myExpList.nameAnalysis(symTab);
+        FnDeclNode.addCall();
     }  
       
     /**
-     * typeCheck
+     * checkType
      */
-    public Type typeCheck() {
+    protected Type checkType() {
         if (!myId.typeCheck().isFnType()) {  
             ErrMsg.fatal(myId.lineNum(), myId.charNum(), 
                          "Attempt to call a non-function");
-            return new ErrorType();
+            return Type.ERROR;
         }
         
         FnSym fnSym = (FnSym)(myId.sym());
@@ -2179,28 +4061,93 @@ class CallExpNode extends ExpNode {
         myExpList.typeCheck(fnSym.getParamTypes());
         return fnSym.getReturnType();
     }
-    protected void codeGenCommon() {
+    public ExpNode fold() {
+        myExpList.fold();
+        return this;
+    }
+    public ExpNode inline(Inliner in) {
+        myExpList.inline(in);
+        return in.inline(this);
+    }
+    public void addWrites(Licm l) {
+        myExpList.addWrites(l);
+        l.addCall();
+    }
+    public ExpNode hoist(Licm l) {
+        myExpList.hoist(l);
+        return this;
+    }
+    public int numNodes() {
+        return 1 + myExpList.numNodes();
+    }
+    public ExpNode copy(Inliner in) {
+        CallExpNode node = (CallExpNode)shallowCopy();
+        node.myExpList = myExpList.copy(in);
+        return node;
+    }
+    public void addReads(Set<Sym> reads) {
+        myExpList.addReads(reads);
+    }
+    protected void codeGenReg(int reg) {
+        // the callee can use every register, so the values waiting in the
+        // registers before reg are saved around the call
+        for (int k = 0; k < reg; k++) {
+            Codegen.genPush(Codegen.TEMPS[k]);
+        }
         myExpList.codeGen();
         // jump and link
-        String jumpLabel;
-        if (this.myId.name()!="main"){
-            jumpLabel = "_" + this.myId.name();
-        }else{
-            jumpLabel = "main";
+        Codegen.generate("jal", this.label());
+        // reset the sp to remove the params passed on the stack
+        int sizeParams = ((FnSym)this.myId.sym()).getSizeParams();
+        if (sizeParams > 0) {
+            Codegen.generate("add", Codegen.SP, sizeParams);
         }
-        Codegen.generate("jal", jumpLabel);
-        // reset the sp to remove the params
-        Codegen.generate("add", Codegen.SP, ((FnSym)this.myId.sym()).getSizeParams());
         // handle return value
         if(!((FnSym)this.myId.sym()).getReturnType().isVoidType()){
-            // push this as the return value
-            Codegen.genPush(Codegen.V0);
+            // the return value goes in a register like any other value
+            Codegen.generate("move", Codegen.TEMPS[reg], Codegen.V0);
+        }
+        for (int k = reg - 1; k >= 0; k--) {
+            Codegen.genPop(Codegen.TEMPS[k]);
         }
     }
-    // special case for callexp
-    public void codeGenExp() {
-        this.codeGenCommon();
-    } 
+    public boolean hasSideEffects() {
+        return true;
+    }
+    public IrValue lower(IrBuilder b) {
+        IrValue[] args = myExpList.lower(b);
+        FnSym fnSym = (FnSym)this.myId.sym();
+        return b.call(this.label(), !fnSym.getReturnType().isVoidType(), args);
+    }
+
+    public FnSym fnSym() {
+        return (FnSym)this.myId.sym();
+    }
+
+    /**
+     * Evaluate the args of the call into the registers and onto the stack,
+     * as for the call (see ExpListNode.codeGen).
+     */
+    public void codeGenArgs() {
+        myExpList.codeGen();
+    }
+
+    public ExpListNode args() {
+        return myExpList;
+    }
+
+    public String name() {
+        return myId.name();
+    }
+
+    // label of the function
+    public String label() {
+        if (this.myId.id() != NamePool.MAIN){
+            return "_" + this.myId.name();
+        }
+        return "main";
+    }
+
     // ** unparse **
     public void unparse(PrintWriter p, int indent) {
         myId.unparse(p, 0);
@@ -2216,6 +4163,125 @@ class CallExpNode extends ExpNode {
     private ExpListNode myExpList;  // possibly null
 }
 
+/**
+ * An InlineExpNode replaces a call with a copy of the callee's body (see
+ * Inliner).  The args are evaluated as for the call and stored into the
+ * copies of the formals, which are locals of the caller, and a return in
+ * the body leaves its value in $v0 and goes to the end of the copy, not
+ * of the caller.
+ */
+class InlineExpNode extends ExpNode {
+    public InlineExpNode(CallExpNode call, List<IdNode> formals, StmtListNode body) {
+        myCall = call;
+        myFormals = formals;
+        myBody = body;
+        typed(call.type());
+    }
+
+    /**
+     * Return the line number of the call.
+     */
+    public int lineNum() {
+        return myCall.lineNum();
+    }
+
+    /**
+     * Return the char number of the call.
+     */
+    public int charNum() {
+        return myCall.charNum();
+    }
+
+    /**
+     * checkType
+     * The call was checked before it was replaced.
+     */
+    protected Type checkType() {
+        return myCall.type();
+    }
+    public void addReads(Set<Sym> reads) {
+        myCall.addReads(reads);
+        myBody.addReads(reads);
+    }
+    public boolean hasSideEffects() {
+        return true;
+    }
+    public void addWrites(Licm l) {
+        // the args are stored into the copies of the formals, and the body
+        // makes the calls of the callee
+        myCall.args().addWrites(l);
+        for (IdNode id : myFormals) {
+            if (id != null) {
+                l.addWrite(id.sym());
+            }
+        }
+        myBody.addWrites(l);
+    }
+    public ExpNode hoist(Licm l) {
+        myCall.args().hoist(l);
+        myBody.hoist(l);
+        return this;
+    }
+    public int numNodes() {
+        int size = 1 + myCall.numNodes() + myBody.numNodes();
+        for (IdNode id : myFormals) {
+            if (id != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+    public ExpNode copy(Inliner in) {
+        InlineExpNode node = (InlineExpNode)shallowCopy();
+        node.myCall = (CallExpNode)myCall.copy(in);
+        node.myFormals = new ArrayList<IdNode>();
+        for (IdNode id : myFormals) {
+            node.myFormals.add(id == null ? null : (IdNode)id.copy(in));
+        }
+        node.myBody = myBody.copy(in);
+        return node;
+    }
+
+    protected void codeGenReg(int reg) {
+        // the body can use every register, as the callee could
+        for (int k = 0; k < reg; k++) {
+            Codegen.genPush(Codegen.TEMPS[k]);
+        }
+        myCall.args().codeGenStores(myFormals);
+        String exitLabel = Codegen.nextLabel();
+        myBody.codeGen(exitLabel);
+        Codegen.genLabel(exitLabel);
+        if (!type().isVoidType()) {
+            Codegen.generate("move", Codegen.TEMPS[reg], Codegen.V0);
+        }
+        for (int k = reg - 1; k >= 0; k--) {
+            Codegen.genPop(Codegen.TEMPS[k]);
+        }
+    }
+
+    public IrValue lower(IrBuilder b) {
+        myCall.args().lowerStores(b, myFormals);
+        IrBlock exit = b.newBlock();
+        IrValue value = type().isVoidType() ? null : b.newTemp();
+        b.beginInline(exit, value);
+        myBody.lower(b);
+        b.endInline();
+        b.setBlock(exit);
+        return value;
+    }
+
+    public void unparse(PrintWriter p, int indent) {
+        myCall.unparse(p, indent);
+    }
+
+    // the call replaced, whose args are evaluated, the copies of the
+    // formals (null for one the body does not use) and the copy of the
+    // body
+    private CallExpNode myCall;
+    private List<IdNode> myFormals;
+    private StmtListNode myBody;
+}
+
 abstract class UnaryExpNode extends ExpNode {
     public UnaryExpNode(ExpNode exp) {
         myExp = exp;
@@ -2244,6 +4310,49 @@ abstract class UnaryExpNode extends ExpNode {
     public void nameAnalysis(SymTable symTab) {
         myExp.nameAnalysis(symTab);
     }
+
+    public void addReads(Set<Sym> reads) {
+        myExp.addReads(reads);
+    }
+
+    public ExpNode inline(Inliner in) {
+        myExp = myExp.inline(in);
+        return this;
+    }
+
+    public void addWrites(Licm l) {
+        myExp.addWrites(l);
+    }
+
+    public boolean isInvariant(Licm l) {
+        return myExp.isInvariant(l);
+    }
+
+    public ExpNode hoist(Licm l) {
+        if (isInvariant(l)) {
+            return l.hoist(this);
+        }
+        myExp = myExp.hoist(l);
+        return this;
+    }
+
+    public int numNodes() {
+        return 1 + myExp.numNodes();
+    }
+
+    public ExpNode copy(Inliner in) {
+        UnaryExpNode node = (UnaryExpNode)shallowCopy();
+        node.myExp = myExp.copy(in);
+        return node;
+    }
+
+    public int regsNeeded() {
+        return Math.max(1, myExp.regsNeeded());
+    }
+
+    public boolean hasSideEffects() {
+        return myExp.hasSideEffects();
+    }
     
     // one child
     protected ExpNode myExp;
@@ -2255,11 +4364,216 @@ abstract class BinaryExpNode extends ExpNode {
         myExp2 = exp2;
     }
 
-    public void genCodeSubExp() {
-        myExp1.codeGenExp();
-        myExp2.codeGenExp();
-        Codegen.genPop(Codegen.T1);
-        Codegen.genPop(Codegen.T0);
+    /**
+     * Fold the operands, then the operation: foldValues if both operands
+     * are literals, else simplify.
+     */
+    public ExpNode fold() {
+        myExp1 = myExp1.fold();
+        myExp2 = myExp2.fold();
+        Integer v1 = myExp1.constValue();
+        Integer v2 = myExp2.constValue();
+        if (v1 != null && v2 != null) {
+            ExpNode lit = foldValues(v1, v2);
+            if (lit != null) {
+                return lit;
+            }
+        }
+        return simplify(v1, v2);
+    }
+
+    /**
+     * Return the literal for this operation on the given values, or null
+     * if it must be done at run time.
+     */
+    protected ExpNode foldValues(int v1, int v2) {
+        return null;
+    }
+
+    /**
+     * Return a simpler expression with the value of this one, given the
+     * values of the operands that are literals (null for the others), or
+     * this expression.
+     */
+    protected ExpNode simplify(Integer v1, Integer v2) {
+        return this;
+    }
+
+    /**
+     * Return the IR op code of this operation.
+     */
+    protected String irOp() {
+        return null;
+    }
+
+    /**
+     * Lower both operands, left first, and return their values.  The value
+     * of the left one is copied if it is a variable that the right one
+     * could assign to.
+     */
+    protected IrValue[] lowerSubExp(IrBuilder b) {
+        IrValue v1 = myExp1.lower(b);
+        if (myExp2.hasSideEffects()) {
+            v1 = b.stable(v1);
+        }
+        return new IrValue[] { v1, myExp2.lower(b) };
+    }
+
+    public IrValue lower(IrBuilder b) {
+        IrValue[] args = lowerSubExp(b);
+        return b.op(irOp(), args[0], args[1]);
+    }
+
+    /**
+     * A comparison branches on its operands; anything else branches on its
+     * value.
+     */
+    public void lowerJump(IrBuilder b, IrBlock ifTrue, IrBlock ifFalse) {
+        String branch = IrInsn.branchFor(irOp());
+        if (branch == null) {
+            super.lowerJump(b, ifTrue, ifFalse);
+            return;
+        }
+        IrValue[] args = lowerSubExp(b);
+        b.branch(branch, args[0], args[1], ifTrue, ifFalse);
+    }
+
+    /**
+     * Evaluate both operands of an operation whose result goes in
+     * Codegen.TEMPS[reg], and return the registers that hold them, left
+     * operand first.  If neither operand has side effects, the one that
+     * needs more registers is evaluated first, so fewer are needed while
+     * its value is kept.  If there is no register left for the second
+     * operand, the first one is pushed and then popped into Codegen.SPILL.
+     *
+     * An operand that is a variable kept in a register is used from that
+     * register, except that the first one is copied if the second one has
+     * side effects (it could assign to the variable).
+     */
+    protected String[] genCodeSubExp(int reg) {
+        boolean swap = canSwap() && myExp2.regsNeeded() > myExp1.regsNeeded();
+        ExpNode first = swap ? myExp2 : myExp1;
+        ExpNode second = swap ? myExp1 : myExp2;
+        String firstReg = second.hasSideEffects() ? null : first.homeRegister();
+        String secondReg = second.homeRegister();
+        int next = reg;
+        if (firstReg == null) {
+            first.codeGenReg(reg);
+            firstReg = Codegen.TEMPS[reg];
+            next = reg + 1;
+        }
+        if (secondReg != null) {
+            // nothing to evaluate
+        } else if (next < Codegen.TEMPS.length) {
+            second.codeGenReg(next);
+            secondReg = Codegen.TEMPS[next];
+        } else {
+            Codegen.genPush(Codegen.TEMPS[reg]);
+            second.codeGenReg(reg);
+            Codegen.genPop(Codegen.SPILL);
+            firstReg = Codegen.SPILL;
+            secondReg = Codegen.TEMPS[reg];
+        }
+        if (swap) {
+            return new String[] { secondReg, firstReg };
+        }
+        return new String[] { firstReg, secondReg };
+    }
+
+    /**
+     * Generate a branch with the given op code on the values of the
+     * operands (see ExpNode.codeGenJump).  A literal right operand is
+     * used in the branch as is.
+     */
+    protected void genCodeBranch(String opcode, String trueLabel, String falseLabel,
+                                 String next) {
+        Integer value = myExp2.constValue();
+        String[] args;
+        if (value != null) {
+            String reg = myExp1.homeRegister();
+            if (reg == null) {
+                myExp1.codeGenReg(0);
+                reg = Codegen.TEMPS[0];
+            }
+            args = new String[] { reg, String.valueOf(value) };
+        } else {
+            args = genCodeSubExp(0);
+        }
+        Codegen.genBranch(opcode, args[0], args[1], trueLabel, falseLabel, next);
+    }
+
+    // the operands can be evaluated in either order
+    private boolean canSwap() {
+        return !myExp1.hasSideEffects() && !myExp2.hasSideEffects();
+    }
+
+    public void addReads(Set<Sym> reads) {
+        myExp1.addReads(reads);
+        myExp2.addReads(reads);
+    }
+
+    public ExpNode inline(Inliner in) {
+        myExp1 = myExp1.inline(in);
+        myExp2 = myExp2.inline(in);
+        return this;
+    }
+
+    public void addWrites(Licm l) {
+        myExp1.addWrites(l);
+        myExp2.addWrites(l);
+    }
+
+    public boolean isInvariant(Licm l) {
+        return myExp1.isInvariant(l) && myExp2.isInvariant(l);
+    }
+
+    public ExpNode hoist(Licm l) {
+        if (isInvariant(l)) {
+            return l.hoist(this);
+        }
+        myExp1 = myExp1.hoist(l);
+        myExp2 = myExp2.hoist(l);
+        // an operand that was hoisted can need fewer registers
+        myRegsNeeded = 0;
+        return this;
+    }
+
+    public int numNodes() {
+        return 1 + myExp1.numNodes() + myExp2.numNodes();
+    }
+
+    public ExpNode copy(Inliner in) {
+        BinaryExpNode node = (BinaryExpNode)shallowCopy();
+        node.myExp1 = myExp1.copy(in);
+        node.myExp2 = myExp2.copy(in);
+        return node;
+    }
+
+    public int regsNeeded() {
+        if (myRegsNeeded == 0) {
+            myRegsNeeded = countRegsNeeded();
+        }
+        return myRegsNeeded;
+    }
+
+    /**
+     * Return the number of registers needed when both operands are
+     * evaluated by genCodeSubExp.
+     */
+    protected int countRegsNeeded() {
+        int need1 = myExp1.regsNeeded();
+        int need2 = myExp2.regsNeeded();
+        if (canSwap()) {
+            return need1 == need2 ? need1 + 1 : Math.max(need1, need2);
+        }
+        return Math.max(need1, need2 + 1);
+    }
+
+    public boolean hasSideEffects() {
+        if (mySideEffects == 0) {
+            mySideEffects = myExp1.hasSideEffects() || myExp2.hasSideEffects() ? 1 : -1;
+        }
+        return mySideEffects > 0;
     }
     
     /**
@@ -2291,6 +4605,10 @@ abstract class BinaryExpNode extends ExpNode {
     // two kids
     protected ExpNode myExp1;
     protected ExpNode myExp2;
+
+    // computed by regsNeeded and hasSideEffects (0 until then)
+    private int myRegsNeeded;
+    private int mySideEffects;
 }
 
 // **********************************************************************
@@ -2303,30 +4621,41 @@ class UnaryMinusNode extends UnaryExpNode {
     }
 
     /**
-     * typeCheck
+     * checkType
      */
-    public Type typeCheck() {
+    protected Type checkType() {
         Type type = myExp.typeCheck();
-        Type retType = new IntType();
+        Type retType = Type.INT;
         
         if (!type.isErrorType() && !type.isIntType()) {
             ErrMsg.fatal(lineNum(), charNum(),
                          "Arithmetic operator applied to non-numeric operand");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         if (type.isErrorType()) {
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         return retType;
     }
-    protected void codeGenCommon() {
-        myExp.codeGenExp();
-        Codegen.genPop(Codegen.T0);
-        Codegen.generate("li", Codegen.T1, -1);
-        Codegen.generate("mult", Codegen.T0, Codegen.T1);
-        Codegen.generate("mflo", Codegen.T0);
+    public ExpNode fold() {
+        myExp = myExp.fold();
+        Integer v = myExp.constValue();
+        if (v != null) {
+            return intLit(-v);
+        }
+        if (myExp instanceof UnaryMinusNode) {
+            return ((UnaryMinusNode)myExp).myExp;
+        }
+        return this;
+    }
+    public IrValue lower(IrBuilder b) {
+        return b.op(IrInsn.NEG, myExp.lower(b));
+    }
+    protected void codeGenReg(int reg) {
+        myExp.codeGenReg(reg);
+        Codegen.generate("negu", Codegen.TEMPS[reg], Codegen.TEMPS[reg]);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print("(-");
@@ -2341,31 +4670,47 @@ class NotNode extends UnaryExpNode {
     }
 
     /**
-     * typeCheck
+     * checkType
      */
-    public Type typeCheck() {
+    protected Type checkType() {
         Type type = myExp.typeCheck();
-        Type retType = new BoolType();
+        Type retType = Type.BOOL;
         
         if (!type.isErrorType() && !type.isBoolType()) {
             ErrMsg.fatal(lineNum(), charNum(),
                          "Logical operator applied to non-bool operand");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         if (type.isErrorType()) {
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         return retType;
     }
-    protected void codeGenCommon() {
-        myExp.codeGenExp();
-        Codegen.genPop(Codegen.T0);
-        Codegen.generate("seq", Codegen.T0, Codegen.T0, Codegen.FALSE);
+    public ExpNode fold() {
+        myExp = myExp.fold();
+        Integer v = myExp.constValue();
+        if (v != null) {
+            return boolLit(v == 0);
+        }
+        if (myExp instanceof NotNode) {
+            return ((NotNode)myExp).myExp;
+        }
+        return this;
     }
-    public void codeGenJump(String trueLabel, String falseLabel) {
-
+    public IrValue lower(IrBuilder b) {
+        return b.op(IrInsn.SEQ, myExp.lower(b), IrBuilder.ZERO);
+    }
+    public void lowerJump(IrBuilder b, IrBlock ifTrue, IrBlock ifFalse) {
+        myExp.lowerJump(b, ifFalse, ifTrue);
+    }
+    protected void codeGenReg(int reg) {
+        myExp.codeGenReg(reg);
+        Codegen.generate("seq", Codegen.TEMPS[reg], Codegen.TEMPS[reg], Codegen.FALSE);
+    }
+    public void codeGenJump(String trueLabel, String falseLabel, String next) {
+        myExp.codeGenJump(falseLabel, trueLabel, next);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print("(!");
@@ -2384,60 +4729,82 @@ abstract class ArithmeticExpNode extends BinaryExpNode {
     }
     
     /**
-     * typeCheck
+     * checkType
      */
-    public Type typeCheck() {
+    protected Type checkType() {
         Type type1 = myExp1.typeCheck();
         Type type2 = myExp2.typeCheck();
-        Type retType = new IntType();
+        Type retType = Type.INT;
         
         if (!type1.isErrorType() && !type1.isIntType()) {
             ErrMsg.fatal(myExp1.lineNum(), myExp1.charNum(),
                          "Arithmetic operator applied to non-numeric operand");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         if (!type2.isErrorType() && !type2.isIntType()) {
             ErrMsg.fatal(myExp2.lineNum(), myExp2.charNum(),
                          "Arithmetic operator applied to non-numeric operand");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         if (type1.isErrorType() || type2.isErrorType()) {
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         return retType;
     }
+
+    /**
+     * Evaluate the given operand into Codegen.TEMPS[reg], the other one
+     * being a literal (see StrengthReducer), and return the register that
+     * holds it.
+     */
+    protected String genCodeOperand(ExpNode exp, int reg) {
+        String home = exp.homeRegister();
+        if (home == null) {
+            exp.codeGenReg(reg);
+            home = Codegen.TEMPS[reg];
+        }
+        return home;
+    }
 }
 
 abstract class LogicalExpNode extends BinaryExpNode {
     public LogicalExpNode(ExpNode exp1, ExpNode exp2) {
         super(exp1, exp2);
     }
+
+    /**
+     * Both operands are evaluated into the same register, one after the
+     * other (see AndNode and OrNode).
+     */
+    protected int countRegsNeeded() {
+        return Math.max(1, Math.max(myExp1.regsNeeded(), myExp2.regsNeeded()));
+    }
     
     /**
-     * typeCheck
+     * checkType
      */
-    public Type typeCheck() {
+    protected Type checkType() {
         Type type1 = myExp1.typeCheck();
         Type type2 = myExp2.typeCheck();
-        Type retType = new BoolType();
+        Type retType = Type.BOOL;
         
         if (!type1.isErrorType() && !type1.isBoolType()) {
             ErrMsg.fatal(myExp1.lineNum(), myExp1.charNum(),
                          "Logical operator applied to non-bool operand");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         if (!type2.isErrorType() && !type2.isBoolType()) {
             ErrMsg.fatal(myExp2.lineNum(), myExp2.charNum(),
                          "Logical operator applied to non-bool operand");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         if (type1.isErrorType() || type2.isErrorType()) {
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         return retType;
@@ -2450,45 +4817,71 @@ abstract class EqualityExpNode extends BinaryExpNode {
     }
     
     /**
-     * typeCheck
+     * Simplify the comparison of a bool with true or false: the result is
+     * the other operand or its negation.  same is true for == and false
+     * for !=.
      */
-    public Type typeCheck() {
+    protected ExpNode simplifyBool(Integer v1, Integer v2, boolean same) {
+        if (!myExp1.type().isBoolType()) {
+            return this;
+        }
+        ExpNode other;
+        boolean value;
+        if (v2 != null) {
+            other = myExp1;
+            value = v2 != 0;
+        } else if (v1 != null) {
+            other = myExp2;
+            value = v1 != 0;
+        } else {
+            return this;
+        }
+        if (value == same) {
+            return other;
+        }
+        return new NotNode(other).typed(Type.BOOL);
+    }
+
+    /**
+     * checkType
+     */
+    protected Type checkType() {
         Type type1 = myExp1.typeCheck();
         Type type2 = myExp2.typeCheck();
-        Type retType = new BoolType();
+        Type retType = Type.BOOL;
         
         if (type1.isVoidType() && type2.isVoidType()) {
             ErrMsg.fatal(lineNum(), charNum(),
                          "Equality operator applied to void functions");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         if (type1.isFnType() && type2.isFnType()) {
             ErrMsg.fatal(lineNum(), charNum(),
                          "Equality operator applied to functions");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         if (type1.isStructDefType() && type2.isStructDefType()) {
             ErrMsg.fatal(lineNum(), charNum(),
                          "Equality operator applied to struct names");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         if (type1.isStructType() && type2.isStructType()) {
             ErrMsg.fatal(lineNum(), charNum(),
                          "Equality operator applied to struct variables");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }        
         
-        if (!type1.equals(type2) && !type1.isErrorType() && !type2.isErrorType()) {
+        else if (!type1.equals(type2) && !type1.isErrorType() && !type2.isErrorType()) {
             ErrMsg.fatal(lineNum(), charNum(),
                          "Type mismatch");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         if (type1.isErrorType() || type2.isErrorType()) {
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         return retType;
@@ -2501,27 +4894,27 @@ abstract class RelationalExpNode extends BinaryExpNode {
     }
     
     /**
-     * typeCheck
+     * checkType
      */
-    public Type typeCheck() {
+    protected Type checkType() {
         Type type1 = myExp1.typeCheck();
         Type type2 = myExp2.typeCheck();
-        Type retType = new BoolType();
+        Type retType = Type.BOOL;
         
         if (!type1.isErrorType() && !type1.isIntType()) {
             ErrMsg.fatal(myExp1.lineNum(), myExp1.charNum(),
                          "Relational operator applied to non-numeric operand");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         if (!type2.isErrorType() && !type2.isIntType()) {
             ErrMsg.fatal(myExp2.lineNum(), myExp2.charNum(),
                          "Relational operator applied to non-numeric operand");
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         if (type1.isErrorType() || type2.isErrorType()) {
-            retType = new ErrorType();
+            retType = Type.ERROR;
         }
         
         return retType;
@@ -2532,9 +4925,29 @@ class PlusNode extends ArithmeticExpNode {
     public PlusNode(ExpNode exp1, ExpNode exp2) {
         super(exp1, exp2);
     }
-    protected void codeGenCommon() {
-        this.genCodeSubExp();
-        Codegen.generate("add", Codegen.T0, Codegen.T0, Codegen.T1);
+    protected ExpNode foldValues(int v1, int v2) {
+        return intLit(v1 + v2);
+    }
+    protected ExpNode simplify(Integer v1, Integer v2) {
+        if (v2 != null && v2 == 0) {
+            return myExp1;
+        }
+        if (v1 != null && v1 == 0) {
+            return myExp2;
+        }
+        return this;
+    }
+    public boolean isInvariant(Licm l) {
+        // add traps on an overflow, which is left to run time, where the
+        // loop might not reach it (see DivideNode.isInvariant)
+        return false;
+    }
+    protected String irOp() {
+        return IrInsn.ADD;
+    }
+    protected void codeGenReg(int reg) {
+        String[] args = this.genCodeSubExp(reg);
+        Codegen.generate("add", Codegen.TEMPS[reg], args[0], args[1]);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print("(");
@@ -2549,9 +4962,28 @@ class MinusNode extends ArithmeticExpNode {
     public MinusNode(ExpNode exp1, ExpNode exp2) {
         super(exp1, exp2);
     }
-    protected void codeGenCommon() {
-        this.genCodeSubExp();
-        Codegen.generate("sub", Codegen.T0, Codegen.T0, Codegen.T1);
+    protected ExpNode foldValues(int v1, int v2) {
+        return intLit(v1 - v2);
+    }
+    protected ExpNode simplify(Integer v1, Integer v2) {
+        if (v2 != null && v2 == 0) {
+            return myExp1;
+        }
+        if (v1 != null && v1 == 0) {
+            return new UnaryMinusNode(myExp2).typed(Type.INT);
+        }
+        return this;
+    }
+    public boolean isInvariant(Licm l) {
+        // sub traps on an overflow, as add does (see PlusNode.isInvariant)
+        return false;
+    }
+    protected String irOp() {
+        return IrInsn.SUB;
+    }
+    protected void codeGenReg(int reg) {
+        String[] args = this.genCodeSubExp(reg);
+        Codegen.generate("sub", Codegen.TEMPS[reg], args[0], args[1]);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print("(");
@@ -2566,10 +4998,48 @@ class TimesNode extends ArithmeticExpNode {
     public TimesNode(ExpNode exp1, ExpNode exp2) {
         super(exp1, exp2);
     }
-    protected void codeGenCommon() {
-        this.genCodeSubExp();
-        Codegen.generate("mult", Codegen.T0, Codegen.T1);
-        Codegen.generate("mflo", Codegen.T0);
+    protected ExpNode foldValues(int v1, int v2) {
+        // the low word of the product, as mflo gives
+        return intLit(v1 * v2);
+    }
+    protected ExpNode simplify(Integer v1, Integer v2) {
+        if (v2 != null) {
+            return simplify(v2, myExp1);
+        }
+        if (v1 != null) {
+            return simplify(v1, myExp2);
+        }
+        return this;
+    }
+
+    // the product of the literal value and the other operand
+    private ExpNode simplify(int value, ExpNode other) {
+        if (value == 1) {
+            return other;
+        }
+        if (value == -1) {
+            return new UnaryMinusNode(other).typed(Type.INT);
+        }
+        if (value == 0 && !other.hasSideEffects()) {
+            return intLit(0);
+        }
+        return this;
+    }
+    protected String irOp() {
+        return IrInsn.MUL;
+    }
+    protected void codeGenReg(int reg) {
+        Integer v1 = myExp1.constValue();
+        Integer v2 = myExp2.constValue();
+        if ((v1 != null || v2 != null) && Compilation.current().runs("strength")) {
+            // by a literal, with shifts if that is cheaper
+            String src = genCodeOperand(v2 != null ? myExp1 : myExp2, reg);
+            StrengthReducer.multiply(Codegen.TEMPS[reg], src, v2 != null ? v2 : v1);
+            return;
+        }
+        String[] args = this.genCodeSubExp(reg);
+        Codegen.generate("mult", args[0], args[1]);
+        Codegen.generate("mflo", Codegen.TEMPS[reg]);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print("(");
@@ -2584,10 +5054,40 @@ class DivideNode extends ArithmeticExpNode {
     public DivideNode(ExpNode exp1, ExpNode exp2) {
         super(exp1, exp2);
     }
-    protected void codeGenCommon() {
-        this.genCodeSubExp();
-        Codegen.generate("div", Codegen.T0, Codegen.T1);
-        Codegen.generate("mflo", Codegen.T0);
+    protected ExpNode foldValues(int v1, int v2) {
+        // division by zero is left to run time
+        return v2 == 0 ? null : intLit(v1 / v2);
+    }
+    protected ExpNode simplify(Integer v1, Integer v2) {
+        if (v2 != null && v2 == 1) {
+            return myExp1;
+        }
+        if (v2 != null && v2 == -1) {
+            return new UnaryMinusNode(myExp1).typed(Type.INT);
+        }
+        return this;
+    }
+    public boolean isInvariant(Licm l) {
+        // a divide by zero is left to run time, where the loop might not
+        // reach it
+        Integer v2 = myExp2.constValue();
+        return v2 != null && v2 != 0 && super.isInvariant(l);
+    }
+    protected String irOp() {
+        return IrInsn.DIV;
+    }
+    protected void codeGenReg(int reg) {
+        Integer v2 = myExp2.constValue();
+        if (v2 != null && Compilation.current().runs("strength")) {
+            // by a literal, with a shift or a multiply if it can be
+            String src = genCodeOperand(myExp1, reg);
+            String temp = reg + 1 < Codegen.TEMPS.length ? Codegen.TEMPS[reg + 1] : null;
+            StrengthReducer.divide(Codegen.TEMPS[reg], src, v2, temp);
+            return;
+        }
+        String[] args = this.genCodeSubExp(reg);
+        Codegen.generate("div", args[0], args[1]);
+        Codegen.generate("mflo", Codegen.TEMPS[reg]);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print("(");
@@ -2602,20 +5102,52 @@ class AndNode extends LogicalExpNode {
     public AndNode(ExpNode exp1, ExpNode exp2) {
         super(exp1, exp2);
     }
-    protected void codeGenCommon() {
-        String rightExpLabel = Codegen.nextLabel();
+    protected ExpNode simplify(Integer v1, Integer v2) {
+        if (v1 != null) {
+            // the right operand is only evaluated if the left one is true
+            return v1 == 0 ? boolLit(false) : myExp2;
+        }
+        if (v2 != null && v2 != 0) {
+            return myExp1;
+        }
+        if (v2 != null && !myExp1.hasSideEffects()) {
+            return boolLit(false);
+        }
+        return this;
+    }
+    public IrValue lower(IrBuilder b) {
+        // as in codeGenReg, the right operand is the result if the left
+        // one is true
+        IrValue result = b.newTemp();
+        IrBlock rightBlock = b.newBlock();
+        IrBlock doneBlock = b.newBlock();
+        b.move(result, myExp1.lower(b));
+        b.branch("bne", result, IrBuilder.ZERO, rightBlock, doneBlock);
+        b.setBlock(rightBlock);
+        b.move(result, myExp2.lower(b));
+        b.setBlock(doneBlock);
+        return result;
+    }
+    public void lowerJump(IrBuilder b, IrBlock ifTrue, IrBlock ifFalse) {
+        IrBlock rightBlock = b.newBlock();
+        myExp1.lowerJump(b, rightBlock, ifFalse);
+        b.setBlock(rightBlock);
+        myExp2.lowerJump(b, ifTrue, ifFalse);
+    }
+    protected void codeGenReg(int reg) {
+        // if the left operand is false it is the result, else the right
+        // operand is
         String endLabel = Codegen.nextLabel();
-        myExp1.codeGenJump(rightExpLabel, endLabel);
-        Codegen.genLabel(rightExpLabel);
-        myExp2.codeGenCommon();
+        myExp1.codeGenReg(reg);
+        Codegen.generate("beq", Codegen.TEMPS[reg], Codegen.FALSE, endLabel);
+        myExp2.codeGenReg(reg);
         Codegen.genLabel(endLabel);
-        // the result are always in T0
     }
-    public void codeGenJump(String trueLabel, String falseLabel) {
+    public void codeGenJump(String trueLabel, String falseLabel, String next) {
         String rightExpLabel = Codegen.nextLabel();
-        myExp1.codeGenJump(trueLabel, rightExpLabel);
+        myExp1.codeGenJump(rightExpLabel, falseLabel, rightExpLabel);
         Codegen.genLabel(rightExpLabel);
-        myExp2.codeGenJump(trueLabel, falseLabel);
+        myExp2.codeGenJump(trueLabel, falseLabel, next);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print("(");
@@ -2630,20 +5162,52 @@ class OrNode extends LogicalExpNode {
     public OrNode(ExpNode exp1, ExpNode exp2) {
         super(exp1, exp2);
     }
-    protected void codeGenCommon() {
-        String rightExpLabel = Codegen.nextLabel();
+    protected ExpNode simplify(Integer v1, Integer v2) {
+        if (v1 != null) {
+            // the right operand is only evaluated if the left one is false
+            return v1 != 0 ? boolLit(true) : myExp2;
+        }
+        if (v2 != null && v2 == 0) {
+            return myExp1;
+        }
+        if (v2 != null && !myExp1.hasSideEffects()) {
+            return boolLit(true);
+        }
+        return this;
+    }
+    public IrValue lower(IrBuilder b) {
+        // as in codeGenReg, the right operand is the result if the left
+        // one is false
+        IrValue result = b.newTemp();
+        IrBlock rightBlock = b.newBlock();
+        IrBlock doneBlock = b.newBlock();
+        b.move(result, myExp1.lower(b));
+        b.branch("beq", result, IrBuilder.ZERO, rightBlock, doneBlock);
+        b.setBlock(rightBlock);
+        b.move(result, myExp2.lower(b));
+        b.setBlock(doneBlock);
+        return result;
+    }
+    public void lowerJump(IrBuilder b, IrBlock ifTrue, IrBlock ifFalse) {
+        IrBlock rightBlock = b.newBlock();
+        myExp1.lowerJump(b, ifTrue, rightBlock);
+        b.setBlock(rightBlock);
+        myExp2.lowerJump(b, ifTrue, ifFalse);
+    }
+    protected void codeGenReg(int reg) {
+        // if the left operand is true it is the result, else the right
+        // operand is
         String endLabel = Codegen.nextLabel();
-        myExp1.codeGenJump(endLabel, rightExpLabel);
-        Codegen.genLabel(rightExpLabel);
-        myExp2.codeGenCommon();
+        myExp1.codeGenReg(reg);
+        Codegen.generate("bne", Codegen.TEMPS[reg], Codegen.FALSE, endLabel);
+        myExp2.codeGenReg(reg);
         Codegen.genLabel(endLabel);
-        // the result are always in T0
     }
-    public void codeGenJump(String trueLabel, String falseLabel) {
+    public void codeGenJump(String trueLabel, String falseLabel, String next) {
         String rightExpLabel = Codegen.nextLabel();
-        myExp1.codeGenJump(trueLabel, rightExpLabel);
+        myExp1.codeGenJump(trueLabel, rightExpLabel, rightExpLabel);
         Codegen.genLabel(rightExpLabel);
-        myExp2.codeGenJump(trueLabel, falseLabel);
+        myExp2.codeGenJump(trueLabel, falseLabel, next);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print("(");
@@ -2658,14 +5222,21 @@ class EqualsNode extends EqualityExpNode {
     public EqualsNode(ExpNode exp1, ExpNode exp2) {
         super(exp1, exp2);
     }
-    protected void codeGenCommon() {
-        this.genCodeSubExp();
-        Codegen.generate("seq", Codegen.T0, Codegen.T0, Codegen.T1);
+    protected ExpNode foldValues(int v1, int v2) {
+        return boolLit(v1 == v2);
     }
-    public void codeGenJump(String trueLabel, String falseLabel) {
-        this.codeGenCommon();
-        Codegen.generate("beq", Codegen.T0, Codegen.FALSE, falseLabel);
-        Codegen.generate("b", trueLabel);
+    protected ExpNode simplify(Integer v1, Integer v2) {
+        return simplifyBool(v1, v2, true);
+    }
+    protected String irOp() {
+        return IrInsn.SEQ;
+    }
+    protected void codeGenReg(int reg) {
+        String[] args = this.genCodeSubExp(reg);
+        Codegen.generate("seq", Codegen.TEMPS[reg], args[0], args[1]);
+    }
+    public void codeGenJump(String trueLabel, String falseLabel, String next) {
+        this.genCodeBranch("beq", trueLabel, falseLabel, next);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print("(");
@@ -2680,14 +5251,21 @@ class NotEqualsNode extends EqualityExpNode {
     public NotEqualsNode(ExpNode exp1, ExpNode exp2) {
         super(exp1, exp2);
     }
-    protected void codeGenCommon() {
-        this.genCodeSubExp();
-        Codegen.generate("sne", Codegen.T0, Codegen.T0, Codegen.T1);
+    protected ExpNode foldValues(int v1, int v2) {
+        return boolLit(v1 != v2);
     }
-    public void codeGenJump(String trueLabel, String falseLabel) {
-        this.codeGenCommon();
-        Codegen.generate("beq", Codegen.T0, Codegen.FALSE, falseLabel);
-        Codegen.generate("b", trueLabel);
+    protected ExpNode simplify(Integer v1, Integer v2) {
+        return simplifyBool(v1, v2, false);
+    }
+    protected String irOp() {
+        return IrInsn.SNE;
+    }
+    protected void codeGenReg(int reg) {
+        String[] args = this.genCodeSubExp(reg);
+        Codegen.generate("sne", Codegen.TEMPS[reg], args[0], args[1]);
+    }
+    public void codeGenJump(String trueLabel, String falseLabel, String next) {
+        this.genCodeBranch("bne", trueLabel, falseLabel, next);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print("(");
@@ -2702,14 +5280,18 @@ class LessNode extends RelationalExpNode {
     public LessNode(ExpNode exp1, ExpNode exp2) {
         super(exp1, exp2);
     }
-    protected void codeGenCommon() {
-        this.genCodeSubExp();
-        Codegen.generate("slt", Codegen.T0, Codegen.T0, Codegen.T1);
+    protected ExpNode foldValues(int v1, int v2) {
+        return boolLit(v1 < v2);
     }
-    public void codeGenJump(String trueLabel, String falseLabel) {
-        this.codeGenCommon();
-        Codegen.generate("beq", Codegen.T0, Codegen.FALSE, falseLabel);
-        Codegen.generate("b", trueLabel);
+    protected String irOp() {
+        return IrInsn.SLT;
+    }
+    protected void codeGenReg(int reg) {
+        String[] args = this.genCodeSubExp(reg);
+        Codegen.generate("slt", Codegen.TEMPS[reg], args[0], args[1]);
+    }
+    public void codeGenJump(String trueLabel, String falseLabel, String next) {
+        this.genCodeBranch("blt", trueLabel, falseLabel, next);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print("(");
@@ -2724,14 +5306,18 @@ class GreaterNode extends RelationalExpNode {
     public GreaterNode(ExpNode exp1, ExpNode exp2) {
         super(exp1, exp2);
     }
-    protected void codeGenCommon() {
-        this.genCodeSubExp();
-        Codegen.generate("sgt", Codegen.T0, Codegen.T0, Codegen.T1);
+    protected ExpNode foldValues(int v1, int v2) {
+        return boolLit(v1 > v2);
     }
-    public void codeGenJump(String trueLabel, String falseLabel) {
-        this.codeGenCommon();
-        Codegen.generate("beq", Codegen.T0, Codegen.FALSE, falseLabel);
-        Codegen.generate("b", trueLabel);
+    protected String irOp() {
+        return IrInsn.SGT;
+    }
+    protected void codeGenReg(int reg) {
+        String[] args = this.genCodeSubExp(reg);
+        Codegen.generate("sgt", Codegen.TEMPS[reg], args[0], args[1]);
+    }
+    public void codeGenJump(String trueLabel, String falseLabel, String next) {
+        this.genCodeBranch("bgt", trueLabel, falseLabel, next);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print("(");
@@ -2746,14 +5332,18 @@ class LessEqNode extends RelationalExpNode {
     public LessEqNode(ExpNode exp1, ExpNode exp2) {
         super(exp1, exp2);
     }
-    protected void codeGenCommon() {
-        this.genCodeSubExp();
-        Codegen.generate("sle", Codegen.T0, Codegen.T0, Codegen.T1);
+    protected ExpNode foldValues(int v1, int v2) {
+        return boolLit(v1 <= v2);
     }
-    public void codeGenJump(String trueLabel, String falseLabel) {
-        this.codeGenCommon();
-        Codegen.generate("beq", Codegen.T0, Codegen.FALSE, falseLabel);
-        Codegen.generate("b", trueLabel);
+    protected String irOp() {
+        return IrInsn.SLE;
+    }
+    protected void codeGenReg(int reg) {
+        String[] args = this.genCodeSubExp(reg);
+        Codegen.generate("sle", Codegen.TEMPS[reg], args[0], args[1]);
+    }
+    public void codeGenJump(String trueLabel, String falseLabel, String next) {
+        this.genCodeBranch("ble", trueLabel, falseLabel, next);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print("(");
@@ -2768,14 +5358,18 @@ class GreaterEqNode extends RelationalExpNode {
     public GreaterEqNode(ExpNode exp1, ExpNode exp2) {
         super(exp1, exp2);
     }
-    protected void codeGenCommon() {
-        this.genCodeSubExp();
-        Codegen.generate("sge", Codegen.T0, Codegen.T0, Codegen.T1);
+    protected ExpNode foldValues(int v1, int v2) {
+        return boolLit(v1 >= v2);
     }
-    public void codeGenJump(String trueLabel, String falseLabel) {
-        this.codeGenCommon();
-        Codegen.generate("beq", Codegen.T0, Codegen.FALSE, falseLabel);
-        Codegen.generate("b", trueLabel);
+    protected String irOp() {
+        return IrInsn.SGE;
+    }
+    protected void codeGenReg(int reg) {
+        String[] args = this.genCodeSubExp(reg);
+        Codegen.generate("sge", Codegen.TEMPS[reg], args[0], args[1]);
+    }
+    public void codeGenJump(String trueLabel, String falseLabel, String next) {
+        this.genCodeBranch("bge", trueLabel, falseLabel, next);
     }
     public void unparse(PrintWriter p, int indent) {
         p.print("(");
@@ -0,0 +1,364 @@
+import java.io.*;
+import java.util.*;
+
+import java_cup.runtime.*;
+
+/**
+ * Bench measures the throughput of each stage of the cflat compiler on
+ * inputs of several sizes, so that later changes can be compared against a
+ * repeatable baseline.
+ *
+ * The stages are:
+ *    scan      Yylex.next_token over the whole input
+ *    parse     parser.parse on tokens that were scanned beforehand
+ *    symtab    SymTable.addScope/addDecl/lookupGlobal/removeScope on
+ *              nested scopes; the size is the nesting depth
+ *    codegen   ProgramNode.codeGen of an analyzed program into a writer
+ *              that throws the code away
+ *
+ * Like JMH, each (stage, size) pair is run for some warmup iterations whose
+ * results are thrown away, then for some measured iterations; an iteration
+ * repeats the operation for a fixed time.  The mean and standard deviation
+ * over the measured iterations are reported.
+ *
+ * Command line:
+ *    java Bench [-w <warmups>] [-i <iterations>] [-t <ms per iteration>]
+ *               [-s <size,size,...>] [stage ...]
+ */
+public class Bench {
+    private int numWarmups = 3;
+    private int numIterations = 5;
+    private long iterationMillis = 1000;
+    private int[] sizes = null;
+    private List<String> stages = new ArrayList<String>();
+
+    // results are added to this so that the JIT cannot drop the work
+    static volatile long sink;
+
+    /**
+     * One stage of the compiler: setup builds the input for a size, run
+     * does the operation being measured once and returns the number of
+     * items (tokens, lookups, lines) it processed.
+     */
+    interface Stage {
+        void setup(int size) throws Exception;
+        long run() throws Exception;
+        String unit();
+        int[] defaultSizes();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Bench bench = new Bench();
+        bench.parseArgs(args);
+        bench.runAll();
+    }
+
+    private void parseArgs(String[] args) {
+        for (int k = 0; k < args.length; k++) {
+            if (args[k].equals("-w") && k + 1 < args.length) {
+                numWarmups = Integer.parseInt(args[++k]);
+            } else if (args[k].equals("-i") && k + 1 < args.length) {
+                numIterations = Integer.parseInt(args[++k]);
+            } else if (args[k].equals("-t") && k + 1 < args.length) {
+                iterationMillis = Long.parseLong(args[++k]);
+            } else if (args[k].equals("-s") && k + 1 < args.length) {
+                String[] parts = args[++k].split(",");
+                sizes = new int[parts.length];
+                for (int j = 0; j < parts.length; j++) {
+                    sizes[j] = Integer.parseInt(parts[j].trim());
+                }
+            } else {
+                stages.add(args[k]);
+            }
+        }
+        if (stages.isEmpty()) {
+            stages.addAll(Arrays.asList("scan", "parse", "symtab", "codegen"));
+        }
+    }
+
+    private static Stage stage(String name) {
+        switch (name) {
+        case "scan":
+            return new ScanStage();
+        case "parse":
+            return new ParseStage();
+        case "symtab":
+            return new SymTableStage();
+        case "codegen":
+            return new CodegenStage();
+        default:
+            throw new IllegalArgumentException("unknown stage " + name);
+        }
+    }
+
+    private void runAll() throws Exception {
+        System.out.println(String.format("%-8s %8s %14s %10s %16s", "stage", "size",
+                                         "us/op", "+-", "items/s"));
+        for (String name : stages) {
+            Stage stage = stage(name);
+            for (int size : sizes != null ? sizes : stage.defaultSizes()) {
+                stage.setup(size);
+                for (int k = 0; k < numWarmups; k++) {
+                    iteration(stage);
+                }
+                double[] usPerOp = new double[numIterations];
+                double itemsPerSec = 0;
+                for (int k = 0; k < numIterations; k++) {
+                    double[] result = iteration(stage);
+                    usPerOp[k] = result[0];
+                    itemsPerSec += result[1] / numIterations;
+                }
+                double mean = 0;
+                for (double x : usPerOp) {
+                    mean += x / usPerOp.length;
+                }
+                double var = 0;
+                for (double x : usPerOp) {
+                    var += (x - mean) * (x - mean) / Math.max(1, usPerOp.length - 1);
+                }
+                System.out.println(String.format("%-8s %8d %14.2f %10.2f %16.0f %s",
+                                                 name, size, mean, Math.sqrt(var),
+                                                 itemsPerSec, stage.unit()));
+            }
+        }
+    }
+
+    /**
+     * Runs the stage for iterationMillis.
+     * @return microseconds per operation and items per second
+     */
+    private double[] iteration(Stage stage) throws Exception {
+        long deadline = System.nanoTime() + iterationMillis * 1000000L;
+        long start = System.nanoTime();
+        long ops = 0;
+        long items = 0;
+        long now;
+        do {
+            items += stage.run();
+            ops++;
+            now = System.nanoTime();
+        } while (now < deadline);
+        sink += items;
+        double seconds = (now - start) / 1e9;
+        return new double[] { seconds * 1e6 / ops, items / seconds };
+    }
+
+    // ******************************************************************
+    // Inputs
+    // ******************************************************************
+
+    /**
+     * Returns a valid cflat program of about the given number of lines,
+     * always the same one for the same size (see CflatGen).
+     */
+    static String program(int lines) {
+        return new CflatGen().setOption("-lines", lines).generate();
+    }
+
+    static int countLines(CharSequence s) {
+        int lines = 0;
+        for (int k = 0; k < s.length(); k++) {
+            if (s.charAt(k) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Scans the whole source, including the EOF token.
+     */
+    static List<Symbol> scanAll(String source, Compilation comp) throws Exception {
+        List<Symbol> tokens = new ArrayList<Symbol>();
+        Yylex scanner = new Yylex(new StringReader(source), comp);
+        Symbol token;
+        do {
+            token = scanner.next_token();
+            tokens.add(token);
+        } while (token.sym != sym.EOF);
+        return tokens;
+    }
+
+    /**
+     * A scanner that hands out tokens that were scanned beforehand.  The
+     * parser marks the Symbols it is given as used, so each one is copied.
+     */
+    static class ReplayScanner implements java_cup.runtime.Scanner {
+        private List<Symbol> tokens;
+        private int next = 0;
+
+        ReplayScanner(List<Symbol> tokens) {
+            this.tokens = tokens;
+        }
+
+        // keeps handing out EOF at the end, like a real scanner
+        public Symbol next_token() {
+            Symbol token = tokens.get(next);
+            if (next < tokens.size() - 1) {
+                next++;
+            }
+            return new Symbol(token.sym, token.left, token.right, token.value);
+        }
+    }
+
+    // ******************************************************************
+    // Stages
+    // ******************************************************************
+
+    static class ScanStage implements Stage {
+        private String source;
+
+        public void setup(int size) {
+            source = program(size);
+        }
+
+        public long run() throws Exception {
+            Compilation comp = new Compilation();
+            Compilation prev = Compilation.bind(comp);
+            try {
+                Yylex scanner = new Yylex(new StringReader(source), comp);
+                long count = 0;
+                while (scanner.next_token().sym != sym.EOF) {
+                    count++;
+                }
+                return count;
+            } finally {
+                Compilation.bind(prev);
+            }
+        }
+
+        public String unit() {
+            return "tokens/s";
+        }
+
+        public int[] defaultSizes() {
+            return new int[] { 1000, 10000, 100000 };
+        }
+    }
+
+    static class ParseStage implements Stage {
+        private List<Symbol> tokens;
+
+        public void setup(int size) throws Exception {
+            tokens = scanAll(program(size), new Compilation());
+        }
+
+        public long run() throws Exception {
+            Compilation comp = new Compilation();
+            Compilation prev = Compilation.bind(comp);
+            try {
+                parser P = new parser(new ReplayScanner(tokens));
+                sink += P.parse().hashCode();
+                return tokens.size();
+            } finally {
+                Compilation.bind(prev);
+            }
+        }
+
+        public String unit() {
+            return "tokens/s";
+        }
+
+        public int[] defaultSizes() {
+            return new int[] { 1000, 10000, 100000 };
+        }
+    }
+
+    static class SymTableStage implements Stage {
+        private static final int DECLS_PER_SCOPE = 8;
+        private int depth;
+        private String[][] names;
+
+        public void setup(int size) {
+            depth = size;
+            names = new String[depth][DECLS_PER_SCOPE];
+            for (int d = 0; d < depth; d++) {
+                for (int k = 0; k < DECLS_PER_SCOPE; k++) {
+                    names[d][k] = "v" + d + "_" + k;
+                }
+            }
+        }
+
+        /**
+         * Enters depth nested scopes, declaring some names in each and
+         * looking up every visible name from the innermost scope, then
+         * leaves them again.
+         */
+        public long run() throws Exception {
+            Compilation comp = new Compilation();
+            Compilation prev = Compilation.bind(comp);
+            try {
+                SymTable symTab = new SymTable();
+                Sym sym = new Sym(Type.INT);
+                long lookups = 0;
+                for (int d = 0; d < depth; d++) {
+                    symTab.addScope();
+                    for (int k = 0; k < DECLS_PER_SCOPE; k++) {
+                        symTab.addDecl(names[d][k], sym);
+                    }
+                    for (int e = 0; e <= d; e++) {
+                        for (int k = 0; k < DECLS_PER_SCOPE; k++) {
+                            if (symTab.lookupGlobal(names[e][k]) != null) {
+                                lookups++;
+                            }
+                        }
+                    }
+                }
+                for (int d = 0; d < depth; d++) {
+                    symTab.removeScope();
+                }
+                return lookups;
+            } finally {
+                Compilation.bind(prev);
+            }
+        }
+
+        public String unit() {
+            return "lookups/s";
+        }
+
+        public int[] defaultSizes() {
+            return new int[] { 4, 16, 64 };
+        }
+    }
+
+    static class CodegenStage implements Stage {
+        private ProgramNode astRoot;
+        private int lines;
+
+        public void setup(int size) throws Exception {
+            String source = program(size);
+            lines = countLines(source);
+            Compilation comp = new Compilation();
+            Compilation prev = Compilation.bind(comp);
+            try {
+                parser P = new parser(new Yylex(new StringReader(source), comp));
+                astRoot = (ProgramNode)P.parse().value;
+            } finally {
+                Compilation.bind(prev);
+            }
+            astRoot.nameAnalysis(comp);
+            astRoot.typeCheck(comp);
+            if (comp.hasErr()) {
+                throw new IllegalStateException("benchmark input has errors");
+            }
+            astRoot.fold(comp);
+            astRoot.removeDeadCode(comp);
+        }
+
+        public long run() {
+            Emitter p = new Emitter(Writer.nullWriter());
+            astRoot.codeGen(new Compilation(), p);
+            p.flush();
+            return lines;
+        }
+
+        public String unit() {
+            return "lines/s";
+        }
+
+        public int[] defaultSizes() {
+            return new int[] { 1000, 10000, 100000 };
+        }
+    }
+}
@@ -0,0 +1,466 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * CflatGen writes valid cflat programs of a chosen size and shape, for
+ * scaling tests and benchmarks.  The same seed and options always give the
+ * same program, so that numbers measured on it can be compared across runs.
+ *
+ * The shape of the program is set by:
+ *    -lines n      about how many lines to write (1000 to 1000000 or more)
+ *    -seed n       seed of the random choices
+ *    -stmts n      most statements in one block
+ *    -depth n      deepest expression tree
+ *    -nest n       deepest nesting of if/while blocks
+ *    -structs n    number of struct definitions; each one after the first
+ *                  contains the one before it, so n structs give dot-access
+ *                  chains up to n long (0 for none)
+ *    -strings n    percent of statements that write a string literal
+ *    -fnlines n    about how many lines in one function; the number of
+ *                  functions is then about lines / fnlines
+ *
+ * Every local is given a value before it is used and every loop runs a
+ * fixed number of times, so the programs can also be run.  Struct fields
+ * are never given values, so programs with structs are meant to be
+ * compiled, not run.
+ *
+ * Command line:
+ *    java CflatGen [options] [-o <outfile>]
+ */
+public class CflatGen {
+    // shape of the program
+    private int targetLines = 1000;
+    private long seed = 536;
+    private int maxStmts = 8;
+    private int maxExpDepth = 3;
+    private int maxNesting = 3;
+    private int numStructs = 2;
+    private int stringPercent = 10;
+    private int fnLines = 40;
+
+    private static final int NUM_GLOBALS = 4;
+    private static final int MAX_TRIPS = 3;
+    private static final String[] STRINGS = {
+        "\"\\n\"", "\" \"", "\"result: \"", "\"sult: \"", "\"done\\n\"",
+        "\"ne\\n\"", "\"value = \"", "\"loop\"", "\"hello world\\n\"", "\"world\\n\""
+    };
+
+    private Random rand;
+    private StringBuilder out;
+    private int numLines;
+
+    // names in scope: innermost scope last; each maps a name to its type
+    // ("int", "bool" or the name of a struct)
+    private LinkedList<LinkedHashMap<String, String>> scopes;
+    // names that must not be assigned (loop counters)
+    private Set<String> readOnly;
+    // leaf functions (no calls) that the current function may call
+    private List<String> leafFns = new ArrayList<String>();
+    private boolean canCall;
+    private int nextLocal;
+
+    public static void main(String[] args) throws IOException {
+        CflatGen gen = new CflatGen();
+        String outName = null;
+        for (int k = 0; k < args.length; k++) {
+            if (args[k].equals("-o") && k + 1 < args.length) {
+                outName = args[++k];
+            } else if (k + 1 < args.length) {
+                gen.setOption(args[k], Long.parseLong(args[++k]));
+            } else {
+                System.err.println("usage: java CflatGen [-lines n] [-seed n] "
+                                   + "[-stmts n] [-depth n] [-nest n] [-structs n] "
+                                   + "[-strings n] [-fnlines n] [-o outfile]");
+                System.exit(-1);
+            }
+        }
+
+        String program = gen.generate();
+        if (outName == null) {
+            System.out.print(program);
+        } else {
+            try (Writer w = new BufferedWriter(new FileWriter(outName))) {
+                w.write(program);
+            }
+        }
+    }
+
+    /**
+     * Sets one of the shape options, named as on the command line.
+     */
+    public CflatGen setOption(String name, long value) {
+        switch (name) {
+        case "-lines":   targetLines = (int)value;   break;
+        case "-seed":    seed = value;               break;
+        case "-stmts":   maxStmts = (int)value;      break;
+        case "-depth":   maxExpDepth = (int)value;   break;
+        case "-nest":    maxNesting = (int)value;    break;
+        case "-structs": numStructs = (int)value;    break;
+        case "-strings": stringPercent = (int)value; break;
+        case "-fnlines": fnLines = (int)value;       break;
+        default:
+            throw new IllegalArgumentException("unknown option " + name);
+        }
+        return this;
+    }
+
+    /**
+     * Returns a new program.  Calling generate again gives the same program.
+     */
+    public String generate() {
+        rand = new Random(seed);
+        out = new StringBuilder(targetLines * 24);
+        numLines = 0;
+        scopes = new LinkedList<LinkedHashMap<String, String>>();
+        readOnly = new HashSet<String>();
+        leafFns.clear();
+
+        // globals and structs
+        scopes.add(new LinkedHashMap<String, String>());
+        for (int k = 0; k < NUM_GLOBALS; k++) {
+            declare(0, k % 2 == 0 ? "int" : "bool", "g" + k);
+        }
+        for (int k = 0; k < numStructs; k++) {
+            line(0, "struct S" + k + " {");
+            line(4, "int f0;");
+            line(4, "bool f1;");
+            if (k > 0) {
+                line(4, "struct S" + (k - 1) + " in;");
+            }
+            line(4, "int f2;");
+            line(0, "};");
+        }
+        if (numStructs > 0) {
+            line(0, "struct S" + (numStructs - 1) + " gs;");
+            scopes.getLast().put("gs", "S" + (numStructs - 1));
+        }
+        line(0, "");
+
+        // recursive functions: one tail-recursive, one not
+        line(0, "int sumTo(int n, int acc) {");
+        line(4, "if (n <= 0) {");
+        line(8, "return acc;");
+        line(4, "}");
+        line(4, "return sumTo(n - 1, acc + n);");
+        line(0, "}");
+        line(0, "");
+        line(0, "int fib(int n) {");
+        line(4, "if (n <= 1) {");
+        line(8, "return n;");
+        line(4, "}");
+        line(4, "return fib(n - 1) + fib(n - 2);");
+        line(0, "}");
+        line(0, "");
+
+        // the other functions; every third one is a leaf that the others
+        // may call
+        List<String> drivers = new ArrayList<String>();
+        int mainLines = 8 + NUM_GLOBALS;
+        for (int k = 0; numLines + mainLines < targetLines; k++) {
+            boolean leaf = k % 3 == 0;
+            String name = (leaf ? "leaf" : "fn") + k;
+            function(name, leaf);
+            if (leaf) {
+                leafFns.add(name);
+            } else {
+                drivers.add(name);
+                mainLines += 1;
+            }
+        }
+
+        // main
+        line(0, "void main() {");
+        for (int k = 0; k < NUM_GLOBALS; k++) {
+            line(4, "g" + k + " = " + (k % 2 == 0 ? String.valueOf(k + 1) : "true") + ";");
+        }
+        for (String name : drivers) {
+            line(4, "cout << " + name + "(" + rand.nextInt(10) + ", "
+                 + rand.nextBoolean() + ");");
+        }
+        line(4, "cout << \"\\n\";");
+        line(4, "cout << sumTo(100, 0);");
+        line(4, "cout << \"\\n\";");
+        line(4, "cout << fib(10);");
+        line(4, "cout << \"\\n\";");
+        line(0, "}");
+        return out.toString();
+    }
+
+    // ******************************************************************
+    // Declarations and statements
+    // ******************************************************************
+
+    private void function(String name, boolean leaf) {
+        canCall = !leaf && !leafFns.isEmpty();
+        nextLocal = 0;
+        int start = numLines;
+        line(0, "int " + name + "(int p0, bool p1) {");
+        scopes.add(new LinkedHashMap<String, String>());
+        scopes.getLast().put("p0", "int");
+        scopes.getLast().put("p1", "bool");
+
+        // locals, including one loop counter per nesting level
+        List<String> decls = new ArrayList<String>();
+        for (int k = 0; k < 3; k++) {
+            decls.add(declLocal(4, rand.nextInt(3) == 0 ? "bool" : "int"));
+        }
+        for (int k = 0; k < maxNesting; k++) {
+            declare(4, "int", "w" + k);
+            readOnly.add("w" + k);
+            decls.add("w" + k);
+        }
+        if (numStructs > 0) {
+            declare(4, "S" + (numStructs - 1), "s");
+        }
+        initLocals(4, decls);
+
+        // statements until the function is long enough
+        while (numLines - start < fnLines - 3) {
+            stmt(4, 0);
+        }
+        line(4, "cout << p0;");
+        line(4, "return " + intExp(maxExpDepth) + ";");
+        scopes.removeLast();
+        readOnly.clear();
+        line(0, "}");
+        line(0, "");
+    }
+
+    private String declLocal(int indent, String type) {
+        // reuse names of outer scopes now and then, to shadow them
+        String name = "v" + (rand.nextInt(4) == 0 && nextLocal > 0
+                             ? rand.nextInt(nextLocal) : nextLocal++);
+        if (scopes.getLast().containsKey(name)) {
+            name = "v" + nextLocal++;
+        }
+        declare(indent, type, name);
+        return name;
+    }
+
+    private void declare(int indent, String type, String name) {
+        if (type.equals("int") || type.equals("bool")) {
+            line(indent, type + " " + name + ";");
+        } else {
+            line(indent, "struct " + type + " " + name + ";");
+        }
+        scopes.getLast().put(name, type);
+    }
+
+    private void initLocals(int indent, List<String> names) {
+        for (String name : names) {
+            String type = typeOf(name);
+            line(indent, name + " = " + (type.equals("int") ? String.valueOf(rand.nextInt(10))
+                                         : String.valueOf(rand.nextBoolean())) + ";");
+        }
+    }
+
+    /**
+     * Writes one statement at the given if/while nesting level.
+     */
+    private void stmt(int indent, int nesting) {
+        int choice = rand.nextInt(100);
+        if (choice < stringPercent) {
+            line(indent, "cout << " + STRINGS[rand.nextInt(STRINGS.length)] + ";");
+            return;
+        }
+        choice = rand.nextInt(12);
+        if (nesting < maxNesting && choice < 3) {
+            block(indent, nesting, choice);
+            return;
+        }
+        switch (choice) {
+        case 3:
+        case 4:
+        case 5:
+            String var = assignable("int");
+            line(indent, var + " = " + intExp(maxExpDepth) + ";");
+            break;
+        case 6:
+            line(indent, assignable("bool") + " = " + boolExp(maxExpDepth) + ";");
+            break;
+        case 7:
+            line(indent, assignable("int") + (rand.nextBoolean() ? "++;" : "--;"));
+            break;
+        case 8:
+            line(indent, "cout << " + intExp(maxExpDepth) + ";");
+            break;
+        case 9:
+            if (numStructs > 0) {
+                line(indent, chain("int") + " = " + intExp(maxExpDepth) + ";");
+            } else {
+                line(indent, "cout << " + boolExp(maxExpDepth) + ";");
+            }
+            break;
+        default:
+            line(indent, "cout << " + boolExp(maxExpDepth) + ";");
+            break;
+        }
+    }
+
+    /**
+     * Writes an if (kind 0), if-else (kind 1) or while (kind 2) statement.
+     */
+    private void block(int indent, int nesting, int kind) {
+        String counter = "w" + nesting;
+        if (kind == 2) {
+            line(indent, counter + " = 0;");
+            line(indent, "while (" + counter + " < " + (1 + rand.nextInt(MAX_TRIPS)) + ") {");
+        } else {
+            line(indent, "if (" + boolExp(maxExpDepth) + ") {");
+        }
+        blockBody(indent + 4, nesting + 1);
+        if (kind == 2) {
+            line(indent + 4, counter + "++;");
+        }
+        if (kind == 1) {
+            line(indent, "} else {");
+            blockBody(indent + 4, nesting + 1);
+        }
+        line(indent, "}");
+    }
+
+    private void blockBody(int indent, int nesting) {
+        scopes.add(new LinkedHashMap<String, String>());
+        List<String> decls = new ArrayList<String>();
+        int numDecls = rand.nextInt(3);
+        for (int k = 0; k < numDecls; k++) {
+            decls.add(declLocal(indent, rand.nextInt(3) == 0 ? "bool" : "int"));
+        }
+        initLocals(indent, decls);
+        int numStmts = 1 + rand.nextInt(maxStmts);
+        for (int k = 0; k < numStmts; k++) {
+            stmt(indent, nesting);
+        }
+        scopes.removeLast();
+    }
+
+    // ******************************************************************
+    // Expressions
+    // ******************************************************************
+
+    private String intExp(int depth) {
+        if (depth <= 0 || rand.nextInt(4) == 0) {
+            return intLeaf();
+        }
+        switch (rand.nextInt(7)) {
+        case 0:
+            return "(" + intExp(depth - 1) + " + " + intExp(depth - 1) + ")";
+        case 1:
+            return "(" + intExp(depth - 1) + " - " + intExp(depth - 1) + ")";
+        case 2:
+            return "(" + intExp(depth - 1) + " * " + intExp(depth - 1) + ")";
+        case 3:
+            // divide by a literal, never by zero
+            return "(" + intExp(depth - 1) + " / " + (1 + rand.nextInt(9)) + ")";
+        case 4:
+            return "(-" + intExp(depth - 1) + ")";
+        case 5:
+            if (canCall) {
+                String fn = leafFns.get(rand.nextInt(leafFns.size()));
+                return fn + "(" + intExp(depth - 1) + ", " + boolExp(depth - 1) + ")";
+            }
+            return "(" + intExp(depth - 1) + " + " + rand.nextInt(100) + ")";
+        default:
+            return "(" + intExp(depth - 1) + " + " + rand.nextInt(100) + ")";
+        }
+    }
+
+    private String boolExp(int depth) {
+        if (depth <= 0 || rand.nextInt(4) == 0) {
+            return boolLeaf();
+        }
+        String[] relOps = { " < ", " > ", " <= ", " >= ", " == ", " != " };
+        switch (rand.nextInt(5)) {
+        case 0:
+            return "(" + boolExp(depth - 1) + " && " + boolExp(depth - 1) + ")";
+        case 1:
+            return "(" + boolExp(depth - 1) + " || " + boolExp(depth - 1) + ")";
+        case 2:
+            return "(!" + boolExp(depth - 1) + ")";
+        default:
+            return "(" + intExp(depth - 1) + relOps[rand.nextInt(relOps.length)]
+                + intExp(depth - 1) + ")";
+        }
+    }
+
+    private String intLeaf() {
+        int choice = rand.nextInt(10);
+        if (choice < 3) {
+            return String.valueOf(rand.nextInt(20));
+        }
+        if (choice == 3 && numStructs > 0) {
+            return chain("int");
+        }
+        return variable("int", false);
+    }
+
+    private String boolLeaf() {
+        int choice = rand.nextInt(10);
+        if (choice < 2) {
+            return rand.nextBoolean() ? "true" : "false";
+        }
+        if (choice == 2 && numStructs > 0) {
+            return chain("bool");
+        }
+        return variable("bool", false);
+    }
+
+    /**
+     * Returns a dot-access of a field of the given type in the local struct
+     * s, going through a random number of nested structs.
+     */
+    private String chain(String type) {
+        int length = rand.nextInt(numStructs);
+        StringBuilder sb = new StringBuilder(rand.nextBoolean() ? "s" : "gs");
+        for (int k = 0; k < length; k++) {
+            sb.append(".in");
+        }
+        if (type.equals("int")) {
+            sb.append(rand.nextBoolean() ? ".f0" : ".f2");
+        } else {
+            sb.append(".f1");
+        }
+        return sb.toString();
+    }
+
+    private String assignable(String type) {
+        return variable(type, true);
+    }
+
+    /**
+     * Returns a visible variable of the given type, chosen at random.
+     */
+    private String variable(String type, boolean forAssign) {
+        List<String> names = new ArrayList<String>();
+        Set<String> seen = new HashSet<String>();
+        Iterator<LinkedHashMap<String, String>> it = scopes.descendingIterator();
+        while (it.hasNext()) {
+            for (Map.Entry<String, String> entry : it.next().entrySet()) {
+                if (seen.add(entry.getKey()) && entry.getValue().equals(type)
+                    && !(forAssign && readOnly.contains(entry.getKey()))) {
+                    names.add(entry.getKey());
+                }
+            }
+        }
+        return names.get(rand.nextInt(names.size()));
+    }
+
+    private String typeOf(String name) {
+        Iterator<LinkedHashMap<String, String>> it = scopes.descendingIterator();
+        while (it.hasNext()) {
+            String type = it.next().get(name);
+            if (type != null) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private void line(int indent, String text) {
+        for (int k = 0; k < indent; k++) {
+            out.append(' ');
+        }
+        out.append(text).append('\n');
+        numLines++;
+    }
+}
@@ -3,1897 +3,819 @@
 _var1:	.space 4
 	.text
 _test_fn_void1:	# FUNCTION ENTRY
-	sw    $ra, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	sw    $fp, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	addu  $fp, $sp, 8
-	subu  $sp, $sp, 4
-	.data
-.L1:	.asciiz "void function1\n"
-	.text
-	la    $t0, .L1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L1
 	li    $v0, 4
 	syscall
 .L0:
 		#FUNCTION EXIT
-	lw    $ra, 0($fp)
-	move  $t0, $fp
-	lw    $fp, -4($fp)
-	move  $sp, $t0
 	jr    $ra
 	.text
 _test_fn_void2:	# FUNCTION ENTRY
-	sw    $ra, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	sw    $fp, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	addu  $fp, $sp, 8
-	subu  $sp, $sp, 4
-	.data
-.L3:	.asciiz "void function2\n"
-	.text
-	la    $t0, .L3
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L3
 	li    $v0, 4
 	syscall
-	b     .L2
 .L2:
 		#FUNCTION EXIT
-	lw    $ra, 0($fp)
-	move  $t0, $fp
-	lw    $fp, -4($fp)
-	move  $sp, $t0
 	jr    $ra
 	.text
 _test_fn:	# FUNCTION ENTRY
-	sw    $ra, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	sw    $fp, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	addu  $fp, $sp, 8
-	subu  $sp, $sp, 12
-	lw    $t0, 4($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
+	move  $a1, $a0
 	lw    $t0, _var1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	add   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	.data
-.L5:	.asciiz "test_fn: "
-	.text
-	la    $t0, .L5
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	add   $v1, $a1, $t0
+	la    $a0, .L5
 	li    $v0, 4
 	syscall
-	lw    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	move  $a0, $v1
 	li    $v0, 1
 	syscall
-	.data
-.L6:	.asciiz "\n"
-	.text
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
-	li    $v0, 4
-	syscall
-	li    $t0, 0
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $v0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	b     .L4
-	.data
-.L7:	.asciiz "output after return\n"
-	.text
-	la    $t0, .L7
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	lw    $t0, 8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -12($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 0
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $v0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	b     .L4
+	li    $v0, 0
 .L4:
 		#FUNCTION EXIT
-	lw    $ra, 0($fp)
-	move  $t0, $fp
-	lw    $fp, -4($fp)
-	move  $sp, $t0
 	jr    $ra
 	.text
 _recursion_fn:	# FUNCTION ENTRY
-	sw    $ra, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	sw    $fp, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	addu  $fp, $sp, 8
-	subu  $sp, $sp, 0
-	lw    $t0, 4($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sle   $t0, $t0, $t1
-	beq   $t0, 0, .L10
-	b     .L9
+	sw    $ra, 0($sp)
+	sw    $fp, -4($sp)
+	move  $fp, $sp
+	subu  $sp, $sp, 16
+	sw    $s0, -12($fp)
+	move  $s0, $a0
+	bgt   $s0, 1, .L9
+.L8:
+	move  $v0, $s0
+	b     .L7
 .L9:
-	lw    $t0, 4($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $v0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	b     .L8
-	b     .L11
-.L10:
-	lw    $t0, 4($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
 	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sub   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
+	sub   $a0, $s0, $t0
 	jal   _recursion_fn
-	add   $sp, 4
-	sw    $v0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($fp)
+	move  $t0, $v0
 	sw    $t0, 0($sp)	#PUSH
 	subu  $sp, $sp, 4
 	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sub   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
+	sub   $a0, $s0, $t0
 	jal   _recursion_fn
-	add   $sp, 4
-	sw    $v0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
+	move  $t1, $v0
 	lw    $t0, 4($sp)	#POP
 	addu  $sp, $sp, 4
-	add   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $v0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	b     .L8
-.L11:
-.L8:
+	add   $v0, $t0, $t1
+	b     .L7
+.L10:
+.L7:
 		#FUNCTION EXIT
-	lw    $ra, 0($fp)
-	move  $t0, $fp
-	lw    $fp, -4($fp)
-	move  $sp, $t0
+	lw    $s0, -12($fp)
+	move  $sp, $fp
+	lw    $ra, 0($sp)
+	lw    $fp, -4($sp)
 	jr    $ra
 	.text
-_while_loop_addition_fn:	# FUNCTION ENTRY
-	sw    $ra, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	sw    $fp, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	addu  $fp, $sp, 8
-	subu  $sp, $sp, 4
-	li    $t0, 0
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
+_tail_gcd_fn:	# FUNCTION ENTRY
+	sw    $ra, 0($sp)
+	sw    $fp, -4($sp)
+	move  $fp, $sp
+	subu  $sp, $sp, 24
+	sw    $s0, -16($fp)
+	sw    $s1, -20($fp)
+.L12:
+	move  $s1, $a0
+	move  $s0, $a1
+	bne   $s0, 0, .L14
 .L13:
-	lw    $t0, 4($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 0
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sgt   $t0, $t0, $t1
-	beq   $t0, 0, .L15
-	b     .L14
+	move  $v0, $s1
+	b     .L11
 .L14:
-	lw    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
+	div   $s1, $s0
+	mflo  $t0
+	mult  $t0, $s0
+	mflo  $t0
+	sub   $a1, $s1, $t0
+	move  $a0, $s0
+	b     .L12
+.L11:
+		#FUNCTION EXIT
+	lw    $s0, -16($fp)
+	lw    $s1, -20($fp)
+	move  $sp, $fp
+	lw    $ra, 0($sp)
+	lw    $fp, -4($sp)
+	jr    $ra
+	.text
+_tail_sum5_fn:	# FUNCTION ENTRY
+	sw    $ra, 0($sp)
+	sw    $fp, -4($sp)
+	move  $fp, $sp
+	subu  $sp, $sp, 24
+.L16:
+	sw    $a0, -8($fp)
+	sw    $a1, -12($fp)
+	sw    $a2, -16($fp)
+	sw    $a3, -20($fp)
 	lw    $t0, 4($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
+	bne   $t0, 0, .L18
+.L17:
+	lw    $t0, -8($fp)
+	lw    $t1, -12($fp)
 	add   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, 4($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
+	lw    $t1, -16($fp)
+	add   $t0, $t0, $t1
+	lw    $t1, -20($fp)
+	add   $v0, $t0, $t1
+	b     .L15
+.L18:
 	lw    $t0, 4($fp)
+	li    $t1, 1
+	sub   $t0, $t0, $t1
 	sw    $t0, 0($sp)	#PUSH
 	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sub   $t0, $t0, 1
-	sw    $t0, 0($t1)
-	b     .L13
-.L15:
 	lw    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $v0, 4($sp)	#POP
+	lw    $t1, 4($fp)
+	add   $a3, $t0, $t1
+	lw    $a2, -20($fp)
+	lw    $a1, -16($fp)
+	lw    $a0, -12($fp)
+	lw    $t0, 4($sp)
+	sw    $t0, 4($fp)
 	addu  $sp, $sp, 4
-	b     .L12
-.L12:
+	b     .L16
+.L15:
 		#FUNCTION EXIT
-	lw    $ra, 0($fp)
-	move  $t0, $fp
-	lw    $fp, -4($fp)
-	move  $sp, $t0
+	move  $sp, $fp
+	lw    $ra, 0($sp)
+	lw    $fp, -4($sp)
 	jr    $ra
 	.text
-_test_local_in_if:	# FUNCTION ENTRY
-	sw    $ra, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	sw    $fp, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	addu  $fp, $sp, 8
-	subu  $sp, $sp, 24
+_sibling_call_fn:	# FUNCTION ENTRY
+	sw    $ra, 0($sp)
+	sw    $fp, -4($sp)
+	move  $fp, $sp
+	subu  $sp, $sp, 16
+	sw    $s0, -12($fp)
+.L20:
+	move  $s0, $a0
+	bgt   $s0, 0, .L22
+.L21:
+	li    $a1, 36
+	li    $a0, 84
+	lw    $s0, -12($fp)
+	move  $sp, $fp
+	lw    $ra, 0($sp)
+	lw    $fp, -4($sp)
+	b     _tail_gcd_fn
+.L22:
+	move  $a0, $s0
+	li    $v0, 1
+	syscall
 	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -12($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($fp)
-	beq   $t0, 0, .L18
-	b     .L17
-.L17:
+	sub   $a0, $s0, $t0
+	b     .L20
+.L19:
+		#FUNCTION EXIT
+	lw    $s0, -12($fp)
+	move  $sp, $fp
+	lw    $ra, 0($sp)
+	lw    $fp, -4($sp)
+	jr    $ra
+	.text
+_while_loop_addition_fn:	# FUNCTION ENTRY
+	move  $v1, $a0
+	li    $a1, 0
+	b     .L24
+.L25:
+	add   $a1, $a1, $v1
+	sub   $v1, $v1, 1
+.L24:
+	bgt   $v1, 0, .L25
+.L26:
+	move  $v0, $a1
+.L23:
+		#FUNCTION EXIT
+	jr    $ra
+	.text
+_test_local_in_if:	# FUNCTION ENTRY
+	sw    $fp, -4($sp)
+	move  $fp, $sp
+	subu  $sp, $sp, 36
+	sw    $a0, -8($fp)
+	li    $v1, 1
+	li    $a1, 2
+	lw    $t0, -8($fp)
+	beq   $t0, 0, .L29
+.L28:
+	li    $a3, 4
+	li    $t0, 8
+	sw    $t0, -28($fp)
+	add   $t0, $v1, $a1
+	add   $t0, $t0, $a3
+	lw    $t1, -28($fp)
+	add   $a2, $t0, $t1
+	b     .L30
+.L29:
 	li    $t0, 4
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -20($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 8
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -24($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, -12($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	add   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, -20($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	add   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, -24($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
+	sw    $t0, -24($fp)
+	add   $t0, $v1, $a1
+	lw    $t1, -24($fp)
+	add   $a2, $t0, $t1
+.L30:
+	b     .L31
+.L32:
+	sub   $v1, $v1, 1
+.L31:
+	bgt   $v1, 0, .L32
+.L33:
+	move  $v0, $a2
+.L27:
+		#FUNCTION EXIT
+	move  $sp, $fp
+	lw    $fp, -4($sp)
+	jr    $ra
+	.text
+_unread_local_fn:	# FUNCTION ENTRY
+	sw    $fp, -4($sp)
+	move  $fp, $sp
+	subu  $sp, $sp, 12
+	lw    $t0, _var1
+	li    $t1, 1
 	add   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -16($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	b     .L19
-.L18:
-	li    $t0, 4
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -20($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
+	sw    $t0, -8($fp)
+	move  $a0, $t0
+	li    $v0, 1
+	syscall
+	lw    $t0, _var1
+	li    $t1, 2
+	add   $a0, $t0, $t1
+	li    $v0, 1
+	syscall
+	lw    $t0, _var1
+	li    $t1, 3
+	add   $a0, $t0, $t1
+	li    $v0, 1
+	syscall
+	lw    $t0, _var1
+	li    $t1, 4
+	add   $a0, $t0, $t1
+	li    $v0, 1
+	syscall
+	lw    $t0, _var1
+	li    $t1, 5
+	add   $a0, $t0, $t1
+	li    $v0, 1
+	syscall
+.L34:
+		#FUNCTION EXIT
+	move  $sp, $fp
+	lw    $fp, -4($sp)
+	jr    $ra
+	.text
+_unread_local_caller_fn:	# FUNCTION ENTRY
+	sw    $ra, 0($sp)
+	sw    $fp, -4($sp)
+	move  $fp, $sp
+	subu  $sp, $sp, 16
+.L36:
+	sw    $a0, -8($fp)
+	sw    $a1, -12($fp)
+	move  $t0, $a1
+	ble   $t0, 0, .L38
+.L37:
 	lw    $t0, -12($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	add   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, -20($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	add   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -16($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-.L19:
-.L20:
-	lw    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 0
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sgt   $t0, $t0, $t1
-	beq   $t0, 0, .L22
-	b     .L21
-.L21:
-	lw    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -28($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sub   $t0, $t0, 1
-	sw    $t0, 0($t1)
-	b     .L20
-.L22:
-	lw    $t0, -16($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $v0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	b     .L16
-.L16:
+	li    $t1, 1
+	sub   $a1, $t0, $t1
+	lw    $a0, -8($fp)
+	b     .L36
+.L38:
+	jal   _unread_local_fn
+	lw    $v0, -8($fp)
+.L35:
 		#FUNCTION EXIT
-	lw    $ra, 0($fp)
-	move  $t0, $fp
-	lw    $fp, -4($fp)
-	move  $sp, $t0
+	move  $sp, $fp
+	lw    $ra, 0($sp)
+	lw    $fp, -4($sp)
 	jr    $ra
 	.text
 	.globl main
 main:	# FUNCTION ENTRY
-	sw    $ra, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	sw    $fp, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	addu  $fp, $sp, 8
-	subu  $sp, $sp, 20
-	li    $t0, 8
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	li    $t1, -1
-	mult  $t0, $t1
-	mflo  $t0
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, _var1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -12($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	jal   _test_fn_void1
-	add   $sp, 4
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	jal   _test_fn_void2
-	add   $sp, 4
-	lw    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
+	sw    $ra, 0($sp)
+	sw    $fp, -4($sp)
+	move  $fp, $sp
+	subu  $sp, $sp, 88
+	sw    $s0, -56($fp)
+	sw    $s1, -60($fp)
+	sw    $s2, -64($fp)
+	sw    $s3, -68($fp)
+	sw    $s4, -72($fp)
+	sw    $s5, -76($fp)
+	sw    $s6, -80($fp)
+	sw    $s7, -84($fp)
+	li    $t0, -8
+	sw    $t0, _var1
+	li    $s6, 1
+	li    $s7, 1
+	la    $a0, .L1
+	li    $v0, 4
+	syscall
+.L40:
+	la    $a0, .L3
+	li    $v0, 4
+	syscall
+.L41:
 	lw    $t0, _var1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	jal   _test_fn
-	add   $sp, 8
-	sw    $v0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	.data
-.L24:	.asciiz "Fibonacci Recursion Test:\n"
-	.text
-	la    $t0, .L24
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	sw    $t0, -40($fp)
+	lw    $t1, _var1
+	add   $t0, $t0, $t1
+	sw    $t0, -36($fp)
+	la    $a0, .L5
 	li    $v0, 4
 	syscall
-	li    $t0, 0
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	jal   _recursion_fn
-	add   $sp, 4
-	sw    $v0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	lw    $a0, -36($fp)
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
+	li    $v0, 0
+.L42:
+	move  $t0, $v0
+	la    $a0, .L43
+	li    $v0, 4
+	syscall
+	li    $a0, 0
 	jal   _recursion_fn
-	add   $sp, 4
-	sw    $v0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	move  $a0, $v0
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	li    $t0, 10
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
+	li    $a0, 1
 	jal   _recursion_fn
-	add   $sp, 4
-	sw    $v0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	move  $a0, $v0
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	li    $t0, 100
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	jal   _while_loop_addition_fn
-	add   $sp, 4
-	sw    $v0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 10
+	jal   _recursion_fn
+	move  $a0, $v0
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	jal   _test_local_in_if
-	add   $sp, 4
-	sw    $v0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L44
+	li    $v0, 4
+	syscall
+	li    $a1, 462
+	li    $a0, 1071
+	jal   _tail_gcd_fn
+	move  $a0, $v0
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	li    $t0, 0
+	li    $t0, 3
 	sw    $t0, 0($sp)	#PUSH
 	subu  $sp, $sp, 4
-	jal   _test_local_in_if
+	li    $a3, 4
+	li    $a2, 3
+	li    $a1, 2
+	li    $a0, 1
+	jal   _tail_sum5_fn
 	add   $sp, 4
-	sw    $v0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	move  $a0, $v0
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	.data
-.L25:	.asciiz "Hello world!"
-	.text
-	la    $t0, .L25
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
-	li    $v0, 4
+	li    $a0, 3
+	jal   _sibling_call_fn
+	move  $a0, $v0
+	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	lw    $t0, _var1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $s2, 100
+	li    $s3, 0
+	b     .L46
+.L47:
+	add   $s3, $s3, $s2
+	sub   $s2, $s2, 1
+.L46:
+	bgt   $s2, 0, .L47
+.L48:
+	move  $v0, $s3
+.L45:
+	move  $a0, $v0
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	lw    $t0, _var1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 8
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	add   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 1
+	jal   _test_local_in_if
+	move  $a0, $v0
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	lw    $t0, _var1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sub   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 0
+	jal   _test_local_in_if
+	move  $a0, $v0
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
+	li    $v0, 4
+	syscall
+	la    $a0, .L49
 	li    $v0, 4
 	syscall
-	lw    $t0, _var1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 3
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	mult  $t0, $t1
-	mflo  $t0
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
+	li    $v0, 4
+	syscall
+	lw    $a0, _var1
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
 	lw    $t0, _var1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	div   $t0, $t1
-	mflo  $t0
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $t1, 8
+	add   $a0, $t0, $t1
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	la    $t0, _var1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, _var1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	add   $t0, $t0, 1
-	sw    $t0, 0($t1)
 	lw    $t0, _var1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $t1, 1
+	sub   $a0, $t0, $t1
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	la    $t0, _var1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, _var1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sub   $t0, $t0, 1
-	sw    $t0, 0($t1)
 	lw    $t0, _var1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	sll   $t9, $t0, 2
+	subu  $a0, $t9, $t0
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	lw    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	lw    $t0, _var1
+	srl   $t9, $t0, 31
+	addu  $t0, $t0, $t9
+	sra   $a0, $t0, 1
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	lw    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	seq   $t0, $t0, 0
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
+	lw    $t0, _var1
+	add   $t0, $t0, 1
+	sw    $t0, _var1
 	move  $a0, $t0
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	li    $t0, 1
-	b     .L26
-.L26:
-	li    $t0, 0
-.L27:
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
+	lw    $t0, _var1
+	sub   $t0, $t0, 1
+	sw    $t0, _var1
 	move  $a0, $t0
 	li    $v0, 1
 	syscall
-	.data
-.L28:	.asciiz " "
-	.text
-	la    $t0, .L28
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	li    $t0, 1
-	b     .L29
-.L29:
-	li    $t0, 1
-.L30:
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	move  $a0, $s6
 	li    $v0, 1
 	syscall
-	la    $t0, .L28
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	li    $t0, 1
-	b     .L32
-.L31:
-	li    $t0, 0
-.L32:
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	move  $t0, $s6
+	seq   $a0, $t0, 0
 	li    $v0, 1
 	syscall
-	la    $t0, .L28
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	li    $t0, 0
-	b     .L33
-.L33:
-	li    $t0, 0
-.L34:
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 0
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L50
 	li    $v0, 4
 	syscall
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	slt   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 1
 	li    $v0, 1
 	syscall
-	la    $t0, .L28
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L50
 	li    $v0, 4
 	syscall
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	slt   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 1
 	li    $v0, 1
 	syscall
-	la    $t0, .L28
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L50
 	li    $v0, 4
 	syscall
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sgt   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 0
 	li    $v0, 1
 	syscall
-	la    $t0, .L28
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sgt   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 1
 	li    $v0, 1
 	syscall
-	la    $t0, .L28
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L50
 	li    $v0, 4
 	syscall
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sle   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 0
 	li    $v0, 1
 	syscall
-	la    $t0, .L28
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L50
 	li    $v0, 4
 	syscall
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sle   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 0
 	li    $v0, 1
 	syscall
-	la    $t0, .L28
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L50
 	li    $v0, 4
 	syscall
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sle   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 1
 	li    $v0, 1
 	syscall
-	la    $t0, .L28
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L50
 	li    $v0, 4
 	syscall
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sge   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 1
 	li    $v0, 1
 	syscall
-	la    $t0, .L28
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L50
 	li    $v0, 4
 	syscall
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sge   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 0
 	li    $v0, 1
 	syscall
-	la    $t0, .L28
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L50
 	li    $v0, 4
 	syscall
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sge   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 1
 	li    $v0, 1
 	syscall
-	la    $t0, .L28
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L50
 	li    $v0, 4
 	syscall
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	seq   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 0
 	li    $v0, 1
 	syscall
-	la    $t0, .L28
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L50
 	li    $v0, 4
 	syscall
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	seq   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 1
 	li    $v0, 1
 	syscall
-	la    $t0, .L28
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L50
 	li    $v0, 4
 	syscall
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sne   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 1
 	li    $v0, 1
 	syscall
-	la    $t0, .L28
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L50
 	li    $v0, 4
 	syscall
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sne   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 0
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L50
 	li    $v0, 4
 	syscall
-	li    $t0, 1
-	b     .L35
-.L35:
-	.data
-.L37:	.asciiz "branch test 01"
-	.text
-	la    $t0, .L37
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 1
+	li    $v0, 1
+	syscall
+	la    $a0, .L50
 	li    $v0, 4
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 1
+	li    $v0, 1
+	syscall
+	la    $a0, .L50
 	li    $v0, 4
 	syscall
-.L36:
-	li    $t0, 0
-	b     .L39
-.L38:
-	.data
-.L40:	.asciiz "branch test 01 failed"
-	.text
-	la    $t0, .L40
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 0
+	li    $v0, 1
+	syscall
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L51
 	li    $v0, 4
 	syscall
-.L39:
-	li    $t0, 1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	beq   $t0, 0, .L42
-	b     .L41
-.L41:
-	.data
-.L43:	.asciiz "branch test 02"
-	.text
-	la    $t0, .L43
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $t0, 1
+	move  $s6, $t0
+	beq   $t0, 0, .L53
+.L52:
+	la    $a0, .L54
 	li    $v0, 4
 	syscall
-.L42:
-	li    $t0, 0
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -8($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	beq   $t0, 0, .L45
-	b     .L44
-.L44:
-	.data
-.L46:	.asciiz "branch test 02 failed"
-	.text
-	la    $t0, .L46
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+.L53:
+	li    $t0, 0
+	move  $s6, $t0
+	beq   $t0, 0, .L56
+.L55:
+	la    $a0, .L57
 	li    $v0, 4
 	syscall
-.L45:
-	li    $t0, 1
-	b     .L47
-.L47:
-	.data
-.L50:	.asciiz "branch test 03"
-	.text
-	la    $t0, .L50
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+.L56:
+	la    $a0, .L58
 	li    $v0, 4
 	syscall
-	b     .L49
-.L48:
-	.data
-.L51:	.asciiz "branch test 03 failed"
-	.text
-	la    $t0, .L51
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L59
 	li    $v0, 4
 	syscall
-.L49:
-	li    $t0, 0
-	b     .L53
-.L52:
-	.data
-.L55:	.asciiz "branch test 04 failed"
-	.text
-	la    $t0, .L55
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $s0, 0
+	b     .L60
+.L61:
+	move  $a0, $s0
+	li    $v0, 1
+	syscall
+	add   $s0, $s0, 1
+.L60:
+	blt   $s0, 10, .L61
+.L62:
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	b     .L54
-.L53:
-	.data
-.L56:	.asciiz "branch test 04"
-	.text
-	la    $t0, .L56
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $s0, 0
+	li    $s1, 0
+	lw    $t0, _var1
+	sll   $t9, $t0, 2
+	subu  $s5, $t9, $t0
+	b     .L63
+.L64:
+	add   $s1, $s1, $s5
+	add   $s0, $s0, 1
+.L63:
+	blt   $s0, 5, .L64
+.L65:
+	move  $a0, $s1
+	li    $v0, 1
+	syscall
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $s1, 2147483647
+	li    $s0, 0
+	b     .L66
+.L67:
+	li    $t0, 1
+	add   $a0, $s1, $t0
+	li    $v0, 1
+	syscall
+	add   $s0, $s0, 1
+.L66:
+	blt   $s0, 0, .L67
+.L68:
+	move  $a0, $s1
+	li    $v0, 1
+	syscall
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-.L54:
-	li    $t0, 0
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -20($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-.L57:
-	lw    $t0, -20($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 10
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	slt   $t0, $t0, $t1
-	beq   $t0, 0, .L59
-	b     .L58
-.L58:
-	lw    $t0, -20($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a1, 1
+	li    $a0, 5
+	jal   _unread_local_caller_fn
+	move  $a0, $v0
 	li    $v0, 1
 	syscall
-	la    $t0, -20($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, -20($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	add   $t0, $t0, 1
-	sw    $t0, 0($t1)
-	b     .L57
-.L59:
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	.data
-.L60:	.asciiz "yidong"
-	.text
-	la    $t0, .L60
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, .L60
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	seq   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $s1, 3
+	move  $s4, $s1
+	blez  $s4, .L70
+.L69:
+	move  $a0, $s1
 	li    $v0, 1
 	syscall
-	la    $t0, .L60
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	.data
-.L61:	.asciiz "yidong2"
-	.text
-	la    $t0, .L61
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	seq   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	sub   $s1, $s1, 1
+	sub   $s4, $s4, 1
+	bgtz  $s4, .L69
+.L70:
+	la    $a0, .L71
+	li    $v0, 4
+	syscall
+	la    $a0, .L71
+	li    $v0, 4
+	syscall
+	la    $a0, .L6
+	li    $v0, 4
+	syscall
+	la    $t0, .L72
+	la    $t1, .L72
+	seq   $a0, $t0, $t1
 	li    $v0, 1
 	syscall
-	la    $t0, .L60
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, .L61
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sne   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $t0, .L72
+	la    $t1, .L73
+	seq   $a0, $t0, $t1
 	li    $v0, 1
 	syscall
-	la    $t0, .L60
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, .L60
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sne   $t0, $t0, $t1
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $t0, .L72
+	la    $t1, .L73
+	sne   $a0, $t0, $t1
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $t0, .L72
+	la    $t1, .L72
+	sne   $a0, $t0, $t1
+	li    $v0, 1
+	syscall
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-	li    $t0, 1
-	b     .L63
-.L62:
-	li    $t0, 0
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -12($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-.L63:
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 1
 	li    $v0, 1
 	syscall
-	li    $t0, 2
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	li    $t0, 3
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	seq   $t0, $t0, $t1
-	beq   $t0, 0, .L65
-	b     .L64
-.L64:
-	li    $t0, 0
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	la    $t0, -12($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t1, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $t0, 0($t1)
-.L65:
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	li    $a0, 0
 	li    $v0, 1
 	syscall
-	lw    $t0, -12($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	move  $a0, $s7
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
 	li    $v0, 5
 	syscall
-	la    $t0, -16($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sne   $t1, $v0, 0
-	sw    $t1, 0($t0)
-	lw    $t0, -16($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
+	sne   $t0, $v0, 0
+	sw    $t0, -16($fp)
 	move  $a0, $t0
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
 	li    $v0, 5
 	syscall
-	la    $t0, -20($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	sw    $v0, 0($t0)
-	lw    $t0, -20($fp)
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	move  $s0, $v0
+	move  $a0, $s0
 	li    $v0, 1
 	syscall
-	la    $t0, .L6
-	sw    $t0, 0($sp)	#PUSH
-	subu  $sp, $sp, 4
-	lw    $t0, 4($sp)	#POP
-	addu  $sp, $sp, 4
-	move  $a0, $t0
+	la    $a0, .L6
 	li    $v0, 4
 	syscall
-.L23:
+.L39:
 		#FUNCTION EXIT
-	lw    $ra, 0($fp)
-	move  $t0, $fp
-	lw    $fp, -4($fp)
-	move  $sp, $t0
+	lw    $s0, -56($fp)
+	lw    $s1, -60($fp)
+	lw    $s2, -64($fp)
+	lw    $s3, -68($fp)
+	lw    $s4, -72($fp)
+	lw    $s5, -76($fp)
+	lw    $s6, -80($fp)
+	lw    $s7, -84($fp)
+	move  $sp, $fp
+	lw    $ra, 0($sp)
+	lw    $fp, -4($sp)
 	jr    $ra
+	.data
+.L1:	.ascii "void function1"
+.L6:	.asciiz "\n"
+.L3:	.asciiz "void function2\n"
+.L5:	.ascii "test_fn:"
+.L50:	.asciiz " "
+.L43:	.asciiz "Fibonacci Recursion Test:\n"
+.L44:	.asciiz "Tail Call Test:\n"
+.L49:	.asciiz "Hello world!"
+.L51:	.asciiz "branch test 01"
+.L54:	.asciiz "branch test 02"
+.L57:	.asciiz "branch test 02 failed"
+.L58:	.asciiz "branch test 03"
+.L59:	.asciiz "branch test 04"
+.L71:	.asciiz "r"
+.L72:	.asciiz "yidong"
+.L73:	.asciiz "yidong2"